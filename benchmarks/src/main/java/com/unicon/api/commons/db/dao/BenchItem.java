@@ -0,0 +1,48 @@
+package com.unicon.api.commons.db.dao;
+
+import java.math.BigDecimal;
+
+/**
+ * Fila de la tabla de los benchmarks.
+ *
+ * @author acrispin
+ */
+public class BenchItem {
+
+    private Integer id;
+    private String code;
+    private BigDecimal amount;
+
+    public BenchItem() {
+    }
+
+    public BenchItem(Integer id, String code, BigDecimal amount) {
+        this.id = id;
+        this.code = code;
+        this.amount = amount;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,57 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * DAO de los benchmarks sobre el environment <code>h2</code> de {@link H2Environment}.
+ *
+ * @author acrispin
+ */
+public class BenchItemDao extends DaoBase<BenchItem, BenchItemMapper> {
+
+    private static final Logger LOGGER = LogManager.getLogger(BenchItemDao.class);
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    public BenchItemDao(SqlSessionFactory sqlSessionFactory) {
+        this.sqlSessionFactory = sqlSessionFactory;
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    protected SqlSessionFactory getSqlSessionFactoryInnerSingle() {
+        return sqlSessionFactory;
+    }
+
+    @Override
+    protected SqlSessionFactory getSqlSessionFactoryInnerSdc(String idMarca) {
+        return sqlSessionFactory;
+    }
+
+    @Override
+    protected SqlSessionFactory getSqlSessionFactoryInnerCmd(String idMarca) {
+        return sqlSessionFactory;
+    }
+
+    @Override
+    protected EConnectionType getConnectionType() {
+        return EConnectionType.SINGLE;
+    }
+
+    @Override
+    protected Class<BenchItemMapper> getMapperType() {
+        return BenchItemMapper.class;
+    }
+
+    @Override
+    protected Class<BenchItem> getClassType() {
+        return BenchItem.class;
+    }
+}
@@ -0,0 +1,43 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapper de los benchmarks sobre H2.
+ *
+ * @author acrispin
+ */
+public interface BenchItemMapper {
+    @Update("CREATE TABLE IF NOT EXISTS bench_item (id INT PRIMARY KEY, code VARCHAR(20), amount DECIMAL(12,2))")
+    void createTable();
+
+    @Delete("DELETE FROM bench_item")
+    int truncate();
+
+    @Insert("INSERT INTO bench_item (id, code, amount) VALUES (#{id}, #{code}, #{amount})")
+    Integer insert(BenchItem item);
+
+    @Update("UPDATE bench_item SET code = #{code}, amount = #{amount} WHERE id = #{id}")
+    Integer update(BenchItem item);
+
+    @Delete("DELETE FROM bench_item WHERE id = #{id}")
+    Integer delete(BenchItem item);
+
+    @Select("SELECT id, code, amount FROM bench_item WHERE id = #{id}")
+    BenchItem selectById(Integer id);
+
+    @Select("SELECT id, code, amount FROM bench_item ORDER BY id")
+    List<BenchItem> selectAll();
+
+    @Select("SELECT TOP (#{size}) id, code, amount FROM bench_item ORDER BY id")
+    List<BenchItem> selectList(Map<String, Object> params);
+
+    @Select("SELECT TOP (#{size}) id, CONCAT(code, '') AS code, CAST(amount + 0 AS DECIMAL(12,2)) AS amount FROM bench_item ORDER BY id")
+    List<BenchItem> selectReport(Map<String, Object> params);
+}
@@ -0,0 +1,81 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.columnar.ColumnarResult;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mide el heap retenido y el tiempo de lectura de un select grande como lista de {@link BenchItem} (modo
+ * <code>list</code>) contra {@link DaoGeneric#queryColumnar(String, int, Object...)} (modo <code>columnar</code>),
+ * sobre <code>bench_item</code> en H2: un <code>INT</code>, un <code>VARCHAR</code> con dos valores distintos y un
+ * <code>DECIMAL(12,2)</code> por fila.
+ * <p>
+ * Usa <code>selectReport</code>, que calcula el texto y el decimal en el select: con las columnas directas H2 en
+ * memoria devuelve las mismas instancias que guarda y la lista no pagaria por ellas, mientras que un driver de red
+ * crea un <code>String</code> y un <code>BigDecimal</code> por fila.
+ * <p>
+ * Uso: <code>java -cp benchmarks.jar com.unicon.api.commons.db.dao.ColumnarFootprint [filas] [list|columnar]</code>.
+ * Cada modo se debe correr en una JVM nueva; el heap de la base H2 se mide antes de la consulta y no se cuenta, y
+ * una primera lectura sin medir deja listos los caches de H2 y de mybatis.
+ *
+ * @author acrispin
+ */
+public final class ColumnarFootprint {
+
+    private static final int BATCH = 10_000;
+    private static final String SELECT_REPORT = "selectReport";
+
+    private ColumnarFootprint() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean columnar = args.length > 1 && "columnar".equals(args[1]);
+        SqlSessionFactory ssf = H2Environment.create("footprint", 2);
+        try (SqlSession session = ssf.openSession(true);
+             Statement statement = session.getConnection().createStatement()) {
+            // H2 guarda el ultimo resultado de cada consulta para reusarlo y se contaria en ambos modos
+            statement.execute("SET OPTIMIZE_REUSE_RESULTS 0");
+        }
+        BenchItemDao dao = new BenchItemDao(ssf);
+        for (int first = 1; first <= rows; first += BATCH) {
+            dao.insertBatch(H2Environment.items(first, Math.min(BATCH, rows - first + 1)));
+        }
+        Map<String, Object> params = Collections.singletonMap("size", rows);
+
+        read(dao, params, columnar);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = usedHeap(memory);
+        long start = System.nanoTime();
+        Object result = read(dao, params, columnar);
+        long elapsed = System.nanoTime() - start;
+        int size = result instanceof ColumnarResult ? ((ColumnarResult) result).size() : ((List<?>) result).size();
+        long after = usedHeap(memory);
+        System.out.printf("modo=%s filas=%d lectura=%.1f ms heap retenido=%d KB (%.1f bytes/fila) %s%n",
+                columnar ? "columnar" : "list", size, elapsed / 1e6, (after - before) / 1024,
+                (after - before) / (double) size, result.getClass().getSimpleName());
+    }
+
+    private static Object read(BenchItemDao dao, Map<String, Object> params, boolean columnar) {
+        if (columnar) {
+            return dao.queryColumnar(SELECT_REPORT, 0, params);
+        }
+        return dao.<BenchItem>queryList(SELECT_REPORT, params);
+    }
+
+    private static long usedHeap(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,66 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Mide el tiempo de arranque y el heap retenido al crear N environments leyendo <code>sqlMapConfig.xml</code>
+ * por cada uno (modo anterior) contra la configuracion compartida de {@link ConfigurationTemplate}.
+ * <p>
+ * Uso: <code>java -cp benchmarks.jar com.unicon.api.commons.db.dao.ConfigurationFootprint [environments]</code>.
+ * Cada modo se debe correr en una JVM nueva para no compartir clases cargadas.
+ *
+ * @author acrispin
+ */
+public final class ConfigurationFootprint {
+
+    private static final String RESOURCE_FILE = "sqlMapConfig.xml";
+    private static final String ENVIRONMENT = "junit";
+
+    private ConfigurationFootprint() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int environments = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        boolean shared = args.length > 1 && "shared".equals(args[1]);
+        Properties props = new Properties();
+        props.put("driver", "org.h2.Driver");
+        props.put("url", "jdbc:h2:mem:footprint");
+        props.put("username", "sa");
+        props.put("password", "");
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = usedHeap(memory);
+        long start = System.nanoTime();
+        List<SqlSessionFactory> factories = new ArrayList<>(environments);
+        for (int i = 0; i < environments; i++) {
+            if (shared) {
+                factories.add(ConfigurationTemplate.getInstance(RESOURCE_FILE).newSqlSessionFactory(ENVIRONMENT, props));
+            } else {
+                try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE_FILE)) {
+                    factories.add(new SqlSessionFactoryBuilder().build(inputStream, ENVIRONMENT, props));
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long after = usedHeap(memory);
+        System.out.printf("modo=%s environments=%d arranque=%.1f ms heap retenido=%d KB (%d factories)%n",
+                shared ? "shared" : "legacy", environments, elapsed / 1e6, (after - before) / 1024, factories.size());
+    }
+
+    private static long usedHeap(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
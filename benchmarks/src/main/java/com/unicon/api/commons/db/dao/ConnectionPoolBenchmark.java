@@ -0,0 +1,53 @@
+package com.unicon.api.commons.db.dao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>selectById</code> con 16 hilos sobre 4 conexiones: POOLED de mybatis (<code>h2</code>) contra el pool propio
+ * (<code>h2-pool</code>). El modo <code>SampleTime</code> reporta los percentiles, que incluyen la espera por una
+ * conexion libre.
+ *
+ * @author acrispin
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@Threads(16)
+@State(Scope.Benchmark)
+public class ConnectionPoolBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final int POOL_SIZE = 4;
+
+    @Param({"h2", "h2-pool"})
+    public String environment;
+
+    private BenchItemDao dao;
+
+    @Setup
+    public void setup() {
+        dao = new BenchItemDao(H2Environment.create("pool-" + environment, POOL_SIZE, environment));
+        dao.insertBatch(H2Environment.items(1, ROWS));
+    }
+
+    @Benchmark
+    public BenchItem selectById() {
+        return dao.selectById(ThreadLocalRandom.current().nextInt(ROWS) + 1);
+    }
+}
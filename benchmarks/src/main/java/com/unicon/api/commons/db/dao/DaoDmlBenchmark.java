@@ -0,0 +1,77 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.ECommitPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritura de <code>rows</code> filas con un <code>insert</code> y un commit por fila, con un <code>insert</code>
+ * por fila dentro de una unidad de trabajo (una conexion y un commit) y con un solo <code>insertBatch</code>. Cada invocacion usa ids nuevos; la tabla se vacia en cada iteracion.
+ *
+ * @author acrispin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class DaoDmlBenchmark {
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    private BenchItemDao dao;
+    private int nextId;
+
+    @Setup
+    public void setup() {
+        dao = new BenchItemDao(H2Environment.create("dml", 4));
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() {
+        dao.deleteBatch(dao.selectAll());
+        nextId = 1;
+    }
+
+    private List<BenchItem> nextItems() {
+        List<BenchItem> items = H2Environment.items(nextId, rows);
+        nextId += rows;
+        return items;
+    }
+
+    @Benchmark
+    public int singleInserts() {
+        int inserted = 0;
+        for (BenchItem item : nextItems()) {
+            if (dao.insert(item)) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    public int unitOfWorkInserts() {
+        return dao.inTransaction(this::singleInserts);
+    }
+
+    @Benchmark
+    public int[] batchInsert() {
+        return dao.insertBatch(nextItems(), rows, ECommitPolicy.PER_CALL);
+    }
+}
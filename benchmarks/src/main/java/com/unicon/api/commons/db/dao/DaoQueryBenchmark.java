@@ -0,0 +1,79 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.columnar.ColumnarResult;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas de {@link DaoBase} completas (sesion, despacho, JDBC y mapeo) sobre H2 en memoria:
+ * <code>selectById</code> con un id al azar, y <code>selectList</code> y <code>columnarList</code> con distintos
+ * tamaños de resultado.
+ *
+ * @author acrispin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class DaoQueryBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private BenchItemDao dao;
+
+    /**
+     * Tamaño del resultado de <code>selectList</code>, solo aplica a ese benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class ListSize {
+        @Param({"1", "10", "100", "1000"})
+        public int size;
+
+        private Map<String, Object> params;
+
+        @Setup
+        public void setup() {
+            params = Collections.singletonMap("size", size);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        SqlSessionFactory ssf = H2Environment.create("query", 4);
+        dao = new BenchItemDao(ssf);
+        dao.insertBatch(H2Environment.items(1, ROWS));
+    }
+
+    @Benchmark
+    public BenchItem selectById() {
+        return dao.selectById(ThreadLocalRandom.current().nextInt(ROWS) + 1);
+    }
+
+    @Benchmark
+    public List<BenchItem> selectList(ListSize list) {
+        return dao.selectList(list.params);
+    }
+
+    @Benchmark
+    public ColumnarResult columnarList(ListSize list) {
+        return dao.columnarList(list.params);
+    }
+}
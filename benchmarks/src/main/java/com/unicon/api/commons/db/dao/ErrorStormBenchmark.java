@@ -0,0 +1,64 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tormenta de errores: 4 hilos insertan sin parar una fila con llave duplicada, de modo que cada llamada falla y se
+ * registra en el log con su stack trace. <code>sync</code> usa el <code>log4j2.xml</code> de la libreria (consola y
+ * archivo sincronos, con ubicacion) y <code>async</code> el perfil <code>log4j2-async.xml</code>. Los logs quedan en
+ * <code>./logs</code> y la consola del fork se debe redirigir, por ejemplo con <code>-o</code>.
+ *
+ * @author acrispin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ErrorStormBenchmark {
+
+    private static final BenchItem DUPLICATE = new BenchItem(1, "DUPLICADO", BigDecimal.ONE);
+
+    private BenchItemDao dao;
+
+    @Setup
+    public void setup() {
+        dao = new BenchItemDao(H2Environment.create("error-storm", 4));
+        dao.insert(DUPLICATE);
+    }
+
+    private boolean insertDuplicate() {
+        try {
+            return dao.insert(DUPLICATE);
+        } catch (PersistenceException ex) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2.xml")
+    public boolean sync() {
+        return insertDuplicate();
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-async.xml")
+    public boolean async() {
+        return insertDuplicate();
+    }
+}
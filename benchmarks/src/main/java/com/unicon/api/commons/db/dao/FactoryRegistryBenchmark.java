@@ -0,0 +1,72 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura concurrente de <code>SqlSessionFactory</code> con 64 hilos: monitor de clase sobre un
+ * <code>HashMap</code> (implementacion anterior de <code>DaoApplication</code>) contra
+ * {@link SqlSessionFactoryRegistry}. Los factories se construyen en el setup, solo se mide la consulta.
+ *
+ * @author acrispin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(64)
+@State(Scope.Benchmark)
+public class FactoryRegistryBenchmark {
+
+    private static final String[] MARCAS = {"1", "2", "3", "4"};
+
+    private final Map<String, SqlSessionFactory> synchronizedMap = new HashMap<>();
+    private SqlSessionFactoryRegistry registry;
+
+    @Setup
+    public void setup() {
+        registry = new SqlSessionFactoryRegistry((type, idMarca) -> new DefaultSqlSessionFactory(new Configuration()));
+        for (String marca : MARCAS) {
+            synchronizedGet(marca);
+            registry.get(EConnectionType.SDC, marca);
+        }
+    }
+
+    private SqlSessionFactory synchronizedGet(String idMarca) {
+        synchronized (FactoryRegistryBenchmark.class) {
+            if (!synchronizedMap.containsKey(idMarca)) {
+                synchronizedMap.put(idMarca, new DefaultSqlSessionFactory(new Configuration()));
+            }
+            return synchronizedMap.get(idMarca);
+        }
+    }
+
+    @Benchmark
+    public SqlSessionFactory synchronizedLookup() {
+        return synchronizedGet(MARCAS[ThreadLocalRandom.current().nextInt(MARCAS.length)]);
+    }
+
+    @Benchmark
+    public SqlSessionFactory registryLookup() {
+        return registry.get(EConnectionType.SDC, MARCAS[ThreadLocalRandom.current().nextInt(MARCAS.length)]);
+    }
+}
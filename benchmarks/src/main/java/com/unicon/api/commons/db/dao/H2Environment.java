@@ -0,0 +1,78 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Crea los environments de <code>sqlMapConfig-h2.xml</code>: una base H2 en memoria en modo SQL Server, con POOLED
+ * (<code>h2</code>) o con el pool propio sin y con cache de statements (<code>h2-pool</code>,
+ * <code>h2-pool-cache</code>), y el mismo plugin que registra <code>DaoApplication</code>. No requiere red ni JNDI.
+ *
+ * @author acrispin
+ */
+final class H2Environment {
+
+    private static final String RESOURCE_FILE = "sqlMapConfig-h2.xml";
+    private static final String ENVIRONMENT = "h2";
+
+    private H2Environment() {
+    }
+
+    /**
+     * @param database nombre de la base en memoria
+     * @param poolSize conexiones maximas del pool
+     * @return factory con la tabla <code>bench_item</code> vacia
+     */
+    static SqlSessionFactory create(String database, int poolSize) {
+        return create(database, poolSize, ENVIRONMENT);
+    }
+
+    /**
+     * @param database    nombre de la base en memoria
+     * @param poolSize    conexiones maximas del pool
+     * @param environment <code>h2</code> (POOLED de mybatis), <code>h2-pool</code> (pool propio) o
+     *                    <code>h2-pool-cache</code> (pool propio con cache de statements)
+     * @return factory con la tabla <code>bench_item</code> vacia
+     */
+    static SqlSessionFactory create(String database, int poolSize, String environment) {
+        Properties props = new Properties();
+        props.setProperty("database", database);
+        props.setProperty("poolSize", String.valueOf(poolSize));
+        SqlSessionFactory ssf;
+        try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE_FILE)) {
+            ssf = new SqlSessionFactoryBuilder().build(inputStream, environment, props);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        StatementInterceptor.register(ssf.getConfiguration());
+        try (SqlSession session = ssf.openSession(true)) {
+            BenchItemMapper mapper = session.getMapper(BenchItemMapper.class);
+            mapper.createTable();
+            mapper.truncate();
+        }
+        return ssf;
+    }
+
+    /**
+     * @param first primer id
+     * @param count cantidad de filas
+     * @return filas con ids consecutivos
+     */
+    static List<BenchItem> items(int first, int count) {
+        List<BenchItem> items = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            items.add(new BenchItem(i, i % 2 == 0 ? "PAR" : "IMPAR", BigDecimal.valueOf(i, 2)));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,105 @@
+package com.unicon.api.commons.db.dao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el despacho reflexivo que usaba <code>DaoGeneric</code> (<code>getDeclaredMethod</code> sobre el proxy
+ * y <code>Method.invoke</code> en cada llamada) contra {@link MapperDispatcher}.
+ * <p>
+ * El mapper es un proxy dinamico de JDK, igual que los que crea mybatis, con un handler que no hace trabajo
+ * para que solo se mida el costo del despacho. Ejecutar con <code>-prof gc</code> para ver la asignacion por llamada.
+ *
+ * @author acrispin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MapperDispatchBenchmark {
+
+    public interface BenchMapper {
+        Object selectById(Integer id);
+
+        List<Object> selectList(Map<String, Object> params);
+
+        List<Object> selectList(Integer id, String code);
+    }
+
+    private BenchMapper mapper;
+    private Object[] idArgs;
+    private Object[] listArgs;
+    private Map<String, Object> params;
+
+    @Setup
+    public void setup() {
+        Object row = new Object();
+        List<Object> rows = Collections.singletonList(row);
+        mapper = (BenchMapper) Proxy.newProxyInstance(BenchMapper.class.getClassLoader(),
+                new Class<?>[]{BenchMapper.class},
+                (proxy, method, args) -> method.getReturnType() == List.class ? rows : row);
+        idArgs = new Object[]{42};
+        listArgs = new Object[]{42, "A"};
+        params = new HashMap<>();
+        params.put("id", 42);
+    }
+
+    private static Class<?>[] getParamsClass(Object... params) {
+        Class<?>[] paramsClass = new Class[params.length];
+        for (int i = 0; i < params.length; i++) {
+            paramsClass[i] = params[i].getClass();
+        }
+        return paramsClass;
+    }
+
+    @Benchmark
+    public Object reflectiveSelectById() throws Exception {
+        Method method = mapper.getClass().getDeclaredMethod("selectById", getParamsClass(idArgs));
+        return method.invoke(mapper, idArgs);
+    }
+
+    @Benchmark
+    public Object dispatcherSelectById() throws Exception {
+        return MapperDispatcher.resolve(BenchMapper.class, "selectById", idArgs).invoke(mapper, idArgs);
+    }
+
+    @Benchmark
+    public Object reflectiveSelectListMap() throws Exception {
+        Method method = mapper.getClass().getDeclaredMethod("selectList", Map.class);
+        return method.invoke(mapper, params);
+    }
+
+    @Benchmark
+    public Object dispatcherSelectListMap() throws Exception {
+        return MapperDispatcher.resolve(BenchMapper.class, "selectList", Map.class).invokeSingle(mapper, params);
+    }
+
+    @Benchmark
+    public Object reflectiveSelectListVarargs() throws Exception {
+        Method method = mapper.getClass().getDeclaredMethod("selectList", getParamsClass(listArgs));
+        return method.invoke(mapper, listArgs);
+    }
+
+    @Benchmark
+    public Object dispatcherSelectListVarargs() throws Exception {
+        return MapperDispatcher.resolve(BenchMapper.class, "selectList", listArgs).invoke(mapper, listArgs);
+    }
+}
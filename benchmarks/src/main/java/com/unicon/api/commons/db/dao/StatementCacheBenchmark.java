@@ -0,0 +1,50 @@
+package com.unicon.api.commons.db.dao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>selectById</code> sobre el pool propio sin (<code>h2-pool</code>) y con cache de statements
+ * (<code>h2-pool-cache</code>). En H2 en memoria preparar solo cuesta el parseo; contra SQL Server ademas se ahorra
+ * el viaje de preparacion.
+ *
+ * @author acrispin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class StatementCacheBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"h2-pool", "h2-pool-cache"})
+    public String environment;
+
+    private BenchItemDao dao;
+
+    @Setup
+    public void setup() {
+        dao = new BenchItemDao(H2Environment.create("statements-" + environment, 4, environment));
+        dao.insertBatch(H2Environment.items(1, ROWS));
+    }
+
+    @Benchmark
+    public BenchItem selectById() {
+        return dao.selectById(ThreadLocalRandom.current().nextInt(ROWS) + 1);
+    }
+}
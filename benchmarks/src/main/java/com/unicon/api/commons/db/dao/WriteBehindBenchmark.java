@@ -0,0 +1,83 @@
+package com.unicon.api.commons.db.dao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia vista por el llamador de un <code>update</code> con commit contra <code>updateBehind</code>, con 4 hilos
+ * sobre 4 conexiones y 1000 llaves, de modo que parte de las actualizaciones se combinan en el buffer. El modo
+ * <code>SampleTime</code> incluye la espera con el buffer lleno.
+ *
+ * @author acrispin
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@Threads(4)
+@State(Scope.Benchmark)
+public class WriteBehindBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private BenchItemDao dao;
+    private BenchItemDao behind;
+
+    @Setup
+    public void setup() {
+        dao = new BenchItemDao(H2Environment.create("write-behind", 4));
+        dao.insertBatch(H2Environment.items(1, ROWS));
+        behind = new BenchItemDao(H2Environment.create("write-behind-buffer", 4)) {
+            @Override
+            protected int getWriteBehindCapacity() {
+                return 10_000;
+            }
+
+            @Override
+            protected long getWriteBehindFlushMillis() {
+                return 100;
+            }
+
+            @Override
+            protected Object getEntityKey(BenchItem obj) {
+                return obj.getId();
+            }
+        };
+        behind.insertBatch(H2Environment.items(1, ROWS));
+    }
+
+    @TearDown
+    public void tearDown() {
+        behind.flushWriteBehind(30000);
+    }
+
+    private static BenchItem nextItem() {
+        int id = ThreadLocalRandom.current().nextInt(ROWS) + 1;
+        return new BenchItem(id, "CAMBIO", BigDecimal.valueOf(id, 2));
+    }
+
+    @Benchmark
+    public boolean update() {
+        return dao.update(nextItem());
+    }
+
+    @Benchmark
+    public boolean updateBehind() {
+        return behind.updateBehind(nextItem());
+    }
+}
@@ -0,0 +1,53 @@
+package com.unicon.api.commons.db.dao;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Llamada de un DAO que se ejecuta en un executor y se completa como {@link CompletableFuture}.
+ * <p>
+ * La llamada abre un {@link StatementContext} con una {@link StatementContext.Cancellation}; al cancelar el future
+ * se cancela el <code>Statement</code> que se este ejecutando y los siguientes ya no se ejecutan. Si se cancela
+ * antes de empezar, la llamada no llega a abrir la sesion. La llamada se ejecuta con el {@link Deadline} del hilo
+ * que la crea.
+ *
+ * @author acrispin
+ * @param <R> tipo del resultado
+ */
+final class AsyncCall<R> extends CompletableFuture<R> implements Runnable {
+
+    private final Supplier<R> work;
+    private final StatementContext.Cancellation cancellation = new StatementContext.Cancellation();
+    private final Deadline deadline = Deadline.current();
+
+    AsyncCall(Supplier<R> work) {
+        this.work = work;
+    }
+
+    @Override
+    public void run() {
+        if (isDone()) {
+            return;
+        }
+        try (StatementContext context = StatementContext.open()) {
+            context.cancellation(cancellation);
+            complete(deadline == null ? work.get() : Deadline.execute(deadline, work));
+        } catch (Throwable ex) {
+            completeExceptionally(ex);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            try {
+                cancellation.cancel();
+            } catch (SQLException ex) {
+                // el statement pudo terminar mientras se cancelaba, el future ya quedo cancelado
+            }
+        }
+        return cancelled;
+    }
+}
@@ -0,0 +1,236 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.ECircuitState;
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuito de un tipo de conexion e idMarca, compartido por todos sus DAO.
+ * <p>
+ * Cerrado, cuenta las llamadas consecutivas que fallan por la conexion o por timeout: sin conexion del pool, servidor
+ * caido, red o <code>SQLTimeoutException</code>. Al llegar al umbral se abre y durante el tiempo de apertura las
+ * llamadas de la marca se rechazan con {@link CircuitOpenException} sin esperar el pool ni el timeout de la
+ * sentencia, de modo que los hilos no se acumulan en una base caida. Vencido ese tiempo pasa a
+ * <code>HALF_OPEN</code> y deja pasar una sola llamada de prueba: si termina bien se cierra, si falla por la
+ * conexion se abre otra vez. Los demas errores (sintaxis, llaves duplicadas) muestran que la base responde y
+ * reinician la cuenta. No cuentan una llamada que no se ejecuto porque su {@link Deadline} ya habia vencido ni una
+ * llamada que el llamador cancelo (future cancelado o marca sin respuesta en <code>scatterQuery</code>).
+ *
+ * @author acrispin
+ */
+final class CircuitBreaker {
+
+    private static final Logger LOGGER = LogManager.getLogger(CircuitBreaker.class);
+    static final int FAILURE_THRESHOLD = DaoSettings.getInt(DaoSettings.CIRCUIT_FAILURES, 5);
+    static final long OPEN_MILLIS = DaoSettings.getLong(DaoSettings.CIRCUIT_OPEN, 30000L);
+    private static final Map<EConnectionType, ConcurrentMap<String, CircuitBreaker>> BREAKERS = new EnumMap<>(EConnectionType.class);
+    private static volatile boolean enabled = DaoSettings.getBoolean(DaoSettings.CIRCUIT_ENABLED, true);
+
+    static {
+        for (EConnectionType type : EConnectionType.values()) {
+            BREAKERS.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    private final EConnectionType type;
+    private final String idMarca;
+    private final String name;
+    private final AtomicReference<ECircuitState> state = new AtomicReference<>(ECircuitState.CLOSED);
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile long openUntil;
+
+    private CircuitBreaker(EConnectionType type, String idMarca) {
+        this.type = type;
+        this.idMarca = idMarca;
+        this.name = idMarca.isEmpty() ? type.name() : type.name() + "-" + idMarca;
+    }
+
+    /**
+     * @param type    tipo de conexion
+     * @param idMarca marca, se ignora en <code>SINGLE</code>
+     * @return circuito de la llave
+     */
+    static CircuitBreaker get(EConnectionType type, String idMarca) {
+        String key = type == EConnectionType.SINGLE || idMarca == null ? "" : idMarca;
+        ConcurrentMap<String, CircuitBreaker> byMarca = BREAKERS.get(type);
+        CircuitBreaker breaker = byMarca.get(key);
+        if (breaker == null) {
+            breaker = byMarca.computeIfAbsent(key, k -> new CircuitBreaker(type, k));
+        }
+        return breaker;
+    }
+
+    static void setEnabled(boolean value) {
+        enabled = value;
+        LOGGER.info("Circuitos por marca {}", value ? "activados" : "desactivados");
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    ECircuitState getState() {
+        return state.get();
+    }
+
+    /**
+     * @return <code>CLOSED</code> si la llamada pasa, <code>HALF_OPEN</code> si pasa como la prueba del circuito
+     * (se debe informar su resultado) u <code>OPEN</code> si se debe rechazar
+     */
+    ECircuitState acquire() {
+        ECircuitState current = state.get();
+        if (current == ECircuitState.CLOSED) {
+            return current;
+        }
+        if (current == ECircuitState.OPEN) {
+            if (System.nanoTime() - openUntil < 0) {
+                return current;
+            }
+            transition(ECircuitState.OPEN, ECircuitState.HALF_OPEN, null);
+        }
+        if (state.get() == ECircuitState.HALF_OPEN && probing.compareAndSet(false, true)) {
+            if (state.get() == ECircuitState.HALF_OPEN) {
+                return ECircuitState.HALF_OPEN;
+            }
+            probing.set(false);
+        }
+        return state.get() == ECircuitState.CLOSED ? ECircuitState.CLOSED : ECircuitState.OPEN;
+    }
+
+    /**
+     * @return excepcion para una llamada rechazada por {@link #acquire()}
+     */
+    CircuitOpenException rejection() {
+        long retryAfter = Math.max(0L, TimeUnit.NANOSECONDS.toMillis(openUntil - System.nanoTime()));
+        return new CircuitOpenException(state.get() == ECircuitState.OPEN
+                ? String.format("Circuito %s abierto, siguiente prueba en %d ms", name, retryAfter)
+                : String.format("Circuito %s en prueba, la llamada se rechaza hasta que termine", name),
+                state.get() == ECircuitState.OPEN ? retryAfter : 0L);
+    }
+
+    /**
+     * @param permit resultado de {@link #acquire()} para la llamada
+     */
+    void onSuccess(ECircuitState permit) {
+        if (permit == ECircuitState.HALF_OPEN) {
+            failures.set(0);
+            transition(ECircuitState.HALF_OPEN, ECircuitState.CLOSED, null);
+            probing.set(false);
+        } else if (failures.get() != 0) {
+            failures.set(0);
+        }
+    }
+
+    /**
+     * @param permit     resultado de {@link #acquire()} para la llamada
+     * @param error      error de la llamada
+     * @param threshold  fallas consecutivas de conexion o timeout que abren el circuito
+     * @param openMillis tiempo que el circuito queda abierto antes de la prueba
+     */
+    void onFailure(ECircuitState permit, Throwable error, int threshold, long openMillis) {
+        if (isDeadlineExceeded(error) || isCancelled()) {
+            if (permit == ECircuitState.HALF_OPEN) {
+                probing.set(false);
+            }
+            return;
+        }
+        if (!isConnectionFailure(error)) {
+            onSuccess(permit);
+            return;
+        }
+        if (permit == ECircuitState.HALF_OPEN) {
+            openUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(openMillis);
+            transition(ECircuitState.HALF_OPEN, ECircuitState.OPEN, error);
+            probing.set(false);
+        } else if (failures.incrementAndGet() >= threshold && state.get() == ECircuitState.CLOSED) {
+            openUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(openMillis);
+            if (transition(ECircuitState.CLOSED, ECircuitState.OPEN, error)) {
+                failures.set(0);
+            }
+        }
+    }
+
+    private boolean transition(ECircuitState from, ECircuitState to, Throwable error) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        if (to == ECircuitState.OPEN) {
+            LOGGER.warn("Circuito {} abierto por {} ms, las llamadas se rechazan: {}", name,
+                    TimeUnit.NANOSECONDS.toMillis(openUntil - System.nanoTime()), messageOf(error));
+        } else if (to == ECircuitState.CLOSED) {
+            LOGGER.info("Circuito {} cerrado, la base de datos responde otra vez", name);
+        } else {
+            LOGGER.info("Circuito {} en prueba", name);
+        }
+        DaoMetrics.recordCircuitTransition(type, idMarca, from, to);
+        return true;
+    }
+
+    /**
+     * @return true si el error, o alguna de sus causas, es una falla de conexion o de timeout
+     */
+    static boolean isConnectionFailure(Throwable error) {
+        int depth = 0;
+        for (Throwable cause = error; cause != null && depth < 16; cause = cause.getCause(), depth++) {
+            if (cause instanceof SQLTransientConnectionException
+                    || cause instanceof SQLNonTransientConnectionException
+                    || cause instanceof SQLTimeoutException
+                    || cause instanceof SocketTimeoutException
+                    || cause instanceof ConnectException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                if (sqlState != null && (sqlState.startsWith("08") || sqlState.startsWith("HYT"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDeadlineExceeded(Throwable error) {
+        int depth = 0;
+        for (Throwable cause = error; cause != null && depth < 16; cause = cause.getCause(), depth++) {
+            if (cause instanceof DeadlineExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true si la llamada en curso del hilo fue cancelada, su error (por ejemplo <code>HY008</code>) no
+     * dice nada de la base
+     */
+    private static boolean isCancelled() {
+        StatementContext context = StatementContext.current();
+        return context != null && context.getCancellation() != null && context.getCancellation().isCancelled();
+    }
+
+    private static String messageOf(Throwable error) {
+        int depth = 0;
+        Throwable root = error;
+        while (root != null && root.getCause() != null && root.getCause() != root && depth++ < 16) {
+            root = root.getCause();
+        }
+        return root == null ? "" : String.valueOf(root.getMessage());
+    }
+}
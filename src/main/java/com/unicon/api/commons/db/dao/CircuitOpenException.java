@@ -0,0 +1,27 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+
+/**
+ * Llamada rechazada sin tomar una conexion porque el circuito de su tipo de conexion e idMarca esta abierto.
+ *
+ * @author acrispin
+ */
+public class CircuitOpenException extends PersistenceException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    public CircuitOpenException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return tiempo hasta la siguiente llamada de prueba, 0 si hay una prueba en curso
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
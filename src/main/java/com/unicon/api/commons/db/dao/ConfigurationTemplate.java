@@ -0,0 +1,198 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.builder.xml.XMLMapperEntityResolver;
+import org.apache.ibatis.datasource.DataSourceFactory;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.parsing.XPathParser;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Configuracion de mybatis leida una sola vez desde <code>sqlMapConfig.xml</code> y compartida por todos los
+ * environments.
+ * <p>
+ * El XML y las anotaciones de los mappers se procesan una vez en una {@link Configuration} sin environment; cada
+ * environment (<code>single</code>, <code>1-sdc</code>, <code>pooled</code>, ...) se arma despues desde el mismo
+ * documento y solo crea su <code>TransactionFactory</code> y su <code>DataSource</code>.
+ *
+ * @author acrispin
+ */
+final class ConfigurationTemplate {
+
+    private static final String TEMPLATE_ENVIRONMENT = "__template__";
+    private static volatile ConfigurationTemplate instance;
+
+    private final Configuration configuration;
+    private final Document document;
+    private final List<String> environmentIds;
+
+    private ConfigurationTemplate(byte[] xml) {
+        this.configuration = new XMLConfigBuilder(new ByteArrayInputStream(xml), TEMPLATE_ENVIRONMENT).parse();
+        StatementInterceptor.register(configuration);
+        this.document = createDocument(xml);
+        List<String> ids = new ArrayList<>();
+        for (XNode child : environmentsNode(null).getChildren()) {
+            ids.add(child.getStringAttribute("id"));
+        }
+        this.environmentIds = Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * @param resource archivo de configuracion en el classpath
+     * @return plantilla del archivo, se lee en el primer llamado
+     * @throws IOException si no se puede leer el archivo
+     */
+    static ConfigurationTemplate getInstance(String resource) throws IOException {
+        ConfigurationTemplate template = instance;
+        if (template == null) {
+            synchronized (ConfigurationTemplate.class) {
+                template = instance;
+                if (template == null) {
+                    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+                        template = new ConfigurationTemplate(readAll(inputStream));
+                    }
+                    instance = template;
+                }
+            }
+        }
+        return template;
+    }
+
+    /**
+     * @return configuracion compartida, sin environment
+     */
+    Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * @return ids de los environments declarados en el archivo, en el orden en que aparecen
+     */
+    List<String> getEnvironmentIds() {
+        return environmentIds;
+    }
+
+    /**
+     * Crea el factory de un environment sobre la configuracion compartida.
+     *
+     * @param environmentId id del environment en el archivo
+     * @param properties    variables para reemplazar <code>${...}</code> en el environment, puede ser null
+     * @return factory del environment
+     */
+    EnvironmentSqlSessionFactory newSqlSessionFactory(String environmentId, Properties properties) {
+        return new EnvironmentSqlSessionFactory(configuration, buildEnvironment(environmentId, properties));
+    }
+
+    private synchronized Environment buildEnvironment(String environmentId, Properties properties) {
+        for (XNode child : environmentsNode(properties).getChildren()) {
+            if (environmentId.equals(child.getStringAttribute("id"))) {
+                try {
+                    TransactionFactory txFactory = (TransactionFactory) newInstance(child.evalNode("transactionManager"));
+                    DataSourceFactory dsFactory = (DataSourceFactory) newInstance(child.evalNode("dataSource"));
+                    return new Environment.Builder(environmentId)
+                            .transactionFactory(txFactory)
+                            .dataSource(dsFactory.getDataSource())
+                            .build();
+                } catch (ReflectiveOperationException ex) {
+                    throw new BuilderException(String.format("Error creando el environment '%s'", environmentId), ex);
+                }
+            }
+        }
+        throw new BuilderException(String.format("Environment '%s' no existe en la configuracion", environmentId));
+    }
+
+    private Object newInstance(XNode context) throws ReflectiveOperationException {
+        if (context == null) {
+            throw new BuilderException("Environment sin transactionManager o dataSource");
+        }
+        Object factory = configuration.getTypeAliasRegistry()
+                .resolveAlias(context.getStringAttribute("type"))
+                .getDeclaredConstructor().newInstance();
+        Properties props = context.getChildrenAsProperties();
+        if (factory instanceof TransactionFactory) {
+            ((TransactionFactory) factory).setProperties(props);
+        } else {
+            ((DataSourceFactory) factory).setProperties(props);
+        }
+        return factory;
+    }
+
+    private XNode environmentsNode(Properties properties) {
+        Properties variables = new Properties();
+        if (configuration.getVariables() != null) {
+            variables.putAll(configuration.getVariables());
+        }
+        if (properties != null) {
+            variables.putAll(properties);
+        }
+        XNode node = new XPathParser(document, false, variables, new XMLMapperEntityResolver())
+                .evalNode("/configuration/environments");
+        if (node == null) {
+            throw new BuilderException("La configuracion no tiene environments");
+        }
+        return node;
+    }
+
+    private static Document createDocument(byte[] xml) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setValidating(true);
+            factory.setNamespaceAware(false);
+            factory.setIgnoringComments(true);
+            factory.setIgnoringElementContentWhitespace(false);
+            factory.setCoalescing(false);
+            factory.setExpandEntityReferences(true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            builder.setEntityResolver(new XMLMapperEntityResolver());
+            builder.setErrorHandler(new ErrorHandler() {
+                @Override
+                public void error(SAXParseException exception) throws SAXParseException {
+                    throw exception;
+                }
+
+                @Override
+                public void fatalError(SAXParseException exception) throws SAXParseException {
+                    throw exception;
+                }
+
+                @Override
+                public void warning(SAXParseException exception) {
+                    // sin accion, igual que mybatis
+                }
+            });
+            return builder.parse(new ByteArrayInputStream(xml));
+        } catch (Exception ex) {
+            throw new BuilderException("Error leyendo la configuracion de mybatis", ex);
+        }
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,7 +1,11 @@
 package com.unicon.api.commons.db.dao;
 
+import com.unicon.api.commons.db.dao.enums.ECircuitState;
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import com.unicon.api.commons.db.dao.warmup.WarmUpReport;
 import org.apache.ibatis.exceptions.PersistenceException;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
@@ -9,10 +13,16 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 
 /**
  *
@@ -26,9 +36,12 @@ public abstract class DaoApplication<T, U> extends DaoBase<T, U> {
     private static final String RESOURCE_FILE = "sqlMapConfig.xml";
     private static final String ENVIROMENT_SINGLE = "single";
     private static final String ENVIROMENT_DIRECT = LOGGER.isTraceEnabled() ? "junit" : "pooled";
-    private static SqlSessionFactory sqlSessionFactory;
-    private static final Map<String, SqlSessionFactory> SQL_SESSION_FACTORY_MAP_SDC = new HashMap<>();
-    private static final Map<String, SqlSessionFactory> SQL_SESSION_FACTORY_MAP_CMD = new HashMap<>();
+    private static final boolean SHARED_CONFIGURATION = DaoSettings.getBoolean(DaoSettings.SHARED_CONFIGURATION, false);
+    private static final String REPLICA_SUFFIX = "-ro";
+    private static final SqlSessionFactoryRegistry REGISTRY = new SqlSessionFactoryRegistry(DaoApplication::init);
+    private static final SqlSessionFactoryRegistry REPLICAS = new SqlSessionFactoryRegistry(DaoApplication::initReplica);
+    private static volatile Set<String> environments;
+    private static volatile WarmUpReport warmUpReport;
 
 //    protected DaoApplication() {
 //        throw new UnsupportedOperationException();
@@ -42,36 +55,114 @@ public abstract class DaoApplication<T, U> extends DaoBase<T, U> {
     }
 
     @Override
-    public synchronized SqlSessionFactory getSqlSessionFactoryInnerSingle() {
-        if (sqlSessionFactory == null) {
-            sqlSessionFactory  = init();
-        }
-        return sqlSessionFactory;
+    public SqlSessionFactory getSqlSessionFactoryInnerSingle() {
+        return REGISTRY.get(EConnectionType.SINGLE, null);
     }
 
     @Override
-    public synchronized SqlSessionFactory getSqlSessionFactoryInnerSdc(String idMarca) {
-        if (!SQL_SESSION_FACTORY_MAP_SDC.containsKey(idMarca)) {
-            SQL_SESSION_FACTORY_MAP_SDC.put(idMarca, init(idMarca, "sdc"));
+    public SqlSessionFactory getSqlSessionFactoryInnerSdc(String idMarca) {
+        return REGISTRY.get(EConnectionType.SDC, idMarca);
+    }
+
+    @Override
+    public SqlSessionFactory getSqlSessionFactoryInnerCmd(String idMarca) {
+        return REGISTRY.get(EConnectionType.CMD, idMarca);
+    }
+
+    /**
+     * Replica de solo lectura de la marca: el environment <code>{idMarca}-sdc-ro</code>, <code>{idMarca}-cmd-ro</code>
+     * o <code>single-ro</code> de <code>sqlMapConfig.xml</code>. Si no esta declarado no hay replica.
+     */
+    @Override
+    protected SqlSessionFactory getSqlSessionFactoryInnerReplica(String idMarca) {
+        String marca = getConnectionType() == EConnectionType.SINGLE ? null : idMarca;
+        if (!getEnvironmentIds().contains(environmentId(getConnectionType(), marca) + REPLICA_SUFFIX)) {
+            return null;
         }
-        return SQL_SESSION_FACTORY_MAP_SDC.get(idMarca);
+        return REPLICAS.get(getConnectionType(), marca);
     }
 
+    /**
+     * Obtiene las marcas de los environments <code>{idMarca}-sdc</code> o <code>{idMarca}-cmd</code> declarados en
+     * <code>sqlMapConfig.xml</code>, segun el tipo de conexion del DAO.
+     */
     @Override
-    public synchronized SqlSessionFactory getSqlSessionFactoryInnerCmd(String idMarca) {
-        if (!SQL_SESSION_FACTORY_MAP_CMD.containsKey(idMarca)) {
-            SQL_SESSION_FACTORY_MAP_CMD.put(idMarca, init(idMarca, "cmd"));
+    protected Collection<String> getIdMarcas() {
+        if (getConnectionType() == EConnectionType.SINGLE) {
+            return super.getIdMarcas();
+        }
+        List<String> marcas = new ArrayList<>();
+        try {
+            for (String environment : ConfigurationTemplate.getInstance(RESOURCE_FILE).getEnvironmentIds()) {
+                String marca = idMarcaOf(environment, getConnectionType());
+                if (marca != null) {
+                    marcas.add(marca);
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.error(ex.getMessage(), ex);
+            throw new PersistenceException(ex.getMessage(), ex);
+        }
+        return Collections.unmodifiableList(marcas);
+    }
+
+    private static Set<String> getEnvironmentIds() {
+        Set<String> ids = environments;
+        if (ids == null) {
+            try {
+                ids = Collections.unmodifiableSet(new HashSet<>(ConfigurationTemplate.getInstance(RESOURCE_FILE).getEnvironmentIds()));
+            } catch (IOException ex) {
+                LOGGER.error(ex.getMessage(), ex);
+                throw new PersistenceException(ex.getMessage(), ex);
+            }
+            environments = ids;
+        }
+        return ids;
+    }
+
+    private static String environmentId(EConnectionType type, String idMarca) {
+        switch (type) {
+            case SDC:
+                return String.format("%s-%s", idMarca, "sdc");
+            case CMD:
+                return String.format("%s-%s", idMarca, "cmd");
+            default:
+                return ENVIROMENT_SINGLE;
+        }
+    }
+
+    /**
+     * Las replicas no usan conexion directa: si el environment falla el error llega al DAO, que lee del primario.
+     */
+    private static SqlSessionFactory initReplica(EConnectionType type, String idMarca) {
+        String environment = environmentId(type, idMarca) + REPLICA_SUFFIX;
+        try {
+            SqlSessionFactory ssf = build(environment, null);
+            if (getEnvironment(ssf) == null) {
+                throw new PersistenceException(String.format("Environment de replica '%s' incorrecto", environment));
+            }
+            return ssf;
+        } catch (IOException ex) {
+            throw new PersistenceException(ex.getMessage(), ex);
+        }
+    }
+
+    private static SqlSessionFactory init(EConnectionType type, String idMarca) {
+        switch (type) {
+            case SDC:
+                return init(idMarca, "sdc");
+            case CMD:
+                return init(idMarca, "cmd");
+            default:
+                return init();
         }
-        return SQL_SESSION_FACTORY_MAP_CMD.get(idMarca);
     }
 
     private static SqlSessionFactory init() {
         SqlSessionFactory ssf;
-        try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE_FILE)) {
-            ssf = new SqlSessionFactoryBuilder().build(inputStream, ENVIROMENT_SINGLE);
-            if (ssf == null ||
-                    ssf.getConfiguration() == null ||
-                    ssf.getConfiguration().getEnvironment() == null) {
+        try {
+            ssf = build(ENVIROMENT_SINGLE, null);
+            if (getEnvironment(ssf) == null) {
                 throw new PersistenceException(String.format("Environment '%s' incorrecto, se usara conexion directa", ENVIROMENT_SINGLE));
             }
         } catch (IOException | RuntimeException ex) {
@@ -84,11 +175,9 @@ public abstract class DaoApplication<T, U> extends DaoBase<T, U> {
     private static SqlSessionFactory init(String idMarca, String plataforma) {
         SqlSessionFactory ssf;
         String environment = String.format("%s-%s", idMarca, plataforma);
-        try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE_FILE)) {
-            ssf = new SqlSessionFactoryBuilder().build(inputStream, environment);
-            if (ssf == null ||
-                    ssf.getConfiguration() == null ||
-                    ssf.getConfiguration().getEnvironment() == null) {
+        try {
+            ssf = build(environment, null);
+            if (getEnvironment(ssf) == null) {
                 throw new PersistenceException(String.format("Environment por marca '%s' incorrecto, se usara conexion directa", environment));
             }
         } catch (IOException | RuntimeException ex) {
@@ -127,13 +216,9 @@ public abstract class DaoApplication<T, U> extends DaoBase<T, U> {
             defaultProps.put("url", url);
             defaultProps.put("username", bundle.getString("database.test.username"));
             defaultProps.put("password", bundle.getString("database.test.password"));
-            try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE_FILE)) {
-                ssf = new SqlSessionFactoryBuilder().build(inputStream, ENVIROMENT_DIRECT, defaultProps);
-                if (ssf == null ||
-                        ssf.getConfiguration() == null ||
-                        ssf.getConfiguration().getEnvironment() == null) {
-                    throw new PersistenceException(String.format("Environment '%s' incorrecto para conexion directa", ENVIROMENT_DIRECT));
-                }
+            ssf = build(ENVIROMENT_DIRECT, defaultProps);
+            if (getEnvironment(ssf) == null) {
+                throw new PersistenceException(String.format("Environment '%s' incorrecto para conexion directa", ENVIROMENT_DIRECT));
             }
         } catch (IOException | RuntimeException ex) {
             LOGGER.error(ex.getMessage(), ex);
@@ -171,13 +256,9 @@ public abstract class DaoApplication<T, U> extends DaoBase<T, U> {
             defaultProps.put("url", url);
             defaultProps.put("username", bundle.getString(environment+".database.test.username"));
             defaultProps.put("password", bundle.getString(environment+".database.test.password"));
-            try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE_FILE)) {
-                ssf = new SqlSessionFactoryBuilder().build(inputStream, ENVIROMENT_DIRECT, defaultProps);
-                if (ssf == null ||
-                        ssf.getConfiguration() == null ||
-                        ssf.getConfiguration().getEnvironment() == null) {
-                    throw new PersistenceException(String.format("Environment '%s' incorrecto para conexion directa", ENVIROMENT_DIRECT));
-                }
+            ssf = build(ENVIROMENT_DIRECT, defaultProps);
+            if (getEnvironment(ssf) == null) {
+                throw new PersistenceException(String.format("Environment '%s' incorrecto para conexion directa", ENVIROMENT_DIRECT));
             }
         } catch (IOException | RuntimeException ex) {
             LOGGER.error(ex.getMessage(), ex);
@@ -186,25 +267,172 @@ public abstract class DaoApplication<T, U> extends DaoBase<T, U> {
         return ssf;
     }
 
-    public static synchronized SqlSessionFactory getSqlSessionFactory() {
-        if (sqlSessionFactory == null) {
-            sqlSessionFactory  = init();
+    /**
+     * Crea el factory de un environment. Con <code>dao.configuration.shared=true</code> el XML se procesa una sola
+     * vez y todos los environments comparten la misma configuracion; si no, cada environment lee el archivo completo.
+     */
+    private static SqlSessionFactory build(String environment, Properties props) throws IOException {
+        if (SHARED_CONFIGURATION) {
+            return ConfigurationTemplate.getInstance(RESOURCE_FILE).newSqlSessionFactory(environment, props);
         }
-        return sqlSessionFactory;
+        try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE_FILE)) {
+            SqlSessionFactory ssf = new SqlSessionFactoryBuilder().build(inputStream, environment, props);
+            StatementInterceptor.register(ssf.getConfiguration());
+            return ssf;
+        }
+    }
+
+    /**
+     * @param ssf factory creado por esta clase
+     * @return environment del factory, <code>null</code> si no tiene
+     */
+    static Environment getEnvironment(SqlSessionFactory ssf) {
+        if (ssf instanceof EnvironmentSqlSessionFactory) {
+            return ((EnvironmentSqlSessionFactory) ssf).getEnvironment();
+        }
+        if (ssf == null || ssf.getConfiguration() == null) {
+            return null;
+        }
+        return ssf.getConfiguration().getEnvironment();
+    }
+
+    /**
+     * Ejecuta <code>work</code> en una unidad de trabajo: todas las llamadas de los DAO del tipo de conexion y la marca
+     * indicados, hechas en el hilo actual, usan una sola conexion y se confirman con un solo commit al terminar, o se
+     * revierten si <code>work</code> lanza una excepcion.
+     * <pre>
+     * DaoApplication.inTransaction(EConnectionType.SDC, "1", () -&gt; {
+     *     pedidoDao.insert(pedido);
+     *     detalleDao.insertBatch(detalles);
+     *     return stockDao.update(stock);
+     * });
+     * </pre>
+     *
+     * @param <R>     tipo del resultado
+     * @param type    tipo de conexion
+     * @param idMarca marca, se ignora en <code>SINGLE</code>
+     * @param work    llamadas a los DAO
+     * @return resultado de <code>work</code>, despues del commit
+     */
+    public static <R> R inTransaction(EConnectionType type, String idMarca, Supplier<R> work) {
+        return TransactionScope.execute(REGISTRY.get(type, type == EConnectionType.SINGLE ? null : idMarca), work);
+    }
+
+    /**
+     * Switch de las lecturas en las replicas de solo lectura, por ejemplo para dejar de usarlas si estan atrasadas.
+     * Su valor inicial es <code>dao.replica.enabled</code>.
+     *
+     * @param enabled false para que todas las lecturas vayan al primario
+     */
+    public static void setReplicaReads(boolean enabled) {
+        ReplicaRouter.setEnabled(enabled);
+    }
+
+    public static boolean isReplicaReads() {
+        return ReplicaRouter.isEnabled();
+    }
+
+    /**
+     * Switch de los circuitos por tipo de conexion e idMarca. Su valor inicial es <code>dao.circuit.enabled</code>;
+     * al desactivarlos las llamadas pasan aunque el circuito este abierto.
+     *
+     * @param enabled false para que ninguna llamada pase por los circuitos
+     */
+    public static void setCircuitBreaker(boolean enabled) {
+        CircuitBreaker.setEnabled(enabled);
+    }
+
+    public static boolean isCircuitBreaker() {
+        return CircuitBreaker.isEnabled();
     }
 
-    public static synchronized SqlSessionFactory getSqlSessionFactorySdc(String idMarca) {
-        if (!SQL_SESSION_FACTORY_MAP_SDC.containsKey(idMarca)) {
-            SQL_SESSION_FACTORY_MAP_SDC.put(idMarca, init(idMarca, "sdc"));
+    /**
+     * @param type    tipo de conexion
+     * @param idMarca marca, se ignora en <code>SINGLE</code>
+     * @return estado actual del circuito de la marca
+     */
+    public static ECircuitState getCircuitState(EConnectionType type, String idMarca) {
+        return CircuitBreaker.get(type, idMarca).getState();
+    }
+
+    /**
+     * Calienta todos los environments con <code>dao.warmup.connections</code>, <code>dao.warmup.timeoutMillis</code>
+     * y <code>dao.warmup.threads</code>.
+     *
+     * @return resultado por environment
+     * @see #warmUp(int, long)
+     */
+    public static WarmUpReport warmUp() {
+        return warmUp(DaoSettings.getInt(DaoSettings.WARMUP_CONNECTIONS, 2), DaoSettings.getLong(DaoSettings.WARMUP_TIMEOUT, 60000L));
+    }
+
+    /**
+     * Construye en paralelo todos los environments <code>single</code>, <code>{idMarca}-sdc</code>,
+     * <code>{idMarca}-cmd</code> y sus replicas <code>-ro</code> declarados en <code>sqlMapConfig.xml</code>, abre y
+     * valida <code>connections</code> conexiones en cada uno y enlaza los metodos de sus mappers, para que la primera
+     * peticion de cada marca no pague la lectura del XML, la busqueda JNDI ni la primera conexion. Se llama al iniciar
+     * la aplicacion, antes de recibir trafico; {@link #isWarm()} sirve como chequeo de readiness.
+     *
+     * @param connections   conexiones a abrir y validar por environment
+     * @param timeoutMillis espera maxima por todos los environments
+     * @return resultado por environment, tambien disponible en {@link #getWarmUpReport()}
+     */
+    public static WarmUpReport warmUp(int connections, long timeoutMillis) {
+        List<EnvironmentWarmUp.Target> targets = new ArrayList<>();
+        for (String environment : new TreeSet<>(getEnvironmentIds())) {
+            boolean replica = environment.endsWith(REPLICA_SUFFIX);
+            String primary = replica ? environment.substring(0, environment.length() - REPLICA_SUFFIX.length()) : environment;
+            SqlSessionFactoryRegistry registry = replica ? REPLICAS : REGISTRY;
+            for (EConnectionType type : EConnectionType.values()) {
+                String marca = type == EConnectionType.SINGLE ? null : idMarcaOf(primary, type);
+                if (type == EConnectionType.SINGLE ? primary.equals(ENVIROMENT_SINGLE) : marca != null) {
+                    targets.add(new EnvironmentWarmUp.Target(environment, type, marca, replica, () -> registry.get(type, marca)));
+                }
+            }
         }
-        return SQL_SESSION_FACTORY_MAP_SDC.get(idMarca);
+        WarmUpReport report = EnvironmentWarmUp.run(targets, connections, timeoutMillis,
+                DaoSettings.getInt(DaoSettings.WARMUP_THREADS, 8));
+        warmUpReport = report;
+        return report;
+    }
+
+    /**
+     * @return resultado del ultimo {@link #warmUp()}, <code>null</code> si no se ejecuto
+     */
+    public static WarmUpReport getWarmUpReport() {
+        return warmUpReport;
     }
 
-    public static synchronized SqlSessionFactory getSqlSessionFactoryCmd(String idMarca) {
-        if (!SQL_SESSION_FACTORY_MAP_CMD.containsKey(idMarca)) {
-            SQL_SESSION_FACTORY_MAP_CMD.put(idMarca, init(idMarca, "cmd"));
+    /**
+     * @return true si el ultimo {@link #warmUp()} dejo listos todos los environments primarios
+     */
+    public static boolean isWarm() {
+        WarmUpReport report = warmUpReport;
+        return report != null && report.isReady();
+    }
+
+    /**
+     * @return marca del environment <code>{idMarca}-sdc</code> o <code>{idMarca}-cmd</code> del tipo, <code>null</code>
+     * si el environment es de otro tipo
+     */
+    private static String idMarcaOf(String environment, EConnectionType type) {
+        String suffix = "-" + type.name().toLowerCase();
+        if (environment.endsWith(suffix) && environment.length() > suffix.length()) {
+            return environment.substring(0, environment.length() - suffix.length());
         }
-        return SQL_SESSION_FACTORY_MAP_CMD.get(idMarca);
+        return null;
+    }
+
+    public static SqlSessionFactory getSqlSessionFactory() {
+        return REGISTRY.get(EConnectionType.SINGLE, null);
+    }
+
+    public static SqlSessionFactory getSqlSessionFactorySdc(String idMarca) {
+        return REGISTRY.get(EConnectionType.SDC, idMarca);
+    }
+
+    public static SqlSessionFactory getSqlSessionFactoryCmd(String idMarca) {
+        return REGISTRY.get(EConnectionType.CMD, idMarca);
     }
 
 }
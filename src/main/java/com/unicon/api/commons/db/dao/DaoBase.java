@@ -1,9 +1,30 @@
 package com.unicon.api.commons.db.dao;
 
+import com.unicon.api.commons.db.dao.cache.CacheStats;
+import com.unicon.api.commons.db.dao.columnar.ColumnarResult;
+import com.unicon.api.commons.db.dao.cache.EntityCache;
+import com.unicon.api.commons.db.dao.enums.ECommitPolicy;
+import com.unicon.api.commons.db.dao.enums.EWriteOperation;
+import com.unicon.api.commons.db.dao.page.Page;
+import com.unicon.api.commons.db.dao.page.PageRequest;
+import com.unicon.api.commons.db.dao.page.PageToken;
+import com.unicon.api.commons.db.dao.writebehind.WriteBehindBuffer;
+import com.unicon.api.commons.db.dao.writebehind.WriteBehindStats;
+import com.unicon.api.commons.db.dao.writebehind.WriteBehindTarget;
 import org.apache.ibatis.session.SqlSession;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Clase utilitaria para usar las sentencias DML junto con myBatis
@@ -19,6 +40,40 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
     private static final String SELECT_BY_ID = "selectById";
     private static final String SELECT_LIST = "selectList";
     private static final String SELECT_ALL = "selectAll";
+    private static final String SELECT_PAGE = "selectPage";
+
+    /**
+     * Parametro de <code>selectPage</code> con la cantidad de filas a leer (tamaño de pagina + 1).
+     */
+    public static final String PAGE_SIZE = "pageSize";
+
+    /**
+     * Parametro de <code>selectPage</code> con el primer valor de la llave de la ultima fila leida, null en la primera pagina.
+     */
+    public static final String PAGE_AFTER_KEY = "afterKey";
+
+    /**
+     * Parametro de <code>selectPage</code> con todos los valores de la llave de la ultima fila leida, null en la primera pagina.
+     */
+    public static final String PAGE_AFTER_KEYS = "afterKeys";
+    private static final int FETCH_SIZE = DaoSettings.getInt(DaoSettings.STREAM_FETCH_SIZE, 1000);
+    private static final int BATCH_SIZE = DaoSettings.getInt(DaoSettings.BATCH_SIZE, 500);
+    private static final ECommitPolicy BATCH_COMMIT = DaoSettings.getEnum(DaoSettings.BATCH_COMMIT, ECommitPolicy.PER_CALL);
+    private static final long CACHE_TTL = DaoSettings.getLong(DaoSettings.CACHE_TTL, 300000L);
+    private static final long WRITE_BEHIND_FLUSH = DaoSettings.getLong(DaoSettings.WRITE_BEHIND_FLUSH, 1000L);
+    private static final long WRITE_BEHIND_OFFER = DaoSettings.getLong(DaoSettings.WRITE_BEHIND_OFFER, 100L);
+    private static final ClassValue<ConcurrentMap<String, WriteBehindBuffer<Object>>> WRITE_BEHIND = new ClassValue<ConcurrentMap<String, WriteBehindBuffer<Object>>>() {
+        @Override
+        protected ConcurrentMap<String, WriteBehindBuffer<Object>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    private static final ClassValue<ConcurrentMap<String, EntityCache<Object>>> CACHES = new ClassValue<ConcurrentMap<String, EntityCache<Object>>>() {
+        @Override
+        protected ConcurrentMap<String, EntityCache<Object>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
     /**
      * Obtiene el tipo de la clase que se usa para las operaciones DML de <code>insert</code>, <code>update</code> y los resultados de los <code>select</code>
@@ -27,6 +82,123 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      */
     protected abstract Class<T> getClassType();
 
+    /**
+     * Filas que el driver trae por cada viaje a la base de datos en <code>streamAll</code>, <code>streamList</code>,
+     * <code>forEachAll</code> y <code>forEachList</code>. Por defecto <code>dao.stream.fetchSize</code>.
+     *
+     * @return fetch size, 0 usa el del mapped statement
+     */
+    protected int getFetchSize() {
+        return FETCH_SIZE;
+    }
+
+    /**
+     * Cantidad de sentencias por bloque en <code>insertBatch</code>, <code>updateBatch</code> y <code>deleteBatch</code>.
+     * Por defecto <code>dao.batch.size</code>.
+     *
+     * @return cantidad de sentencias por bloque
+     */
+    protected int getBatchSize() {
+        return BATCH_SIZE;
+    }
+
+    /**
+     * Momento del commit en <code>insertBatch</code>, <code>updateBatch</code> y <code>deleteBatch</code>.
+     * Por defecto <code>dao.batch.commit</code>.
+     *
+     * @return politica de commit
+     */
+    protected ECommitPolicy getBatchCommitPolicy() {
+        return BATCH_COMMIT;
+    }
+
+    /**
+     * Obtiene los valores de la llave de paginacion de una fila, en el mismo orden del <code>ORDER BY</code> de
+     * <code>selectPage</code>. Se debe sobrescribir para usar <code>selectPage</code>.
+     *
+     * @param obj ultima fila de una pagina
+     * @return valores de la llave
+     */
+    protected Object[] getPageKey(T obj) {
+        throw new UnsupportedOperationException(String.format("%s debe sobrescribir getPageKey para usar selectPage", getClass().getName()));
+    }
+
+    /**
+     * Tamaño maximo del cache de <code>selectById</code> de este DAO, por idMarca. Por defecto 0, sin cache; se debe
+     * sobrescribir para activarlo. Los objetos del cache se comparten entre llamadores y se deben tratar como de
+     * solo lectura.
+     *
+     * @return cantidad maxima de entradas, 0 para no usar cache
+     */
+    protected int getCacheMaxSize() {
+        return 0;
+    }
+
+    /**
+     * Tiempo de vida de las entradas del cache de <code>selectById</code>. Por defecto <code>dao.cache.ttlMillis</code>.
+     *
+     * @return milisegundos, 0 para no vencer
+     */
+    protected long getCacheTtlMillis() {
+        return CACHE_TTL;
+    }
+
+    /**
+     * Obtiene la llave de cache de un objeto, usada por <code>selectById(T)</code>. Si devuelve los mismos valores
+     * que se pasan a <code>selectById(Object...)</code> (un solo valor o una lista), ambas formas comparten la
+     * entrada. Por defecto <code>null</code>, <code>selectById(T)</code> no usa el cache.
+     *
+     * @param obj objeto con los atributos de la llave
+     * @return llave o <code>null</code>
+     */
+    protected Object getEntityKey(T obj) {
+        return null;
+    }
+
+    /**
+     * Capacidad del buffer de escritura diferida de este DAO, por idMarca. Por defecto 0, sin buffer; se debe
+     * sobrescribir para usar <code>insertBehind</code> y <code>updateBehind</code>. Los bloques usan
+     * {@link #getBatchSize()} y las actualizaciones se combinan por {@link #getEntityKey(Object)}.
+     *
+     * @return objetos en cola como maximo, 0 para no usar buffer
+     */
+    protected int getWriteBehindCapacity() {
+        return 0;
+    }
+
+    /**
+     * Espera maxima de un objeto en el buffer de escritura diferida antes de escribirse. Por defecto
+     * <code>dao.writeBehind.flushMillis</code>.
+     *
+     * @return milisegundos
+     */
+    protected long getWriteBehindFlushMillis() {
+        return WRITE_BEHIND_FLUSH;
+    }
+
+    /**
+     * Espera maxima de <code>insertBehind</code> y <code>updateBehind</code> con el buffer lleno antes de rechazar
+     * el objeto. Por defecto <code>dao.writeBehind.offerMillis</code>.
+     *
+     * @return milisegundos, 0 rechaza sin esperar
+     */
+    protected long getWriteBehindOfferMillis() {
+        return WRITE_BEHIND_OFFER;
+    }
+
+    /**
+     * Se llama en el hilo del buffer cuando falla un bloque de escritura diferida; los objetos no se reintentan.
+     * Por defecto registra el error.
+     *
+     * @param operation operacion del bloque
+     * @param objs      objetos del bloque
+     * @param ex        error de la escritura
+     */
+    protected void onWriteBehindFailure(EWriteOperation operation, List<T> objs, RuntimeException ex) {
+        getLogger().error("Fallo la escritura diferida de {} objetos ({}) en {}", objs.size(),
+                operation.value(), getClass().getName(), ex);
+    }
+
     public DaoBase() {
     }
 
@@ -63,6 +235,125 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
         return queryList(SELECT_ALL);
     }
 
+    /**
+     * Ejecuta la operación <code>selectList</code> con un cursor; las filas se leen a medida que se consume el stream.
+     * El stream mantiene abierta la sesión y se debe cerrar, por ejemplo con try-with-resources.
+     *
+     * @param params lista de objetos que son usados dentro la consulta
+     * @return stream de objetos, se debe cerrar
+     */
+    public Stream<T> streamList(Map<String, Object> params) {
+        return queryStream(SELECT_LIST, getFetchSize(), params);
+    }
+
+    /**
+     * Ejecuta la operación <code>selectList</code> con un cursor; las filas se leen a medida que se consume el stream.
+     * El stream mantiene abierta la sesión y se debe cerrar, por ejemplo con try-with-resources.
+     *
+     * @param params lista de objetos que son usados dentro la consulta
+     * @return stream de objetos, se debe cerrar
+     */
+    public Stream<T> streamList(Object... params) {
+        return queryStream(SELECT_LIST, getFetchSize(), params);
+    }
+
+    /**
+     * Ejecuta la operación <code>selectAll</code> con un cursor; las filas se leen a medida que se consume el stream.
+     * El stream mantiene abierta la sesión y se debe cerrar, por ejemplo con try-with-resources.
+     *
+     * @return stream de objetos, se debe cerrar
+     */
+    public Stream<T> streamAll() {
+        return queryStream(SELECT_ALL, getFetchSize());
+    }
+
+    /**
+     * Ejecuta la operación <code>selectList</code> y lee el resultado por columnas en lugar de una lista de objetos,
+     * para resultados grandes de reportes.
+     *
+     * @param params lista de objetos que son usados dentro la consulta
+     * @return filas del resultado, por columnas
+     */
+    public ColumnarResult columnarList(Map<String, Object> params) {
+        return queryColumnar(SELECT_LIST, getFetchSize(), params);
+    }
+
+    /**
+     * Ejecuta la operación <code>selectList</code> y lee el resultado por columnas en lugar de una lista de objetos,
+     * para resultados grandes de reportes.
+     *
+     * @param params lista de objetos que son usados dentro la consulta
+     * @return filas del resultado, por columnas
+     */
+    public ColumnarResult columnarList(Object... params) {
+        return queryColumnar(SELECT_LIST, getFetchSize(), params);
+    }
+
+    /**
+     * Ejecuta la operación <code>selectAll</code> y lee el resultado por columnas en lugar de una lista de objetos.
+     *
+     * @return filas del resultado, por columnas
+     */
+    public ColumnarResult columnarAll() {
+        return queryColumnar(SELECT_ALL, getFetchSize());
+    }
+
+    /**
+     * Recorre con un cursor el resultado de la operación <code>selectList</code>; la sesión se cierra al terminar.
+     *
+     * @param params lista de objetos que son usados dentro la consulta
+     * @param action accion a ejecutar por cada objeto
+     */
+    public void forEachList(Map<String, Object> params, Consumer<? super T> action) {
+        queryForEach(SELECT_LIST, getFetchSize(), action, params);
+    }
+
+    /**
+     * Recorre con un cursor el resultado de la operación <code>selectList</code>; la sesión se cierra al terminar.
+     *
+     * @param action accion a ejecutar por cada objeto
+     * @param params lista de objetos que son usados dentro la consulta
+     */
+    public void forEachList(Consumer<? super T> action, Object... params) {
+        queryForEach(SELECT_LIST, getFetchSize(), action, params);
+    }
+
+    /**
+     * Recorre con un cursor el resultado de la operación <code>selectAll</code>; la sesión se cierra al terminar.
+     *
+     * @param action accion a ejecutar por cada objeto
+     */
+    public void forEachAll(Consumer<? super T> action) {
+        queryForEach(SELECT_ALL, getFetchSize(), action);
+    }
+
+
+    /**
+     * Obtiene una pagina usando paginacion por llave (keyset): cada pagina continua despues de la llave de la ultima
+     * fila de la anterior, por lo que el costo no depende de la profundidad. Se requiere que en mapper se tenga la
+     * operación <code>selectPage(Map)</code> ordenada por la llave de {@link #getPageKey(Object)}, que lea como
+     * maximo {@link #PAGE_SIZE} filas y que filtre las filas posteriores a {@link #PAGE_AFTER_KEY} o
+     * {@link #PAGE_AFTER_KEYS} cuando no son null, por ejemplo:
+     * <pre>
+     * SELECT TOP (#{pageSize}) ... WHERE ... &lt;if test="afterKey != null"&gt;AND id &gt; #{afterKey}&lt;/if&gt; ORDER BY id
+     * </pre>
+     *
+     * @param request parametros de la consulta, tamaño de pagina y token
+     * @return pagina con los objetos y el token de la siguiente
+     */
+    public Page<T> selectPage(PageRequest request) {
+        Object[] afterKey = PageToken.decode(request.getToken());
+        Map<String, Object> params = new HashMap<>(request.getParams());
+        params.put(PAGE_SIZE, request.getSize() + 1);
+        params.put(PAGE_AFTER_KEY, afterKey == null ? null : afterKey[0]);
+        params.put(PAGE_AFTER_KEYS, afterKey == null ? null : Arrays.asList(afterKey));
+        List<T> rows = queryList(SELECT_PAGE, params);
+        if (rows == null || rows.size() <= request.getSize()) {
+            return new Page<>(rows == null ? new ArrayList<>(0) : rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, request.getSize()));
+        return new Page<>(items, PageToken.encode(getPageKey(items.get(items.size() - 1))));
+    }
 
     /**
      * Ejecuta una operación <code>select</code> para obtener un único objeto. Se requiere que en mapper se tenga la operación <code>select</code>
@@ -71,7 +362,7 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      * @return objeto
      */
     public T selectById(Map<String, Object> params) {
-        return queryObject(getClassType(), SELECT_BY_ID, params);
+        return cached(params == null ? null : new HashMap<>(params), () -> queryObject(getClassType(), SELECT_BY_ID, params));
     }
 
     /**
@@ -81,7 +372,8 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      * @return objeto
      */
     public T selectById(Object... params) {
-        return queryObject(getClassType(), SELECT_BY_ID, params);
+        Object key = params == null ? null : params.length == 1 ? params[0] : Arrays.asList(params.clone());
+        return cached(key, () -> queryObject(getClassType(), SELECT_BY_ID, params));
     }
 
     /**
@@ -91,7 +383,7 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      * @return objeto
      */
     public T selectById(T obj) {
-        return queryObject(getClassType(), SELECT_BY_ID, obj);
+        return cached(obj == null ? null : getEntityKey(obj), () -> queryObject(getClassType(), SELECT_BY_ID, obj));
     }
 
     /**
@@ -102,7 +394,7 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      * @return true si se pudo insertar bien, caso contrario false
      */
     public boolean insert(SqlSession session, T obj) {
-        Integer result = executeDml(session, INSERT, getClassType(), obj);
+        Integer result = executeInSession(() -> executeDml(session, INSERT, getClassType(), obj));
         return result != null && result >= 0;
     }
 
@@ -114,6 +406,7 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      */
     public boolean insert(T obj) {
         Integer result = executeDml(INSERT, getClassType(), obj);
+        invalidateCache();
         return result != null && result >= 0;
     }
 
@@ -125,7 +418,7 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      * @return true si se pudo actualizar bien, caso contrario false
      */
     public boolean update(SqlSession session, T obj) {
-        Integer result = executeDml(session, UPDATE, getClassType(), obj);
+        Integer result = executeInSession(() -> executeDml(session, UPDATE, getClassType(), obj));
         return result != null && result >= 0;
     }
 
@@ -137,6 +430,7 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      */
     public boolean update(T obj) {
         Integer result = executeDml(UPDATE, getClassType(), obj);
+        invalidateCache();
         return result != null && result >= 0;
     }
 
@@ -148,7 +442,7 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      * @return true si se pudo eliminar bien, caso contrario false
      */
     public boolean delete(SqlSession session, T obj) {
-        Integer result = executeDml(session, DELETE, getClassType(), obj);
+        Integer result = executeInSession(() -> executeDml(session, DELETE, getClassType(), obj));
         return result != null && result >= 0;
     }
 
@@ -160,6 +454,7 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      */
     public boolean delete(T obj) {
         Integer result = executeDml(DELETE, getClassType(), obj);
+        invalidateCache();
         return result != null && result >= 0;
     }
 
@@ -171,7 +466,7 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      * @return true si se pudo insertar bien, caso contrario false
      */
     public boolean delete(SqlSession session, Map<String, Object> params) {
-        Integer result = executeDml(session, DELETE, Map.class, params);
+        Integer result = executeInSession(() -> executeDml(session, DELETE, Map.class, params));
         return result != null && result >= 0;
     }
 
@@ -183,6 +478,334 @@ public abstract class DaoBase<T, U> extends DaoGeneric<U> {
      */
     public boolean delete(Map<String, Object> params) {
         Integer result = executeDml(DELETE, Map.class, params);
+        invalidateCache();
         return result != null && result >= 0;
     }
+
+    /**
+     * Ejecuta una operación <code>insert</code> por cada objeto en una sesión por lotes, en bloques de
+     * {@link #getBatchSize()} sentencias y con la política {@link #getBatchCommitPolicy()}.
+     * Se requiere que en mapper se tenga la operación <code>insert</code>
+     *
+     * @param objs objetos a insertar
+     * @return filas afectadas por cada bloque
+     */
+    public int[] insertBatch(Collection<T> objs) {
+        try {
+            return executeBatch(INSERT, getClassType(), objs, getBatchSize(), getBatchCommitPolicy());
+        } finally {
+            invalidateCache();
+        }
+    }
+
+    /**
+     * Ejecuta una operación <code>insert</code> por cada objeto en una sesión por lotes.
+     * Se requiere que en mapper se tenga la operación <code>insert</code>
+     *
+     * @param objs         objetos a insertar
+     * @param chunkSize    cantidad de sentencias por bloque
+     * @param commitPolicy commit por bloque o uno solo al final
+     * @return filas afectadas por cada bloque
+     */
+    public int[] insertBatch(Collection<T> objs, int chunkSize, ECommitPolicy commitPolicy) {
+        try {
+            return executeBatch(INSERT, getClassType(), objs, chunkSize, commitPolicy);
+        } finally {
+            invalidateCache();
+        }
+    }
+
+    /**
+     * Ejecuta una operación <code>update</code> por cada objeto en una sesión por lotes, en bloques de
+     * {@link #getBatchSize()} sentencias y con la política {@link #getBatchCommitPolicy()}.
+     * Se requiere que en mapper se tenga la operación <code>update</code>
+     *
+     * @param objs objetos a actualizar
+     * @return filas afectadas por cada bloque
+     */
+    public int[] updateBatch(Collection<T> objs) {
+        try {
+            return executeBatch(UPDATE, getClassType(), objs, getBatchSize(), getBatchCommitPolicy());
+        } finally {
+            invalidateCache();
+        }
+    }
+
+    /**
+     * Ejecuta una operación <code>update</code> por cada objeto en una sesión por lotes.
+     * Se requiere que en mapper se tenga la operación <code>update</code>
+     *
+     * @param objs         objetos a actualizar
+     * @param chunkSize    cantidad de sentencias por bloque
+     * @param commitPolicy commit por bloque o uno solo al final
+     * @return filas afectadas por cada bloque
+     */
+    public int[] updateBatch(Collection<T> objs, int chunkSize, ECommitPolicy commitPolicy) {
+        try {
+            return executeBatch(UPDATE, getClassType(), objs, chunkSize, commitPolicy);
+        } finally {
+            invalidateCache();
+        }
+    }
+
+    /**
+     * Ejecuta una operación <code>delete</code> por cada objeto en una sesión por lotes, en bloques de
+     * {@link #getBatchSize()} sentencias y con la política {@link #getBatchCommitPolicy()}.
+     * Se requiere que en mapper se tenga la operación <code>delete</code>
+     *
+     * @param objs objetos a eliminar
+     * @return filas afectadas por cada bloque
+     */
+    public int[] deleteBatch(Collection<T> objs) {
+        try {
+            return executeBatch(DELETE, getClassType(), objs, getBatchSize(), getBatchCommitPolicy());
+        } finally {
+            invalidateCache();
+        }
+    }
+
+    /**
+     * Ejecuta una operación <code>delete</code> por cada objeto en una sesión por lotes.
+     * Se requiere que en mapper se tenga la operación <code>delete</code>
+     *
+     * @param objs         objetos a eliminar
+     * @param chunkSize    cantidad de sentencias por bloque
+     * @param commitPolicy commit por bloque o uno solo al final
+     * @return filas afectadas por cada bloque
+     */
+    public int[] deleteBatch(Collection<T> objs, int chunkSize, ECommitPolicy commitPolicy) {
+        try {
+            return executeBatch(DELETE, getClassType(), objs, chunkSize, commitPolicy);
+        } finally {
+            invalidateCache();
+        }
+    }
+
+    /**
+     * Version asincrona de {@link #selectList(Map)}, se ejecuta en {@link #getAsyncExecutor()}.
+     *
+     * @param params lista de objetos que son usados dentro la consulta
+     * @return future con la lista de objetos
+     */
+    public CompletableFuture<List<T>> selectListAsync(Map<String, Object> params) {
+        return supplyAsync(() -> selectList(params));
+    }
+
+    /**
+     * Version asincrona de {@link #selectList(Object...)}, se ejecuta en {@link #getAsyncExecutor()}.
+     *
+     * @param params lista de objetos que son usados dentro la consulta
+     * @return future con la lista de objetos
+     */
+    public CompletableFuture<List<T>> selectListAsync(Object... params) {
+        return supplyAsync(() -> selectList(params));
+    }
+
+    /**
+     * Version asincrona de {@link #selectAll()}, se ejecuta en {@link #getAsyncExecutor()}.
+     *
+     * @return future con la lista de objetos
+     */
+    public CompletableFuture<List<T>> selectAllAsync() {
+        return supplyAsync(this::selectAll);
+    }
+
+    /**
+     * Version asincrona de {@link #selectById(Map)}, se ejecuta en {@link #getAsyncExecutor()}.
+     *
+     * @param params lista de objetos que son usados dentro la consulta
+     * @return future con el objeto
+     */
+    public CompletableFuture<T> selectByIdAsync(Map<String, Object> params) {
+        return supplyAsync(() -> selectById(params));
+    }
+
+    /**
+     * Version asincrona de {@link #selectById(Object...)}, se ejecuta en {@link #getAsyncExecutor()}.
+     *
+     * @param params lista de objetos que son usados dentro la consulta
+     * @return future con el objeto
+     */
+    public CompletableFuture<T> selectByIdAsync(Object... params) {
+        return supplyAsync(() -> selectById(params));
+    }
+
+    /**
+     * Version asincrona de {@link #insert(Object)}, se ejecuta en {@link #getAsyncExecutor()}.
+     *
+     * @param obj objeto a insertar
+     * @return future con true si se pudo insertar bien, caso contrario false
+     */
+    public CompletableFuture<Boolean> insertAsync(T obj) {
+        return supplyAsync(() -> insert(obj));
+    }
+
+    /**
+     * Version asincrona de {@link #update(Object)}, se ejecuta en {@link #getAsyncExecutor()}.
+     *
+     * @param obj objeto a actualizar
+     * @return future con true si se pudo actualizar bien, caso contrario false
+     */
+    public CompletableFuture<Boolean> updateAsync(T obj) {
+        return supplyAsync(() -> update(obj));
+    }
+
+    /**
+     * Version asincrona de {@link #delete(Object)}, se ejecuta en {@link #getAsyncExecutor()}.
+     *
+     * @param obj objeto a eliminar
+     * @return future con true si se pudo eliminar bien, caso contrario false
+     */
+    public CompletableFuture<Boolean> deleteAsync(T obj) {
+        return supplyAsync(() -> delete(obj));
+    }
+
+    /**
+     * Encola un <code>insert</code> en el buffer de escritura diferida y vuelve sin esperar a la base de datos. El
+     * insert se hace despues con <code>insertBatch</code>, en su propia transaccion y fuera de cualquier unidad de
+     * trabajo; hasta entonces las consultas no ven el objeto.
+     *
+     * @param obj objeto a insertar
+     * @return false si el buffer esta lleno o cerrado y el objeto se rechazo
+     */
+    public boolean insertBehind(T obj) {
+        return getWriteBehindBuffer().insert(obj);
+    }
+
+    /**
+     * Encola un <code>update</code> en el buffer de escritura diferida y vuelve sin esperar a la base de datos. Si
+     * hay en cola una actualizacion con la misma {@link #getEntityKey(Object)} se reemplaza por esta. El update se
+     * hace despues con <code>updateBatch</code>, fuera de cualquier unidad de trabajo.
+     *
+     * @param obj objeto a actualizar
+     * @return false si el buffer esta lleno o cerrado y el objeto se rechazo
+     */
+    public boolean updateBehind(T obj) {
+        return getWriteBehindBuffer().update(obj, getEntityKey(obj));
+    }
+
+    /**
+     * Escribe lo que esta en el buffer de escritura diferida del idMarca actual y espera a que termine.
+     *
+     * @param timeoutMillis espera maxima
+     * @return true si se escribio todo lo encolado antes de la llamada
+     */
+    public boolean flushWriteBehind(long timeoutMillis) {
+        return getWriteBehindBuffer().flush(timeoutMillis);
+    }
+
+    /**
+     * @return contadores del buffer de escritura diferida para el idMarca actual, <code>null</code> si no esta activo
+     */
+    public WriteBehindStats getWriteBehindStats() {
+        WriteBehindBuffer<Object> buffer = getWriteBehindCapacity() > 0 ? WRITE_BEHIND.get(getClass()).get(cacheRegion()) : null;
+        return buffer == null ? null : buffer.stats();
+    }
+
+    /**
+     * @return contadores del cache de <code>selectById</code> para el idMarca actual, <code>null</code> si no esta activo
+     */
+    public CacheStats getCacheStats() {
+        EntityCache<Object> cache = getEntityCache();
+        return cache == null ? null : cache.stats();
+    }
+
+    /**
+     * Vacia el cache de <code>selectById</code> para el idMarca actual. Se llama despues de cada
+     * <code>insert</code>, <code>update</code> y <code>delete</code> de este DAO. Dentro de una unidad de trabajo se
+     * vacia otra vez al terminar la unidad.
+     */
+    protected void invalidateCache() {
+        if (getCacheMaxSize() > 0) {
+            EntityCache<Object> cache = CACHES.get(getClass()).get(cacheRegion());
+            if (cache != null) {
+                cache.invalidateAll();
+                TransactionScope scope = TransactionScope.isActive() ? TransactionScope.current(getSqlSessionFactoryInner()) : null;
+                if (scope != null) {
+                    scope.afterCompletion(cache, cache::invalidateAll);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una sentencia sobre la sesión del llamador. El cache se vacia al ejecutarla y otra vez despues del commit
+     * o rollback de la sesión (ver {@link SessionCompletion}), asi una carga de <code>selectById</code> que leyo la
+     * fila anterior mientras la transaccion seguia abierta no queda guardada.
+     */
+    private <R> R executeInSession(Supplier<R> dml) {
+        EntityCache<Object> cache = getEntityCache();
+        try {
+            return cache == null ? dml.get() : SessionCompletion.execute(cache, cache::invalidateAll, dml);
+        } finally {
+            invalidateCache();
+        }
+    }
+
+    private EntityCache<Object> getEntityCache() {
+        int maxSize = getCacheMaxSize();
+        if (maxSize <= 0) {
+            return null;
+        }
+        ConcurrentMap<String, EntityCache<Object>> byMarca = CACHES.get(getClass());
+        String region = cacheRegion();
+        EntityCache<Object> cache = byMarca.get(region);
+        if (cache == null) {
+            cache = byMarca.computeIfAbsent(region, k -> new EntityCache<>(maxSize, getCacheTtlMillis()));
+        }
+        return cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private WriteBehindBuffer<T> getWriteBehindBuffer() {
+        int capacity = getWriteBehindCapacity();
+        if (capacity <= 0) {
+            throw new UnsupportedOperationException(String.format("%s debe sobrescribir getWriteBehindCapacity para usar la escritura diferida", getClass().getName()));
+        }
+        ConcurrentMap<String, WriteBehindBuffer<Object>> byMarca = WRITE_BEHIND.get(getClass());
+        String region = cacheRegion();
+        WriteBehindBuffer<Object> buffer = byMarca.get(region);
+        if (buffer == null) {
+            buffer = byMarca.computeIfAbsent(region, k -> (WriteBehindBuffer<Object>) new WriteBehindBuffer<>(
+                    region.isEmpty() ? getClass().getName() : getClass().getName() + "-" + region, new WriteBehindTarget<T>() {
+                @Override
+                public void write(EWriteOperation operation, List<T> items) {
+                    if (operation == EWriteOperation.INSERT) {
+                        insertBatch(items);
+                    } else {
+                        updateBatch(items);
+                    }
+                }
+
+                @Override
+                public void onFailure(EWriteOperation operation, List<T> items, RuntimeException error) {
+                    onWriteBehindFailure(operation, items, error);
+                }
+            }, capacity, getBatchSize(), getWriteBehindFlushMillis(), getWriteBehindOfferMillis()));
+        }
+        return (WriteBehindBuffer<T>) buffer;
+    }
+
+    private String cacheRegion() {
+        return getIdMarca() == null ? "" : getIdMarca();
+    }
+
+    /**
+     * Dentro de una unidad de trabajo se lee sin cache, la conexion de la unidad ve sus propios cambios sin confirmar.
+     * Las cargas del cache se leen del primario para no guardar filas atrasadas de la replica.
+     */
+    @SuppressWarnings("unchecked")
+    private T cached(Object key, Supplier<T> loader) {
+        EntityCache<Object> cache = key == null ? null : getEntityCache();
+        if (cache == null || TransactionScope.isActive() && TransactionScope.current(getSqlSessionFactoryInner()) != null) {
+            return loader.get();
+        }
+        T value = (T) cache.get(key);
+        if (value == null) {
+            long generation = cache.generation();
+            value = ReplicaRouter.onPrimary(loader);
+            cache.put(key, value, generation);
+        }
+        return value;
+    }
 }
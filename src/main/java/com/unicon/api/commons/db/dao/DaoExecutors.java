@@ -0,0 +1,83 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors acotados para las llamadas asincronas de los DAO, uno por tipo de conexion e idMarca.
+ * <p>
+ * Cada executor tiene <code>dao.async.threads</code> hilos y una cola de <code>dao.async.queue</code> tareas; si
+ * la cola esta llena la tarea se rechaza, de modo que una marca con mucha carga no consume los hilos ni las
+ * conexiones de las demas. Los hilos son daemon y terminan despues de un minuto sin trabajo.
+ *
+ * @author acrispin
+ */
+final class DaoExecutors {
+
+    private static final int THREADS = Math.max(1, DaoSettings.getInt(DaoSettings.ASYNC_THREADS, 4));
+    private static final int QUEUE = Math.max(1, DaoSettings.getInt(DaoSettings.ASYNC_QUEUE, 64));
+    private static final String SINGLE_KEY = "";
+
+    private static final Map<EConnectionType, ConcurrentMap<String, ExecutorService>> EXECUTORS = new EnumMap<>(EConnectionType.class);
+
+    static {
+        for (EConnectionType type : EConnectionType.values()) {
+            EXECUTORS.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    private DaoExecutors() {
+    }
+
+    /**
+     * @param type    tipo de conexion
+     * @param idMarca marca, se ignora en <code>SINGLE</code>
+     * @return executor de la conexion
+     */
+    static ExecutorService get(EConnectionType type, String idMarca) {
+        EConnectionType key = type == null ? EConnectionType.SINGLE : type;
+        String marca = key == EConnectionType.SINGLE || idMarca == null ? SINGLE_KEY : idMarca;
+        ConcurrentMap<String, ExecutorService> byMarca = EXECUTORS.get(key);
+        ExecutorService executor = byMarca.get(marca);
+        if (executor == null) {
+            executor = byMarca.computeIfAbsent(marca, k -> newExecutor(key, k));
+        }
+        return executor;
+    }
+
+    private static ExecutorService newExecutor(EConnectionType type, String idMarca) {
+        String prefix = idMarca.isEmpty()
+                ? String.format("dao-%s-", type.name().toLowerCase())
+                : String.format("dao-%s-%s-", type.name().toLowerCase(), idMarca);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE), new DaemonThreadFactory(prefix), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,16 +1,40 @@
 package com.unicon.api.commons.db.dao;
 
+import com.unicon.api.commons.db.dao.columnar.ColumnarResult;
+import com.unicon.api.commons.db.dao.enums.ECircuitState;
+import com.unicon.api.commons.db.dao.enums.ECommitPolicy;
 import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import com.unicon.api.commons.db.dao.scatter.ScatterResult;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.logging.log4j.Logger;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @param <U> Mapper a utilizar por la clase
@@ -41,6 +65,10 @@ public abstract class DaoGeneric<U> {
      */
     protected static final Class<?>[] NOPARAMS = {};
 
+    private static final Object[] NOARGS = {};
+
+    private static final long TIMEOUT = DaoSettings.getLong(DaoSettings.TIMEOUT, 0L);
+
     /**
      * @return Logger de la clase hija
      */
@@ -72,24 +100,459 @@ public abstract class DaoGeneric<U> {
     protected abstract Class<U> getMapperType();
 
     protected SqlSessionFactory getSqlSessionFactoryInner() {
+        return getSqlSessionFactoryInner(getIdMarca());
+    }
+
+    /**
+     * @param idMarca marca, se ignora en <code>SINGLE</code>
+     * @return SqlSessionFactory del tipo de conexion del DAO para la marca
+     */
+    protected SqlSessionFactory getSqlSessionFactoryInner(String idMarca) {
         switch (getConnectionType()) {
             case SINGLE:
                 return getSqlSessionFactoryInnerSingle();
             case SDC:
-                return getSqlSessionFactoryInnerSdc(getIdMarca());
+                return getSqlSessionFactoryInnerSdc(idMarca);
             case CMD:
-                return getSqlSessionFactoryInnerCmd(getIdMarca());
+                return getSqlSessionFactoryInnerCmd(idMarca);
         }
         return getSqlSessionFactoryInnerSingle();
     }
 
-    private Class<?>[] getParamsClass(Object... params) {
-        int max = params.length;
-        Class<?>[] paramsClass = new Class[max];
-        for (int i = 0; i < max; i++) {
-            paramsClass[i] = params[i].getClass();
+    /**
+     * Factory de la replica de solo lectura de la marca. Por defecto <code>null</code>, sin replica: todas las
+     * lecturas van al primario.
+     *
+     * @param idMarca marca, se ignora en <code>SINGLE</code>
+     * @return SqlSessionFactory de la replica o <code>null</code>
+     */
+    protected SqlSessionFactory getSqlSessionFactoryInnerReplica(String idMarca) {
+        return null;
+    }
+
+    /**
+     * Indica si las lecturas de este DAO (<code>queryList</code>, <code>queryObject</code>,
+     * <code>queryStream</code> y <code>scatterQuery</code>) pueden ir a la replica. Por defecto true; se sobrescribe
+     * con false cuando el DAO debe leer siempre lo ultimo confirmado en el primario.
+     *
+     * @return true para usar la replica si existe
+     */
+    protected boolean isReadFromReplica() {
+        return true;
+    }
+
+    /**
+     * Consulta que devuelve el atraso de la replica en milisegundos. Por defecto <code>dao.replica.lagQuery</code>.
+     *
+     * @return consulta, vacia para no verificar el atraso
+     */
+    protected String getReplicaLagQuery() {
+        return ReplicaRouter.LAG_QUERY;
+    }
+
+    /**
+     * Atraso maximo de la replica antes de leer del primario. Por defecto <code>dao.replica.maxLagMillis</code>.
+     *
+     * @return milisegundos
+     */
+    protected long getReplicaMaxLagMillis() {
+        return ReplicaRouter.MAX_LAG;
+    }
+
+    /**
+     * Indica si las llamadas identicas y simultaneas a <code>queryList</code> y <code>queryObject</code> del metodo
+     * (misma marca, mapper, metodo y parametros) comparten una sola ejecucion en la base de datos: la primera toma la
+     * conexion y las demas esperan y reciben su resultado. Por defecto false; se activa para lecturas muy concurridas,
+     * por ejemplo un <code>selectById</code> durante un pico. Los parametros deben implementar <code>equals</code> y
+     * <code>hashCode</code>, y los objetos del resultado se comparten entre los llamadores.
+     *
+     * @param methodName metodo del mapper
+     * @return true para compartir la ejecucion
+     */
+    protected boolean isSingleFlight(String methodName) {
+        return false;
+    }
+
+    /**
+     * Fallas consecutivas de conexion o de timeout que abren el circuito del tipo de conexion e idMarca. Por defecto
+     * <code>dao.circuit.failureThreshold</code>. El circuito es compartido por todos los DAO de la marca; con el
+     * circuito abierto las llamadas se rechazan con {@link CircuitOpenException} sin tomar una conexion.
+     *
+     * @return fallas consecutivas, 0 para que las llamadas de este DAO no pasen por el circuito
+     */
+    protected int getCircuitFailureThreshold() {
+        return CircuitBreaker.FAILURE_THRESHOLD;
+    }
+
+    /**
+     * Tiempo que el circuito queda abierto antes de dejar pasar una llamada de prueba, cuando lo abre una llamada de
+     * este DAO. Por defecto <code>dao.circuit.openMillis</code>.
+     *
+     * @return milisegundos
+     */
+    protected long getCircuitOpenMillis() {
+        return CircuitBreaker.OPEN_MILLIS;
+    }
+
+    /**
+     * Plazo de cada llamada del metodo. Se combina con el {@link Deadline} del hilo y la llamada usa el que vence
+     * antes: acota la espera de la conexion y el <code>setQueryTimeout</code> de sus sentencias sin cambiar el
+     * <code>defaultStatementTimeout</code> de <code>sqlMapConfig.xml</code>. Por defecto <code>dao.timeoutMillis</code>;
+     * se sobrescribe, por ejemplo, para las lecturas de un endpoint interactivo.
+     *
+     * @param methodName metodo del mapper
+     * @return milisegundos, 0 sin plazo propio
+     */
+    protected long getTimeoutMillis(String methodName) {
+        return TIMEOUT;
+    }
+
+    /**
+     * Executor de mybatis para las sesiones del DAO. Por defecto <code>null</code>, que usa el
+     * <code>defaultExecutorType</code> de <code>sqlMapConfig.xml</code>. Con <code>REUSE</code> los statements se
+     * reutilizan dentro de una misma sesion, util cuando una sesion ejecuta varias veces las mismas sentencias (por
+     * ejemplo varias llamadas a <code>executeDml(session, ...)</code>); entre sesiones la reutilizacion la da el cache
+     * de statements del pool (<code>statementCacheSize</code>). Las operaciones por lotes siempre usan
+     * <code>BATCH</code>.
+     *
+     * @return tipo de executor, <code>null</code> para el de la configuracion
+     */
+    protected ExecutorType getExecutorType() {
+        return null;
+    }
+
+    /**
+     * Ejecuta <code>work</code> en una unidad de trabajo sobre el factory de este DAO: todas las llamadas de los DAO
+     * del mismo factory en el hilo actual usan una sola conexion y se confirman con un solo commit al terminar, o se
+     * revierten si <code>work</code> lanza una excepcion. Las llamadas asincronas no se unen a la unidad.
+     *
+     * @param <R>  tipo del resultado
+     * @param work llamadas a los DAO
+     * @return resultado de <code>work</code>, despues del commit
+     */
+    public <R> R inTransaction(Supplier<R> work) {
+        return TransactionScope.execute(getSqlSessionFactoryInner(), work);
+    }
+
+    /**
+     * Igual a {@link #inTransaction(Supplier)} con un plazo para toda la unidad: cada llamada usa lo que queda del
+     * plazo, incluido el commit.
+     *
+     * @param <R>           tipo del resultado
+     * @param timeoutMillis tiempo maximo de la unidad de trabajo
+     * @param work          llamadas a los DAO
+     * @return resultado de <code>work</code>, despues del commit
+     */
+    public <R> R inTransaction(long timeoutMillis, Supplier<R> work) {
+        return Deadline.execute(timeoutMillis, () -> TransactionScope.execute(getSqlSessionFactoryInner(), work));
+    }
+
+    /**
+     * @param autoCommit true para confirmar cada sentencia
+     * @return sesion de la marca actual con el executor de {@link #getExecutorType()}; dentro de una unidad de trabajo
+     * la sesion usa la conexion de la unidad y su commit, rollback y close no tienen efecto sobre la transaccion
+     */
+    protected SqlSession openSession(boolean autoCommit) {
+        return openSession(getSqlSessionFactoryInner(), getExecutorType(), autoCommit);
+    }
+
+    private SqlSession openSession(SqlSessionFactory sqlSessionFactory, ExecutorType executorType, boolean autoCommit) {
+        StatementCounter.current().environment(sqlSessionFactory);
+        TransactionScope scope = TransactionScope.current(sqlSessionFactory);
+        if (scope != null) {
+            return scope.openSession(executorType);
+        }
+        return executorType == null ? sqlSessionFactory.openSession(autoCommit) : sqlSessionFactory.openSession(executorType, autoCommit);
+    }
+
+    /**
+     * Sesion para una lectura: en la replica de la marca si existe y esta disponible, si no en el primario. Dentro de
+     * una unidad de trabajo sobre el primario la lectura se une a la unidad.
+     */
+    private SqlSession openReadSession(String idMarca) {
+        SqlSessionFactory primary = getSqlSessionFactoryInner(idMarca);
+        if (isReadFromReplica() && ReplicaRouter.isRoutable(primary)) {
+            SqlSession session = ReplicaRouter.get(getConnectionType(), idMarca).open(
+                    () -> getSqlSessionFactoryInnerReplica(idMarca), getExecutorType(), getReplicaLagQuery(), getReplicaMaxLagMillis());
+            if (session != null) {
+                return session;
+            }
+        }
+        return openSession(primary, getExecutorType(), true);
+    }
+
+    /**
+     * Ejecuta la lectura o espera la identica que ya esta en vuelo. Dentro de una unidad de trabajo la lectura se
+     * ejecuta siempre, porque debe ver los cambios sin confirmar de la unidad; las lecturas que pueden ir a la replica
+     * no se juntan con las que deben ir al primario.
+     */
+    private <R> R singleFlight(String methodName, Object params, Supplier<R> read) {
+        String marca = getIdMarca();
+        SqlSessionFactory primary = getSqlSessionFactoryInner(marca);
+        if (TransactionScope.current(primary) != null) {
+            return guarded(methodName, marca, read);
+        }
+        SingleFlight.Key key = new SingleFlight.Key(primary, getMapperType(), methodName, params,
+                isReadFromReplica() && ReplicaRouter.isRoutable(primary));
+        Supplier<R> flight = () -> SingleFlight.execute(key, () -> guarded(methodName, marca, read),
+                () -> DaoMetrics.recordCoalesced(getMapperType(), methodName, getConnectionType(), marca));
+        long timeoutMillis = getTimeoutMillis(methodName);
+        return timeoutMillis > 0 ? Deadline.execute(timeoutMillis, flight) : flight.get();
+    }
+
+    /**
+     * Ejecuta la llamada con el plazo de {@link #getTimeoutMillis(String)} y a traves del circuito del tipo de
+     * conexion y la marca.
+     */
+    private <R> R guarded(String methodName, String marca, Supplier<R> call) {
+        long timeoutMillis = getTimeoutMillis(methodName);
+        if (timeoutMillis > 0) {
+            return Deadline.execute(timeoutMillis, () -> throughCircuit(methodName, marca, call));
+        }
+        return throughCircuit(methodName, marca, call);
+    }
+
+    /**
+     * Con el plazo del hilo vencido o el circuito abierto la llamada se rechaza sin abrir una sesion; si no, su
+     * resultado se informa al circuito.
+     */
+    private <R> R throughCircuit(String methodName, String marca, Supplier<R> call) {
+        Deadline.check("ejecutar ", methodName);
+        int threshold = getCircuitFailureThreshold();
+        if (threshold <= 0 || !CircuitBreaker.isEnabled()) {
+            return call.get();
+        }
+        CircuitBreaker breaker = CircuitBreaker.get(getConnectionType(), marca);
+        ECircuitState permit = breaker.acquire();
+        if (permit == ECircuitState.OPEN) {
+            DaoMetrics.recordRejected(getMapperType(), methodName, getConnectionType(), marca);
+            throw breaker.rejection();
+        }
+        try {
+            R result = call.get();
+            breaker.onSuccess(permit);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            breaker.onFailure(permit, ex, threshold, getCircuitOpenMillis());
+            throw ex;
+        }
+    }
+
+    /**
+     * Marcas registradas para el tipo de conexion del DAO, usadas por <code>scatterQuery</code>. En
+     * <code>SINGLE</code> solo la marca actual; en <code>SDC</code> y <code>CMD</code> se debe sobrescribir.
+     *
+     * @return idMarca de cada environment de la plataforma
+     */
+    protected Collection<String> getIdMarcas() {
+        if (getConnectionType() == EConnectionType.SINGLE) {
+            return Collections.singletonList(getIdMarca());
+        }
+        throw new UnsupportedOperationException(String.format("%s debe sobrescribir getIdMarcas para usar scatterQuery", getClass().getName()));
+    }
+
+    /**
+     * Ejecuta el mismo método del mapper en paralelo sobre todas las marcas de {@link #getIdMarcas()}, cada una en
+     * el executor de su marca. La latencia total es la de la marca mas lenta, acotada por <code>timeoutMillis</code>;
+     * las marcas que no responden a tiempo se cancelan y el resultado queda parcial.
+     *
+     * @param <R>           tipo del resultado del método, por ejemplo <code>List&lt;T&gt;</code>
+     * @param methodName    nombre del metodo en el mapper a invocar
+     * @param timeoutMillis tiempo maximo de espera por marca, contado desde el inicio de la llamada
+     * @param params        parámetros a pasar al método a invocar
+     * @return resultado por idMarca, con los errores y las marcas que no respondieron
+     */
+    protected <R> ScatterResult<R> scatterQuery(String methodName,
+                                                long timeoutMillis,
+                                                Object... params) {
+        Object[] args = params == null ? NOARGS : params;
+        return scatter(methodName, timeoutMillis, session -> {
+            try {
+                MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, args);
+                return (R) invoker.invoke(session.getMapper(getMapperType()), args);
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+                throw new PersistenceException(ex.getMessage(), ex);
+            }
+        });
+    }
+
+    /**
+     * Igual a {@link #scatterQuery(String, long, Object...)} para métodos del mapper que reciben un <code>Map</code>.
+     *
+     * @param <R>           tipo del resultado del método, por ejemplo <code>List&lt;T&gt;</code>
+     * @param methodName    nombre del metodo en el mapper a invocar
+     * @param timeoutMillis tiempo maximo de espera por marca, contado desde el inicio de la llamada
+     * @param params        parámetros a pasar al método a invocar
+     * @return resultado por idMarca, con los errores y las marcas que no respondieron
+     */
+    protected <R> ScatterResult<R> scatterQuery(String methodName,
+                                                long timeoutMillis,
+                                                Map<String, Object> params) {
+        return scatter(methodName, timeoutMillis, session -> {
+            try {
+                MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, Map.class);
+                return (R) invoker.invokeSingle(session.getMapper(getMapperType()), params);
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+                throw new PersistenceException(ex.getMessage(), ex);
+            }
+        });
+    }
+
+    private <R> ScatterResult<R> scatter(String methodName,
+                                         long timeoutMillis,
+                                         Function<SqlSession, R> call) {
+        Map<String, CompletableFuture<R>> futures = new LinkedHashMap<>();
+        for (String marca : getIdMarcas()) {
+            AsyncCall<R> future = new AsyncCall<>(() -> guarded(methodName, marca, () -> {
+                long start = System.nanoTime();
+                R result = null;
+                boolean error = true;
+                try (SqlSession session = openReadSession(marca)) {
+                    result = call.apply(session);
+                    error = false;
+                    return result;
+                } finally {
+                    recordStatement(methodName, marca, start, result, error);
+                }
+            }));
+            futures.put(marca, future);
+            try {
+                DaoExecutors.get(getConnectionType(), marca).execute(future);
+            } catch (RejectedExecutionException ex) {
+                future.completeExceptionally(ex);
+            }
+        }
+
+        Map<String, R> results = new LinkedHashMap<>();
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        Set<String> timedOut = new LinkedHashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (Map.Entry<String, CompletableFuture<R>> entry : futures.entrySet()) {
+                try {
+                    long remaining = Math.max(0L, deadline - System.nanoTime());
+                    results.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.NANOSECONDS));
+                } catch (TimeoutException ex) {
+                    entry.getValue().cancel(true);
+                    timedOut.add(entry.getKey());
+                } catch (ExecutionException ex) {
+                    failures.put(entry.getKey(), ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            futures.values().forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new PersistenceException(String.format("Consulta por marcas interrumpida para methodName %s", methodName), ex);
+        }
+        if (!failures.isEmpty() || !timedOut.isEmpty()) {
+            getLogger().warn("Resultado parcial para methodName {}: errores en {}, sin respuesta en {}",
+                    methodName, failures.keySet(), timedOut);
         }
-        return paramsClass;
+        return new ScatterResult<>(results, failures, timedOut);
+    }
+
+    /**
+     * Executor de las llamadas asincronas. Por defecto uno acotado por tipo de conexion e idMarca, compartido por
+     * todos los DAO de la misma conexion.
+     *
+     * @return executor
+     */
+    protected Executor getAsyncExecutor() {
+        return DaoExecutors.get(getConnectionType(), getIdMarca());
+    }
+
+    /**
+     * Ejecuta una llamada del DAO en {@link #getAsyncExecutor()}. Al cancelar el future con
+     * <code>cancel</code> se cancela el <code>Statement</code> en curso. Si el executor no acepta mas tareas el
+     * future se completa con <code>RejectedExecutionException</code>.
+     * <p>
+     * La llamada no debe esperar otros futures del mismo executor, porque puede ocupar todos sus hilos.
+     *
+     * @param <R>  tipo del resultado
+     * @param work llamada a ejecutar, por ejemplo <code>() -&gt; queryList(...)</code>
+     * @return future con el resultado
+     */
+    protected <R> CompletableFuture<R> supplyAsync(Supplier<R> work) {
+        AsyncCall<R> call = new AsyncCall<>(work);
+        try {
+            getAsyncExecutor().execute(call);
+        } catch (RejectedExecutionException ex) {
+            getLogger().warn("Llamada asincrona rechazada para {}, idMarca '{}'", getConnectionType(), getIdMarca());
+            call.completeExceptionally(ex);
+        }
+        return call;
+    }
+
+    /**
+     * Version asincrona de {@link #queryList(String, Object...)}.
+     *
+     * @param <T>        tipo de los elementos en la lista
+     * @param methodName nombre del metodo en el mapper a invocar
+     * @param params     parámetros a pasar al método a invocar
+     * @return future con la lista de elementos del tipo T
+     */
+    protected <T> CompletableFuture<List<T>> queryListAsync(String methodName,
+                                                            Object... params) {
+        return supplyAsync(() -> queryList(methodName, params));
+    }
+
+    /**
+     * Version asincrona de {@link #queryList(String, Map)}.
+     *
+     * @param <T>        tipo de los elementos en la lista
+     * @param methodName nombre del metodo en el mapper a invocar
+     * @param params     parámetros a pasar al método a invocar
+     * @return future con la lista de elementos del tipo T
+     */
+    protected <T> CompletableFuture<List<T>> queryListAsync(String methodName,
+                                                            Map<String, Object> params) {
+        return supplyAsync(() -> queryList(methodName, params));
+    }
+
+    /**
+     * Version asincrona de {@link #queryObject(Class, String, Object...)}.
+     *
+     * @param <T>        tipo del elemento a devolver
+     * @param type       clase del objeto a devolver
+     * @param methodName nombre del método en el mapper a invocar
+     * @param params     parámetros a pasar al método a invocar
+     * @return future con el objeto del tipo T
+     */
+    protected <T> CompletableFuture<T> queryObjectAsync(Class<T> type,
+                                                        String methodName,
+                                                        Object... params) {
+        return supplyAsync(() -> queryObject(type, methodName, params));
+    }
+
+    /**
+     * Version asincrona de {@link #queryObject(Class, String, Map)}.
+     *
+     * @param <T>        tipo del elemento a devolver
+     * @param type       clase del objeto a devolver
+     * @param methodName nombre del método en el mapper a invocar
+     * @param params     parámetros a pasar al método a invocar
+     * @return future con el objeto del tipo T
+     */
+    protected <T> CompletableFuture<T> queryObjectAsync(Class<T> type,
+                                                        String methodName,
+                                                        Map<String, Object> params) {
+        return supplyAsync(() -> queryObject(type, methodName, params));
+    }
+
+    /**
+     * Version asincrona de {@link #executeDml(String, Class, Object)}, con su propia sesión y commit.
+     *
+     * @param <T>        objeto que se esta insertando
+     * @param <V>        objeto que devuelve el método
+     * @param methodName nombre del método en el mapper a invocar
+     * @param paramClass clase del parámetro, para multiparametros usar Map
+     * @param param      objeto a insertar
+     * @return future con el resultado del método
+     */
+    protected <T, V> CompletableFuture<V> executeDmlAsync(String methodName,
+                                                          Class<?> paramClass,
+                                                          T param) {
+        return supplyAsync(() -> this.<T, V>executeDml(methodName, paramClass, param));
     }
 
     /**
@@ -100,16 +563,27 @@ public abstract class DaoGeneric<U> {
      */
     protected <T> List<T> queryList(String methodName,
                                     Object... params) {
-        List<T> lista;
-        Class<?>[] paramsClass = getParamsClass(params);
+        if (!isSingleFlight(methodName)) {
+            return guarded(methodName, getIdMarca(), () -> readList(methodName, params));
+        }
+        return singleFlight(methodName, params == null ? NOARGS : params, () -> readList(methodName, params));
+    }
+
+    private <T> List<T> readList(String methodName,
+                                 Object... params) {
+        List<T> lista = null;
+        Object[] args = params == null ? NOARGS : params;
+        long start = System.nanoTime();
+        boolean error = true;
 
-        try (SqlSession session = getSqlSessionFactoryInner().openSession(true)) {
+        try (SqlSession session = openReadSession(getIdMarca())) {
             U mapper = session.getMapper(getMapperType());
-            Method method = mapper.getClass().getDeclaredMethod(methodName, paramsClass);
-            lista = (List<T>) method.invoke(mapper, params);
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, args);
+            lista = (List<T>) invoker.invoke(mapper, args);
             if (lista == null) {
                 lista = new ArrayList<>(0);
             }
+            error = false;
         } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
             lista = null;
             getLogger().fatal(ex.getMessage(), ex);
@@ -117,6 +591,8 @@ public abstract class DaoGeneric<U> {
         } catch (PersistenceException | NullPointerException ex) {
             getLogger().error(ex.getMessage(), ex);
             throw ex;
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, lista, error);
         }
 
         return lista;
@@ -130,14 +606,22 @@ public abstract class DaoGeneric<U> {
      */
     protected <T> List<T> queryList(String methodName,
                                     Map<String, Object> params) {
-        List<T> lista;
-        Class<?>[] paramsClass = new Class[1];
-        paramsClass[0] = Map.class;
-        try (SqlSession session = getSqlSessionFactoryInner().openSession(true)) {
-            U mapper = session.getMapper(getMapperType());
-            Method method = mapper.getClass().getDeclaredMethod(methodName, paramsClass);
-            lista = (List<T>) method.invoke(mapper, params);
+        if (!isSingleFlight(methodName)) {
+            return guarded(methodName, getIdMarca(), () -> readList(methodName, params));
+        }
+        return singleFlight(methodName, params, () -> readList(methodName, params));
+    }
 
+    private <T> List<T> readList(String methodName,
+                                 Map<String, Object> params) {
+        List<T> lista = null;
+        long start = System.nanoTime();
+        boolean error = true;
+        try (SqlSession session = openReadSession(getIdMarca())) {
+            U mapper = session.getMapper(getMapperType());
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, Map.class);
+            lista = (List<T>) invoker.invokeSingle(mapper, params);
+            error = false;
         } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
             lista = null;
             getLogger().fatal(ex.getMessage(), ex);
@@ -145,6 +629,8 @@ public abstract class DaoGeneric<U> {
         } catch (PersistenceException | NullPointerException ex) {
             getLogger().error(ex.getMessage(), ex);
             throw ex;
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, lista, error);
         }
 
         return lista;
@@ -156,12 +642,21 @@ public abstract class DaoGeneric<U> {
      * @return lista de elementos del tipo T
      */
     protected <T> List<T> queryList(String methodName) {
-        List<T> lista;
-        Class<?>[] paramsClass = NOPARAMS;
-        try (SqlSession session = getSqlSessionFactoryInner().openSession(true)) {
+        if (!isSingleFlight(methodName)) {
+            return guarded(methodName, getIdMarca(), () -> readList(methodName));
+        }
+        return singleFlight(methodName, NOARGS, () -> readList(methodName));
+    }
+
+    private <T> List<T> readList(String methodName) {
+        List<T> lista = null;
+        long start = System.nanoTime();
+        boolean error = true;
+        try (SqlSession session = openReadSession(getIdMarca())) {
             U mapper = session.getMapper(getMapperType());
-            Method method = mapper.getClass().getDeclaredMethod(methodName, paramsClass);
-            lista = (List<T>) method.invoke(mapper);
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, NOARGS);
+            lista = (List<T>) invoker.invoke(mapper, NOARGS);
+            error = false;
         } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
             lista = null;
             getLogger().fatal(ex.getMessage(), ex);
@@ -169,11 +664,146 @@ public abstract class DaoGeneric<U> {
         } catch (PersistenceException | NullPointerException ex) {
             getLogger().error(ex.getMessage(), ex);
             throw ex;
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, lista, error);
         }
 
         return lista;
     }
 
+    /**
+     * Ejecuta el mapped statement del método como un <code>Cursor</code> de mybatis y lo expone como
+     * <code>Stream</code>. Las filas se leen a medida que se consumen, la sesión queda abierta hasta que se cierra el
+     * stream, por lo que se debe usar dentro de un try-with-resources.
+     *
+     * @param <T>        tipo de los elementos del stream
+     * @param methodName nombre del metodo en el mapper cuyo mapped statement se ejecuta
+     * @param fetchSize  filas que el driver trae por cada viaje a la base de datos, 0 usa el del mapped statement
+     * @param params     parámetros a pasar al método, igual que en <code>queryList</code>
+     * @return stream de elementos del tipo T, se debe cerrar
+     */
+    protected <T> Stream<T> queryStream(String methodName,
+                                        int fetchSize,
+                                        Object... params) {
+        return guarded(methodName, getIdMarca(), () -> openStream(methodName, fetchSize, params));
+    }
+
+    private <T> Stream<T> openStream(String methodName,
+                                     int fetchSize,
+                                     Object... params) {
+        Object[] args = params == null ? NOARGS : params;
+        long start = System.nanoTime();
+        SqlSession session = openReadSession(getIdMarca());
+        try {
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, args);
+            String statement = invoker.getStatementId(getMapperType(), session.getConfiguration());
+            Object param = invoker.toStatementParameter(session.getConfiguration(), args);
+            Cursor<T> cursor;
+            try (StatementContext context = StatementContext.open()) {
+                context.fetchSize(fetchSize);
+                cursor = session.selectCursor(statement, param);
+            }
+            return StreamSupport.stream(cursor.spliterator(), false)
+                    .onClose(() -> closeCursor(methodName, start, cursor, session));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            session.close();
+            recordStatement(methodName, getIdMarca(), start, null, true);
+            getLogger().fatal(ex.getMessage(), ex);
+            throw new PersistenceException(ex.getMessage(), ex);
+        } catch (PersistenceException | NullPointerException ex) {
+            session.close();
+            recordStatement(methodName, getIdMarca(), start, null, true);
+            getLogger().error(ex.getMessage(), ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Recorre las filas del mapped statement del método con un <code>Cursor</code>, sin cargarlas en memoria.
+     * La sesión se cierra al terminar, incluso si la accion lanza una excepción.
+     *
+     * @param <T>        tipo de los elementos
+     * @param methodName nombre del metodo en el mapper cuyo mapped statement se ejecuta
+     * @param fetchSize  filas que el driver trae por cada viaje a la base de datos, 0 usa el del mapped statement
+     * @param action     accion a ejecutar por cada fila
+     * @param params     parámetros a pasar al método, igual que en <code>queryList</code>
+     */
+    protected <T> void queryForEach(String methodName,
+                                    int fetchSize,
+                                    Consumer<? super T> action,
+                                    Object... params) {
+        try (Stream<T> stream = queryStream(methodName, fetchSize, params)) {
+            stream.forEach(action);
+        }
+    }
+
+    /**
+     * Ejecuta el mapped statement del método y lee su resultado por columnas, sin mapear las filas a objetos: los
+     * números y fechas quedan en arreglos primitivos y los textos en un diccionario. Para selects grandes de reportes
+     * que se agregan o exportan, donde una lista de POJOs ocupa varias veces más heap. Se ignoran el
+     * <code>resultMap</code> y las asociaciones del mapped statement; las columnas son las del select.
+     *
+     * @param methodName nombre del metodo en el mapper cuyo mapped statement se ejecuta
+     * @param fetchSize  filas que el driver trae por cada viaje a la base de datos, 0 usa el del mapped statement
+     * @param params     parámetros a pasar al método, igual que en <code>queryList</code>
+     * @return filas del resultado, por columnas
+     */
+    protected ColumnarResult queryColumnar(String methodName,
+                                           int fetchSize,
+                                           Object... params) {
+        return guarded(methodName, getIdMarca(), () -> readColumnar(methodName, fetchSize, params));
+    }
+
+    private ColumnarResult readColumnar(String methodName,
+                                        int fetchSize,
+                                        Object... params) {
+        Object[] args = params == null ? NOARGS : params;
+        ColumnarResult result = null;
+        long start = System.nanoTime();
+        boolean error = true;
+        try (SqlSession session = openReadSession(getIdMarca())) {
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, args);
+            String statement = invoker.getStatementId(getMapperType(), session.getConfiguration());
+            Object param = invoker.toStatementParameter(session.getConfiguration(), args);
+            try (StatementContext context = StatementContext.open()) {
+                context.fetchSize(fetchSize).columnar(true);
+                session.select(statement, param, row -> {
+                });
+                result = context.getColumnarResult();
+            } finally {
+                // el cache local de la sesion guardo una lista vacia para la llave de la consulta
+                session.clearCache();
+            }
+            if (result == null) {
+                throw new PersistenceException(String.format("El metodo %s no devolvio un resultado por columnas, "
+                        + "StatementInterceptor debe estar registrado en la configuracion", methodName));
+            }
+            error = false;
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            getLogger().fatal(ex.getMessage(), ex);
+            throw new PersistenceException(ex.getMessage(), ex);
+        } catch (PersistenceException | NullPointerException ex) {
+            getLogger().error(ex.getMessage(), ex);
+            throw ex;
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, result == null ? null : result.size(), error);
+        }
+
+        return result;
+    }
+
+    private void closeCursor(String methodName, long start, Cursor<?> cursor, SqlSession session) {
+        int rows = cursor.getCurrentIndex() + 1;
+        try {
+            cursor.close();
+        } catch (IOException ex) {
+            getLogger().warn(ex.getMessage(), ex);
+        } finally {
+            session.close();
+            recordStatement(methodName, getIdMarca(), start, rows, false);
+        }
+    }
+
     /**
      * @param <T>        tipo del elemento a devolver
      * @param type       clase del objeto a instanciar en caso de excepción
@@ -184,17 +814,23 @@ public abstract class DaoGeneric<U> {
     protected <T> T queryObject(Class<T> type,
                                 String methodName,
                                 Map<String, Object> params) {
+        if (!isSingleFlight(methodName)) {
+            return guarded(methodName, getIdMarca(), () -> readObject(type, methodName, params));
+        }
+        return singleFlight(methodName, params, () -> readObject(type, methodName, params));
+    }
+
+    private <T> T readObject(Class<T> type,
+                             String methodName,
+                             Map<String, Object> params) {
         T object = null;
-        Class<?>[] paramsClass = new Class[1];
-        paramsClass[0] = Map.class;
-        try (SqlSession session = getSqlSessionFactoryInner().openSession(true)) {
+        long start = System.nanoTime();
+        boolean error = true;
+        try (SqlSession session = openReadSession(getIdMarca())) {
             U mapper = session.getMapper(getMapperType());
-            Method method = mapper.getClass().getDeclaredMethod(methodName, paramsClass);
-            if (params != null) {
-                object = (T) method.invoke(mapper, params);
-            } else {
-                object = (T) method.invoke(mapper);
-            }
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, Map.class);
+            object = (T) invoker.invokeSingle(mapper, params);
+            error = false;
         } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
             getLogger().fatal(ex.getMessage(), ex);
             try {
@@ -206,6 +842,8 @@ public abstract class DaoGeneric<U> {
         } catch (PersistenceException | NullPointerException ex) {
             getLogger().error(ex.getMessage(), ex);
             throw ex;
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, error ? null : object, error);
         }
 
         return object;
@@ -221,17 +859,24 @@ public abstract class DaoGeneric<U> {
     protected <T> T queryObject(Class<T> type,
                                 String methodName,
                                 Object... params) {
+        if (!isSingleFlight(methodName)) {
+            return guarded(methodName, getIdMarca(), () -> readObject(type, methodName, params));
+        }
+        return singleFlight(methodName, params == null ? NOARGS : params, () -> readObject(type, methodName, params));
+    }
+
+    private <T> T readObject(Class<T> type,
+                             String methodName,
+                             Object... params) {
         T object = null;
-        Class<?>[] paramsClass = getParamsClass(params);
-        try (SqlSession session = getSqlSessionFactoryInner().openSession(true)) {
+        Object[] args = params == null ? NOARGS : params;
+        long start = System.nanoTime();
+        boolean error = true;
+        try (SqlSession session = openReadSession(getIdMarca())) {
             U mapper = session.getMapper(getMapperType());
-            Method method = mapper.getClass().getDeclaredMethod(methodName, paramsClass);
-            if (params != null) {
-                object = (T) method.invoke(mapper, params);
-            } else {
-                object = (T) method.invoke(mapper);
-            }
-
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, args);
+            object = (T) invoker.invoke(mapper, args);
+            error = false;
         } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
             getLogger().fatal(ex.getMessage(), ex);
             try {
@@ -243,6 +888,8 @@ public abstract class DaoGeneric<U> {
         } catch (PersistenceException | NullPointerException ex) {
             getLogger().error(ex.getMessage(), ex);
             throw ex;
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, error ? null : object, error);
         }
 
         return object;
@@ -258,18 +905,23 @@ public abstract class DaoGeneric<U> {
     protected <T> T queryObject(Class<T> type,
                                 String methodName,
                                 T bean) {
+        if (!isSingleFlight(methodName)) {
+            return guarded(methodName, getIdMarca(), () -> readObject(type, methodName, bean));
+        }
+        return singleFlight(methodName, bean, () -> readObject(type, methodName, bean));
+    }
+
+    private <T> T readObject(Class<T> type,
+                             String methodName,
+                             T bean) {
         T object = null;
-        Class<?>[] paramsClass = new Class[1];
-        paramsClass[0] = type;
-        try (SqlSession session = getSqlSessionFactoryInner().openSession(true)) {
+        long start = System.nanoTime();
+        boolean error = true;
+        try (SqlSession session = openReadSession(getIdMarca())) {
             U mapper = session.getMapper(getMapperType());
-            Method method = mapper.getClass().getDeclaredMethod(methodName, paramsClass);
-            if (bean != null) {
-                object = (T) method.invoke(mapper, bean);
-            } else {
-                object = (T) method.invoke(mapper);
-            }
-
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, type);
+            object = (T) invoker.invokeSingle(mapper, bean);
+            error = false;
         } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
             getLogger().fatal(ex.getMessage(), ex);
             try {
@@ -281,6 +933,8 @@ public abstract class DaoGeneric<U> {
         } catch (PersistenceException | NullPointerException ex) {
             getLogger().error(ex.getMessage(), ex);
             throw ex;
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, error ? null : object, error);
         }
 
         return object;
@@ -301,29 +955,41 @@ public abstract class DaoGeneric<U> {
                                   String methodName,
                                   Class<?> paramClass,
                                   T param) {
+        return guarded(methodName, getIdMarca(), () -> this.<T, V>writeDml(session, methodName, paramClass, param));
+    }
 
-        Class<?>[] paramsClass = new Class[1];
-        paramsClass[0] = paramClass;
+    private <T, V> V writeDml(SqlSession session,
+                              String methodName,
+                              Class<?> paramClass,
+                              T param) {
         V result = null;
+        long start = System.nanoTime();
+        boolean error = true;
         try {
-            U mapper = session.getMapper(getMapperType());
-            Method method = mapper.getClass().getDeclaredMethod(methodName, paramsClass);
-
-            if (param != null) {
-                result = (V) method.invoke(mapper, param);
-            } else {
-                result = (V) method.invoke(mapper);
-            }
-        } catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
-            getLogger().fatal(ex.getMessage(), ex);
-            throw new PersistenceException(ex.getMessage(), ex);
+            result = invokeDml(session, methodName, paramClass, param);
+            error = false;
         } catch (PersistenceException | NullPointerException ex) {
             getLogger().error(ex.getMessage(), ex);
             throw ex;
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, result, error);
         }
         return result;
     }
 
+    private <T, V> V invokeDml(SqlSession session,
+                               String methodName,
+                               Class<?> paramClass,
+                               T param) {
+        try {
+            U mapper = session.getMapper(getMapperType());
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, paramClass);
+            return (V) invoker.invokeSingle(mapper, param);
+        } catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | ClassCastException | InvocationTargetException ex) {
+            throw new PersistenceException(ex.getMessage(), ex);
+        }
+    }
+
     /**
      * Ejecuta una sentencia DML (insert,update o delete) independiente de la sesión.
      *
@@ -337,23 +1003,10 @@ public abstract class DaoGeneric<U> {
     protected <T, V> V executeDml(String methodName,
                                   Class<?> paramClass,
                                   T param) {
-        try (SqlSession session = getSqlSessionFactoryInner().openSession(false)) {
+        try (SqlSession session = openSession(false)) {
             V result = executeDml(session, methodName, paramClass, param);
-            if (result != null) {
-                session.commit();
-                if (getLogger().isDebugEnabled()) {
-                    getLogger().debug(String.format("Ejecutando commit para methodName %s", methodName));
-                }
-            } else {
-                session.rollback();
-                if (getLogger().isDebugEnabled()) {
-                    getLogger().debug(String.format("Ejecutando rollback para methodName %s", methodName));
-                }
-            }
+            complete(session, methodName, result != null);
             return result;
-        } catch (PersistenceException | NullPointerException ex) {
-            getLogger().error(ex.getMessage(), ex);
-            throw ex;
         }
     }
 
@@ -367,23 +1020,29 @@ public abstract class DaoGeneric<U> {
     protected <T> T executeDml(SqlSession session,
                                String methodName,
                                Object... params) {
+        return guarded(methodName, getIdMarca(), () -> this.<T>writeDml(session, methodName, params));
+    }
+
+    private <T> T writeDml(SqlSession session,
+                           String methodName,
+                           Object... params) {
         T result = null;
-        Class<?>[] paramsClass = getParamsClass(params);
+        Object[] args = params == null ? NOARGS : params;
+        long start = System.nanoTime();
+        boolean error = true;
         try {
             U mapper = session.getMapper(getMapperType());
-            Method method = mapper.getClass().getDeclaredMethod(methodName, paramsClass);
-
-            if (params != null) {
-                result = (T) method.invoke(mapper, params);
-            } else {
-                result = (T) method.invoke(mapper);
-            }
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, args);
+            result = (T) invoker.invoke(mapper, args);
+            error = false;
         } catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
             getLogger().fatal(ex.getMessage(), ex);
             throw new PersistenceException(ex.getMessage(), ex);
         } catch (PersistenceException | NullPointerException ex) {
             getLogger().error(ex.getMessage(), ex);
             throw ex;
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, result, error);
         }
         return result;
     }
@@ -398,23 +1057,10 @@ public abstract class DaoGeneric<U> {
      */
     protected <T> T executeDml(String methodName,
                                Object... params) {
-        try (SqlSession session = getSqlSessionFactoryInner().openSession(false)) {
+        try (SqlSession session = openSession(false)) {
             T result = executeDml(session, methodName, params);
-            if (result != null) {
-                session.commit();
-                if (getLogger().isDebugEnabled()) {
-                    getLogger().debug(String.format("Ejecutando commit para methodName %s", methodName));
-                }
-            } else {
-                session.rollback();
-                if (getLogger().isDebugEnabled()) {
-                    getLogger().debug(String.format("Ejecutando rollback para methodName %s", methodName));
-                }
-            }
+            complete(session, methodName, result != null);
             return result;
-        } catch (PersistenceException | NullPointerException ex) {
-            getLogger().error(ex.getMessage(), ex);
-            throw ex;
         }
     }
 
@@ -431,25 +1077,28 @@ public abstract class DaoGeneric<U> {
     protected <T, V> V executeDml(SqlSession session,
                                   String methodName,
                                   T param) {
+        return guarded(methodName, getIdMarca(), () -> this.<T, V>writeDml(session, methodName, param));
+    }
 
-        Class<?>[] paramsClass = new Class[1];
-        paramsClass[0] = param.getClass();
+    private <T, V> V writeDml(SqlSession session,
+                              String methodName,
+                              T param) {
         V result = null;
+        long start = System.nanoTime();
+        boolean error = true;
         try {
             U mapper = session.getMapper(getMapperType());
-            Method method = mapper.getClass().getDeclaredMethod(methodName, paramsClass);
-
-            if (param != null) {
-                result = (V) method.invoke(mapper, param);
-            } else {
-                result = (V) method.invoke(mapper);
-            }
+            MapperInvoker invoker = MapperDispatcher.resolve(getMapperType(), methodName, param == null ? null : param.getClass());
+            result = (V) invoker.invokeSingle(mapper, param);
+            error = false;
         } catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
             getLogger().fatal(ex.getMessage(), ex);
             throw new PersistenceException(ex.getMessage(), ex);
         } catch (PersistenceException | NullPointerException ex) {
             getLogger().error(ex.getMessage(), ex);
             throw ex;
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, result, error);
         }
         return result;
     }
@@ -465,24 +1114,123 @@ public abstract class DaoGeneric<U> {
      */
     protected <T, V> V executeDml(String methodName,
                                   T param) {
-        try (SqlSession session = getSqlSessionFactoryInner().openSession(false)) {
+        try (SqlSession session = openSession(false)) {
             V result = executeDml(session, methodName, param);
-            if (result != null) {
+            complete(session, methodName, result != null);
+            return result;
+        }
+    }
+
+    /**
+     * Confirma la sesion de un <code>executeDml</code> independiente, o la revierte si la sentencia no devolvio
+     * resultado. Un error de la sentencia ya quedo en el log al ejecutarla; aqui solo se registra el del commit o
+     * rollback.
+     */
+    private void complete(SqlSession session, String methodName, boolean commit) {
+        try {
+            if (commit) {
                 session.commit();
-                if (getLogger().isDebugEnabled()) {
-                    getLogger().debug(String.format("Ejecutando commit para methodName %s", methodName));
-                }
+                getLogger().debug("Ejecutando commit para methodName {}", methodName);
             } else {
                 session.rollback();
-                if (getLogger().isDebugEnabled()) {
-                    getLogger().debug(String.format("Ejecutando rollback para methodName %s", methodName));
-                }
+                getLogger().debug("Ejecutando rollback para methodName {}", methodName);
             }
-            return result;
-        } catch (PersistenceException | NullPointerException ex) {
+        } catch (PersistenceException ex) {
             getLogger().error(ex.getMessage(), ex);
             throw ex;
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Ejecuta una sentencia DML (insert, update o delete) por cada elemento usando una sesión <code>BATCH</code>.
+     * Las sentencias se envian a la base de datos en bloques de <code>chunkSize</code> elementos.
+     *
+     * @param <T>          objeto que se esta procesando
+     * @param methodName   nombre del método en el mapper a invocar
+     * @param paramClass   clase del parámetro, para multiparametros usar Map
+     * @param params       elementos a procesar, uno por sentencia
+     * @param chunkSize    cantidad de sentencias por bloque
+     * @param commitPolicy commit por bloque o uno solo al final
+     * @return filas afectadas por cada bloque; las sentencias que el driver reporta como
+     * <code>SUCCESS_NO_INFO</code> cuentan como una fila
+     */
+    protected <T> int[] executeBatch(String methodName,
+                                     Class<?> paramClass,
+                                     Collection<? extends T> params,
+                                     int chunkSize,
+                                     ECommitPolicy commitPolicy) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException(String.format("chunkSize debe ser mayor a cero: %d", chunkSize));
+        }
+        if (params == null || params.isEmpty()) {
+            return new int[0];
+        }
+        return guarded(methodName, getIdMarca(), () -> writeBatch(methodName, paramClass, params, chunkSize, commitPolicy));
+    }
+
+    private <T> int[] writeBatch(String methodName,
+                                 Class<?> paramClass,
+                                 Collection<? extends T> params,
+                                 int chunkSize,
+                                 ECommitPolicy commitPolicy) {
+        int[] counts = new int[(params.size() + chunkSize - 1) / chunkSize];
+        int chunk = 0;
+        long start = System.nanoTime();
+        boolean error = true;
+        try (SqlSession session = openSession(getSqlSessionFactoryInner(), ExecutorType.BATCH, false)) {
+            try {
+                int pending = 0;
+                for (T param : params) {
+                    invokeDml(session, methodName, paramClass, param);
+                    if (++pending == chunkSize) {
+                        counts[chunk] = flushBatch(session, commitPolicy);
+                        chunk++;
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    counts[chunk] = flushBatch(session, commitPolicy);
+                    chunk++;
+                }
+                if (commitPolicy == ECommitPolicy.PER_CALL) {
+                    session.commit();
+                }
+                if (getLogger().isDebugEnabled()) {
+                    getLogger().debug("Ejecutando commit por lotes para methodName {}, {} bloques", methodName, chunk);
+                }
+                error = false;
+            } catch (PersistenceException | NullPointerException ex) {
+                session.rollback();
+                // si fallo el commit final con PER_CALL todos los bloques ya se enviaron y se reporta el ultimo
+                getLogger().error("Error en el bloque {} de {} para methodName {} ({})",
+                        Math.min(chunk + 1, counts.length), counts.length, methodName, commitPolicy, ex);
+                throw ex;
+            }
+        } finally {
+            recordStatement(methodName, getIdMarca(), start, counts, error);
+        }
+        return counts;
+    }
+
+    private static int flushBatch(SqlSession session, ECommitPolicy commitPolicy) {
+        int count = 0;
+        for (BatchResult result : session.flushStatements()) {
+            for (int updateCount : result.getUpdateCounts()) {
+                if (updateCount >= 0) {
+                    count += updateCount;
+                } else if (updateCount == Statement.SUCCESS_NO_INFO) {
+                    count++;
+                }
+            }
+        }
+        if (commitPolicy == ECommitPolicy.PER_CHUNK) {
+            session.commit();
+        }
+        return count;
+    }
+
+    private void recordStatement(String methodName, String idMarca, long start, Object result, boolean error) {
+        DaoMetrics.recordStatement(getMapperType(), methodName, getConnectionType(), idMarca, start, result, error);
+    }
+
+}
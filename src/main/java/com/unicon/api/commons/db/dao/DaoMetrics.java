@@ -0,0 +1,215 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.ECircuitState;
+import com.unicon.api.commons.db.dao.enums.EParameterCapture;
+import com.unicon.api.commons.db.dao.metrics.DefaultMetricsRegistry;
+import com.unicon.api.commons.db.dao.metrics.MetricKey;
+import com.unicon.api.commons.db.dao.metrics.MetricsRegistry;
+import com.unicon.api.commons.db.dao.metrics.SlowStatementLog;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+
+/**
+ * Acceso al registro de metricas de los DAO.
+ * <p>
+ * Con <code>dao.metrics.enabled=false</code> no se registra nada. <code>dao.metrics.registry</code> permite indicar
+ * la clase de otro {@link MetricsRegistry} con constructor sin parametros; por defecto se usa
+ * {@link DefaultMetricsRegistry} y, con <code>dao.metrics.jmx=true</code>, se publica por JMX como
+ * <code>com.unicon.api.commons.db:type=DaoMetrics</code>.
+ * <p>
+ * El {@link SlowStatementLog} es independiente del registro: con <code>dao.slowlog.enabled=true</code> guarda las
+ * llamadas que superan su umbral aunque las metricas esten desactivadas, y se publica por JMX como
+ * <code>com.unicon.api.commons.db:type=SlowStatements</code>.
+ *
+ * @author acrispin
+ */
+public final class DaoMetrics {
+
+    private static final Logger LOGGER = LogManager.getLogger(DaoMetrics.class);
+    private static final String OBJECT_NAME = "com.unicon.api.commons.db:type=DaoMetrics";
+    private static final String SLOWLOG_OBJECT_NAME = "com.unicon.api.commons.db:type=SlowStatements";
+
+    private static volatile MetricsRegistry registry = createRegistry();
+    private static volatile SlowStatementLog slowLog = createSlowLog();
+
+    private DaoMetrics() {
+    }
+
+    /**
+     * @return registro actual
+     */
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Reemplaza el registro de metricas, por ejemplo al iniciar la aplicacion.
+     *
+     * @param registry registro nuevo, <code>null</code> descarta las metricas
+     */
+    public static void setRegistry(MetricsRegistry registry) {
+        DaoMetrics.registry = registry == null ? MetricsRegistry.NOOP : registry;
+    }
+
+    /**
+     * @return log de sentencias lentas actual, <code>null</code> si esta desactivado
+     */
+    public static SlowStatementLog getSlowLog() {
+        return slowLog;
+    }
+
+    /**
+     * Reemplaza el log de sentencias lentas.
+     *
+     * @param slowLog log nuevo, <code>null</code> lo desactiva
+     */
+    public static void setSlowLog(SlowStatementLog slowLog) {
+        DaoMetrics.slowLog = slowLog;
+    }
+
+    static void recordStatement(Class<?> mapperType, String methodName, Object connectionType, String idMarca,
+                                long startNanos, Object result, boolean error) {
+        long nanos = System.nanoTime() - startNanos;
+        StatementCounter counter = StatementCounter.current();
+        int executions = counter.getExecutions();
+        int prepared = counter.getPrepared();
+        String environment = counter.getEnvironment();
+        Object parameter = counter.getParameter();
+        counter.reset();
+        MetricsRegistry current = registry;
+        SlowStatementLog slow = slowLog;
+        if (current == MetricsRegistry.NOOP && slow == null) {
+            return;
+        }
+        try {
+            MetricKey key = new MetricKey(mapperType.getSimpleName(), methodName, String.valueOf(connectionType), idMarca);
+            int rows = rowsOf(result);
+            if (slow != null) {
+                slow.record(key, environment, nanos, rows, error, parameter);
+            }
+            if (current == MetricsRegistry.NOOP) {
+                return;
+            }
+            current.recordStatement(key, nanos, rows, error);
+            if (executions > 0) {
+                current.recordStatementCache(key, executions, prepared);
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.warn(ex.getMessage(), ex);
+        }
+    }
+
+    static void recordCoalesced(Class<?> mapperType, String methodName, Object connectionType, String idMarca) {
+        MetricsRegistry current = registry;
+        if (current == MetricsRegistry.NOOP) {
+            return;
+        }
+        try {
+            current.recordCoalesced(new MetricKey(mapperType.getSimpleName(), methodName, String.valueOf(connectionType), idMarca));
+        } catch (RuntimeException ex) {
+            LOGGER.warn(ex.getMessage(), ex);
+        }
+    }
+
+    static void recordRejected(Class<?> mapperType, String methodName, Object connectionType, String idMarca) {
+        MetricsRegistry current = registry;
+        if (current == MetricsRegistry.NOOP) {
+            return;
+        }
+        try {
+            current.recordRejected(new MetricKey(mapperType.getSimpleName(), methodName, String.valueOf(connectionType), idMarca));
+        } catch (RuntimeException ex) {
+            LOGGER.warn(ex.getMessage(), ex);
+        }
+    }
+
+    static void recordCircuitTransition(Object connectionType, String idMarca, ECircuitState from, ECircuitState to) {
+        MetricsRegistry current = registry;
+        if (current == MetricsRegistry.NOOP) {
+            return;
+        }
+        try {
+            current.recordCircuitTransition(String.valueOf(connectionType), idMarca, from, to);
+        } catch (RuntimeException ex) {
+            LOGGER.warn(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return filas de un resultado: tamaño de la coleccion, valor de un conteo de DML o 1 por objeto
+     */
+    static int rowsOf(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Integer) {
+            return Math.max(0, (Integer) result);
+        }
+        if (result instanceof int[]) {
+            int rows = 0;
+            for (int count : (int[]) result) {
+                rows += Math.max(0, count);
+            }
+            return rows;
+        }
+        return 1;
+    }
+
+    private static MetricsRegistry createRegistry() {
+        if (!DaoSettings.getBoolean(DaoSettings.METRICS_ENABLED, true)) {
+            return MetricsRegistry.NOOP;
+        }
+        String className = DaoSettings.get(DaoSettings.METRICS_REGISTRY, "");
+        if (!className.isEmpty()) {
+            try {
+                return (MetricsRegistry) Class.forName(className).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException ex) {
+                LOGGER.error("No se pudo crear el registro de metricas '{}', se usara el registro por defecto", className, ex);
+            }
+        }
+        DefaultMetricsRegistry defaultRegistry = new DefaultMetricsRegistry();
+        if (DaoSettings.getBoolean(DaoSettings.METRICS_JMX, true)) {
+            registerMBean(defaultRegistry, OBJECT_NAME);
+        }
+        return defaultRegistry;
+    }
+
+    private static SlowStatementLog createSlowLog() {
+        if (!DaoSettings.getBoolean(DaoSettings.SLOWLOG_ENABLED, true)) {
+            return null;
+        }
+        long threshold = DaoSettings.getLong(DaoSettings.SLOWLOG_THRESHOLD, 1000L);
+        SlowStatementLog log = new SlowStatementLog(
+                DaoSettings.getInt(DaoSettings.SLOWLOG_CAPACITY, 256),
+                threshold,
+                DaoSettings.getDouble(DaoSettings.SLOWLOG_SAMPLE_RATE, 0d),
+                DaoSettings.getEnum(DaoSettings.SLOWLOG_PARAMETERS, EParameterCapture.MASKED),
+                method -> DaoSettings.getLong(DaoSettings.SLOWLOG_THRESHOLD + "." + method, threshold));
+        if (DaoSettings.getBoolean(DaoSettings.METRICS_JMX, true)) {
+            registerMBean(log, SLOWLOG_OBJECT_NAME);
+        }
+        return log;
+    }
+
+    private static void registerMBean(Object mbean, String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+        } catch (JMException | RuntimeException ex) {
+            LOGGER.warn("No se pudo publicar {} por JMX: {}", objectName, ex.getMessage());
+        }
+    }
+}
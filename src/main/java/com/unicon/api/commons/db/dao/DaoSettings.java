@@ -0,0 +1,238 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+/**
+ * Lectura de los parametros de la capa de datos.
+ * <p>
+ * Cada parametro se busca primero como propiedad de sistema (<code>-Ddao.xxx=...</code>) y luego en el
+ * <code>application.properties</code> del classpath; si no existe en ninguno se usa el valor por defecto.
+ *
+ * @author acrispin
+ */
+final class DaoSettings {
+
+    private static final Logger LOGGER = LogManager.getLogger(DaoSettings.class);
+    private static final String BUNDLE = "application";
+
+    /**
+     * Comparte una sola configuracion de mybatis (mapped statements y result maps) entre todos los environments, cada
+     * uno solo con su propio DataSource y TransactionFactory. Los caches de segundo nivel son los mismos objetos, pero
+     * sus llaves incluyen el environment: cada marca solo ve sus filas.
+     */
+    static final String SHARED_CONFIGURATION = "dao.configuration.shared";
+
+    /**
+     * Cantidad de sentencias por bloque en las operaciones por lotes.
+     */
+    static final String BATCH_SIZE = "dao.batch.size";
+
+    /**
+     * Politica de commit de las operaciones por lotes: <code>PER_CHUNK</code> o <code>PER_CALL</code>.
+     */
+    static final String BATCH_COMMIT = "dao.batch.commit";
+
+    /**
+     * Filas por viaje a la base de datos en las consultas con cursor (<code>streamAll</code>, <code>streamList</code>).
+     */
+    static final String STREAM_FETCH_SIZE = "dao.stream.fetchSize";
+
+    /**
+     * Tiempo de vida por defecto de las entradas del cache de <code>selectById</code>.
+     */
+    static final String CACHE_TTL = "dao.cache.ttlMillis";
+
+    /**
+     * Hilos por tipo de conexion e idMarca para las llamadas asincronas.
+     */
+    static final String ASYNC_THREADS = "dao.async.threads";
+
+    /**
+     * Tareas en espera por tipo de conexion e idMarca para las llamadas asincronas; si se llena la llamada se rechaza.
+     */
+    static final String ASYNC_QUEUE = "dao.async.queue";
+
+    /**
+     * Espera maxima de un objeto en el buffer de escritura diferida antes de escribirse.
+     */
+    static final String WRITE_BEHIND_FLUSH = "dao.writeBehind.flushMillis";
+
+    /**
+     * Espera maxima del llamador con el buffer de escritura diferida lleno; despues el objeto se rechaza.
+     */
+    static final String WRITE_BEHIND_OFFER = "dao.writeBehind.offerMillis";
+
+    /**
+     * Switch global de las lecturas en las replicas de solo lectura (<code>{idMarca}-{plataforma}-ro</code>).
+     */
+    static final String REPLICA_ENABLED = "dao.replica.enabled";
+
+    /**
+     * Consulta que devuelve el atraso de la replica en milisegundos; vacia para no verificarlo.
+     */
+    static final String REPLICA_LAG_QUERY = "dao.replica.lagQuery";
+
+    /**
+     * Atraso maximo de la replica; si lo supera las lecturas van al primario.
+     */
+    static final String REPLICA_MAX_LAG = "dao.replica.maxLagMillis";
+
+    /**
+     * Intervalo minimo entre dos verificaciones del atraso de una replica.
+     */
+    static final String REPLICA_LAG_CHECK = "dao.replica.lagCheckMillis";
+
+    /**
+     * Tiempo que una replica que no entrego una conexion queda fuera antes de volver a intentarla.
+     */
+    static final String REPLICA_RETRY = "dao.replica.retryMillis";
+
+    /**
+     * Plazo por defecto de cada llamada de los DAO, 0 sin plazo; la espera de la conexion y el timeout de las
+     * sentencias no lo superan.
+     */
+    static final String TIMEOUT = "dao.timeoutMillis";
+
+    /**
+     * Switch global de los circuitos por tipo de conexion e idMarca.
+     */
+    static final String CIRCUIT_ENABLED = "dao.circuit.enabled";
+
+    /**
+     * Fallas consecutivas de conexion o de timeout que abren el circuito de una marca.
+     */
+    static final String CIRCUIT_FAILURES = "dao.circuit.failureThreshold";
+
+    /**
+     * Tiempo que un circuito queda abierto, rechazando las llamadas, antes de dejar pasar una llamada de prueba.
+     */
+    static final String CIRCUIT_OPEN = "dao.circuit.openMillis";
+
+    /**
+     * Activa el registro de metricas por sentencia.
+     */
+    static final String METRICS_ENABLED = "dao.metrics.enabled";
+
+    /**
+     * Clase del registro de metricas, vacio usa el registro en memoria.
+     */
+    static final String METRICS_REGISTRY = "dao.metrics.registry";
+
+    /**
+     * Publica el registro de metricas en memoria por JMX.
+     */
+    static final String METRICS_JMX = "dao.metrics.jmx";
+
+    /**
+     * Activa el log de sentencias lentas.
+     */
+    static final String SLOWLOG_ENABLED = "dao.slowlog.enabled";
+
+    /**
+     * Umbral por defecto del log de sentencias lentas; <code>dao.slowlog.threshold.{Mapper}.{metodo}</code> define el
+     * umbral de un metodo.
+     */
+    static final String SLOWLOG_THRESHOLD = "dao.slowlog.threshold";
+
+    /**
+     * Fraccion de las llamadas normales que se guardan en el buffer del log de sentencias lentas.
+     */
+    static final String SLOWLOG_SAMPLE_RATE = "dao.slowlog.sampleRate";
+
+    /**
+     * Entradas del buffer del log de sentencias lentas.
+     */
+    static final String SLOWLOG_CAPACITY = "dao.slowlog.capacity";
+
+    /**
+     * Forma de guardar los parametros en el log de sentencias lentas: <code>NONE</code>, <code>MASKED</code> o
+     * <code>FULL</code>.
+     */
+    static final String SLOWLOG_PARAMETERS = "dao.slowlog.parameters";
+
+    /**
+     * Conexiones que <code>DaoApplication.warmUp</code> abre y valida por environment.
+     */
+    static final String WARMUP_CONNECTIONS = "dao.warmup.connections";
+
+    /**
+     * Espera maxima de <code>DaoApplication.warmUp</code> por todos los environments.
+     */
+    static final String WARMUP_TIMEOUT = "dao.warmup.timeoutMillis";
+
+    /**
+     * Environments que <code>DaoApplication.warmUp</code> calienta a la vez.
+     */
+    static final String WARMUP_THREADS = "dao.warmup.threads";
+
+    private DaoSettings() {
+    }
+
+    static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value != null) {
+            return value.trim();
+        }
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle(BUNDLE);
+            if (bundle.containsKey(key)) {
+                return bundle.getString(key).trim();
+            }
+        } catch (MissingResourceException ex) {
+            LOGGER.debug(ex.getMessage());
+        }
+        return defaultValue;
+    }
+
+    static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null || value.isEmpty() ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    static int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            LOGGER.warn("Valor '{}' incorrecto para '{}', se usara {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    static double getDouble(String key, double defaultValue) {
+        String value = get(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            LOGGER.warn("Valor '{}' incorrecto para '{}', se usara {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    static <E extends Enum<E>> E getEnum(String key, E defaultValue) {
+        String value = get(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(defaultValue.getDeclaringClass(), value.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            LOGGER.warn("Valor '{}' incorrecto para '{}', se usara {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+}
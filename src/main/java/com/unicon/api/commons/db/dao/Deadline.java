@@ -0,0 +1,148 @@
+package com.unicon.api.commons.db.dao;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Plazo de una llamada o de un grupo de llamadas, asociado al hilo actual con {@link #execute(long, Supplier)}.
+ * <p>
+ * Mientras el plazo esta activo cada llamada de los DAO en el hilo usa lo que queda de el: la espera de una conexion
+ * en {@link com.unicon.api.commons.db.dao.pool.ConnectionPool} termina al vencer, y cada <code>Statement</code> se
+ * prepara con un <code>setQueryTimeout</code> no mayor al tiempo restante, redondeado hacia arriba a segundos porque
+ * JDBC no admite menos. El plazo es absoluto, de modo que varias llamadas seguidas, por ejemplo dentro de una unidad
+ * de trabajo, comparten el mismo presupuesto. Una llamada que empieza con el plazo vencido falla con
+ * {@link DeadlineExceededException} sin tomar una conexion. Los plazos anidados no extienden al que los contiene y
+ * las llamadas asincronas heredan el plazo del hilo que las crea.
+ * <pre>
+ * List&lt;Pedido&gt; pedidos = Deadline.execute(800, () -&gt; pedidoDao.selectList(params));
+ * </pre>
+ *
+ * @author acrispin
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final long timeoutMillis;
+
+    private Deadline(long deadlineNanos, long timeoutMillis) {
+        this.deadlineNanos = deadlineNanos;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @param timeout tiempo desde ahora
+     * @param unit    unidad de <code>timeout</code>
+     * @return plazo que vence despues de <code>timeout</code>
+     */
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(Math.max(0L, timeout)), unit.toMillis(Math.max(0L, timeout)));
+    }
+
+    /**
+     * @return plazo del hilo actual, <code>null</code> si no hay uno
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Ejecuta <code>work</code> con un plazo de <code>timeoutMillis</code> desde ahora, o con el plazo actual del hilo
+     * si vence antes.
+     *
+     * @param <R>           tipo del resultado
+     * @param timeoutMillis tiempo maximo para todas las llamadas de <code>work</code>
+     * @param work          llamadas a los DAO
+     * @return resultado de <code>work</code>
+     */
+    public static <R> R execute(long timeoutMillis, Supplier<R> work) {
+        return execute(after(timeoutMillis, TimeUnit.MILLISECONDS), work);
+    }
+
+    /**
+     * Ejecuta <code>work</code> con el plazo indicado, o con el plazo actual del hilo si vence antes.
+     *
+     * @param <R>      tipo del resultado
+     * @param deadline plazo, <code>null</code> mantiene el actual
+     * @param work     llamadas a los DAO
+     * @return resultado de <code>work</code>
+     */
+    public static <R> R execute(Deadline deadline, Supplier<R> work) {
+        Deadline previous = CURRENT.get();
+        if (deadline == null || previous != null && previous.deadlineNanos - deadline.deadlineNanos <= 0) {
+            return work.get();
+        }
+        CURRENT.set(deadline);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * El mensaje se arma solo si el plazo vencio, para no crear un <code>String</code> en cada llamada.
+     *
+     * @param action accion que no se llego a completar, por ejemplo <code>"ejecutar "</code>
+     * @param target objeto de la accion, por ejemplo el methodName
+     * @throws DeadlineExceededException si el plazo del hilo actual ya vencio
+     */
+    static void check(String action, String target) {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null && deadline.isExpired()) {
+            throw deadline.exceeded(action + target);
+        }
+    }
+
+    /**
+     * @return tiempo restante, negativo si ya vencio
+     */
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * @return tiempo restante en milisegundos, 0 si ya vencio
+     */
+    public long remainingMillis() {
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(remainingNanos()));
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Baja el timeout del statement al tiempo restante si el que tiene es mayor o no tiene.
+     *
+     * @throws SQLException si el driver no acepta el timeout
+     */
+    void applyTo(Statement statement) throws SQLException {
+        long remaining = remainingNanos();
+        int seconds = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, (remaining + 999_999_999L) / 1_000_000_000L));
+        int current = statement.getQueryTimeout();
+        if (current == 0 || seconds < current) {
+            statement.setQueryTimeout(seconds);
+        }
+    }
+
+    /**
+     * @param what accion que no se llego a completar, para el mensaje
+     * @return excepcion que indica que el plazo vencio antes de <code>what</code>
+     */
+    public DeadlineExceededException exceeded(String what) {
+        return new DeadlineExceededException(String.format("Plazo de %d ms vencido antes de %s", timeoutMillis, what));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Deadline[%d de %d ms]", remainingMillis(), timeoutMillis);
+    }
+}
@@ -0,0 +1,17 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+
+/**
+ * Llamada que no se ejecuto porque el plazo ({@link Deadline}) del hilo ya habia vencido.
+ *
+ * @author acrispin
+ */
+public class DeadlineExceededException extends PersistenceException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
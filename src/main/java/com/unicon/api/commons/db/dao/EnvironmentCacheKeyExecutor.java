@@ -0,0 +1,116 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Executor que agrega el id del environment a cada <code>CacheKey</code>.
+ * <p>
+ * Con la configuracion compartida todos los environments usan el mismo <code>Cache</code> de cada namespace y
+ * <code>getConfiguration().getEnvironment()</code> es <code>null</code>, por lo que mybatis arma la misma llave para
+ * la misma consulta en dos marcas. {@link EnvironmentSqlSessionFactory} lo coloca entre el
+ * <code>CachingExecutor</code> y el executor base, de modo que el cache de segundo nivel y el cache local separan
+ * las filas de cada environment.
+ *
+ * @author acrispin
+ */
+final class EnvironmentCacheKeyExecutor implements Executor {
+
+    private final Executor delegate;
+    private final String environmentId;
+
+    EnvironmentCacheKeyExecutor(Executor delegate, String environmentId) {
+        this.delegate = delegate;
+        this.environmentId = environmentId;
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        CacheKey key = delegate.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+        key.update(environmentId);
+        return key;
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter) throws SQLException {
+        return delegate.update(ms, parameter);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             CacheKey cacheKey, BoundSql boundSql) throws SQLException {
+        return delegate.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        return delegate.query(ms, parameter, rowBounds, resultHandler, createCacheKey(ms, parameter, rowBounds, boundSql), boundSql);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        delegate.commit(required);
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        delegate.rollback(required);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return delegate.isCached(ms, key);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        delegate.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        delegate.close(forceRollback);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        delegate.setExecutorWrapper(executor);
+    }
+}
@@ -0,0 +1,177 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.CachingExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ReuseExecutor;
+import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * <code>SqlSessionFactory</code> de un environment que usa una {@link Configuration} compartida con otros
+ * environments. Abre las sesiones igual que <code>DefaultSqlSessionFactory</code>, pero con su propio
+ * {@link Environment} en lugar del de la configuracion.
+ * <p>
+ * La configuracion compartida no tiene environment, por lo que <code>getConfiguration().getEnvironment()</code>
+ * devuelve <code>null</code>; usar {@link #getEnvironment()}. Por la misma razon no se soporta la carga diferida
+ * (<code>lazyLoadingEnabled</code>) de mybatis.
+ * <p>
+ * El cache de segundo nivel de cada namespace (<code>&lt;cache/&gt;</code> o <code>@CacheNamespace</code>) es un
+ * solo objeto para todos los environments; las sesiones de este factory agregan el id del environment a las llaves
+ * con {@link EnvironmentCacheKeyExecutor}, de modo que una marca nunca lee las filas de otra. Un
+ * <code>flushCache</code> de cualquier environment vacia el namespace para todos.
+ *
+ * @author acrispin
+ */
+final class EnvironmentSqlSessionFactory implements SqlSessionFactory {
+
+    private final Configuration configuration;
+    private final Environment environment;
+
+    EnvironmentSqlSessionFactory(Configuration configuration, Environment environment) {
+        this.configuration = configuration;
+        this.environment = environment;
+    }
+
+    /**
+     * @return environment propio de este factory
+     */
+    Environment getEnvironment() {
+        return environment;
+    }
+
+    @Override
+    public SqlSession openSession() {
+        return openSessionFromDataSource(configuration.getDefaultExecutorType(), null, false);
+    }
+
+    @Override
+    public SqlSession openSession(boolean autoCommit) {
+        return openSessionFromDataSource(configuration.getDefaultExecutorType(), null, autoCommit);
+    }
+
+    @Override
+    public SqlSession openSession(ExecutorType execType) {
+        return openSessionFromDataSource(execType, null, false);
+    }
+
+    @Override
+    public SqlSession openSession(TransactionIsolationLevel level) {
+        return openSessionFromDataSource(configuration.getDefaultExecutorType(), level, false);
+    }
+
+    @Override
+    public SqlSession openSession(ExecutorType execType, TransactionIsolationLevel level) {
+        return openSessionFromDataSource(execType, level, false);
+    }
+
+    @Override
+    public SqlSession openSession(ExecutorType execType, boolean autoCommit) {
+        return openSessionFromDataSource(execType, null, autoCommit);
+    }
+
+    @Override
+    public SqlSession openSession(Connection connection) {
+        return openSessionFromConnection(configuration.getDefaultExecutorType(), connection);
+    }
+
+    @Override
+    public SqlSession openSession(ExecutorType execType, Connection connection) {
+        return openSessionFromConnection(execType, connection);
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit) {
+        Transaction tx = null;
+        try {
+            tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), level, autoCommit);
+            Executor executor = newExecutor(tx, execType);
+            return new DefaultSqlSession(configuration, executor, autoCommit);
+        } catch (Exception ex) {
+            closeTransaction(tx);
+            throw ExceptionFactory.wrapException("Error opening session.  Cause: " + ex, ex);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    private SqlSession openSessionFromConnection(ExecutorType execType, Connection connection) {
+        try {
+            boolean autoCommit;
+            try {
+                autoCommit = connection.getAutoCommit();
+            } catch (SQLException ex) {
+                autoCommit = true;
+            }
+            Transaction tx = environment.getTransactionFactory().newTransaction(connection);
+            Executor executor = newExecutor(tx, execType);
+            return new DefaultSqlSession(configuration, executor, autoCommit);
+        } catch (Exception ex) {
+            throw ExceptionFactory.wrapException("Error opening session.  Cause: " + ex, ex);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    private Executor newExecutor(Transaction tx, ExecutorType execType) {
+        return newExecutor(configuration, tx, execType, environment.getId(), configuration.isCacheEnabled());
+    }
+
+    /**
+     * Igual a <code>Configuration.newExecutor</code>, con {@link EnvironmentCacheKeyExecutor} debajo del
+     * <code>CachingExecutor</code>.
+     *
+     * @param environmentId id que se agrega a las llaves del cache, <code>null</code> si la configuracion tiene su
+     *                      propio environment
+     * @param caching       false para no usar el cache de segundo nivel, como en las sesiones de
+     *                      {@link TransactionScope}
+     */
+    static Executor newExecutor(Configuration configuration, Transaction tx, ExecutorType execType, String environmentId, boolean caching) {
+        ExecutorType type = execType == null ? configuration.getDefaultExecutorType() : execType;
+        Executor executor;
+        if (type == ExecutorType.BATCH) {
+            executor = new BatchExecutor(configuration, tx);
+        } else if (type == ExecutorType.REUSE) {
+            executor = new ReuseExecutor(configuration, tx);
+        } else {
+            executor = new SimpleExecutor(configuration, tx);
+        }
+        if (environmentId != null) {
+            executor = new EnvironmentCacheKeyExecutor(executor, environmentId);
+        }
+        if (caching) {
+            executor = new CachingExecutor(executor);
+        }
+        for (Interceptor interceptor : configuration.getInterceptors()) {
+            executor = (Executor) interceptor.plugin(executor);
+        }
+        return executor;
+    }
+
+    private static void closeTransaction(Transaction tx) {
+        if (tx != null) {
+            try {
+                tx.close();
+            } catch (SQLException ignore) {
+                // se prioriza la excepcion original
+            }
+        }
+    }
+}
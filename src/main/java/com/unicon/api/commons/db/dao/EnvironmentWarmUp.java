@@ -0,0 +1,168 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import com.unicon.api.commons.db.dao.warmup.EnvironmentReadiness;
+import com.unicon.api.commons.db.dao.warmup.WarmUpReport;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Calentamiento de los environments: construye en paralelo el <code>SqlSessionFactory</code> de cada uno, abre a la
+ * vez <code>connections</code> conexiones y las valida con <code>Connection.isValid</code>, de modo que el pool
+ * quede con ellas creadas, y enlaza por adelantado los metodos de los mappers registrados.
+ * <p>
+ * Un environment que no termina dentro de <code>timeoutMillis</code> se informa como no listo; su construccion sigue
+ * en un hilo daemon y queda disponible para la primera llamada que lo necesite.
+ *
+ * @author acrispin
+ */
+final class EnvironmentWarmUp {
+
+    private static final Logger LOGGER = LogManager.getLogger(EnvironmentWarmUp.class);
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private EnvironmentWarmUp() {
+    }
+
+    /**
+     * Environment a calentar.
+     */
+    static final class Target {
+        private final String environment;
+        private final EConnectionType type;
+        private final String idMarca;
+        private final boolean replica;
+        private final Supplier<SqlSessionFactory> factory;
+
+        /**
+         * @param environment id del environment
+         * @param type        tipo de conexion
+         * @param idMarca     marca, vacia en <code>SINGLE</code>
+         * @param replica     true si es una replica de solo lectura
+         * @param factory     obtiene el factory del registro, construyendolo si hace falta
+         */
+        Target(String environment, EConnectionType type, String idMarca, boolean replica, Supplier<SqlSessionFactory> factory) {
+            this.environment = environment;
+            this.type = type;
+            this.idMarca = idMarca == null ? "" : idMarca;
+            this.replica = replica;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * @param targets       environments a calentar
+     * @param connections   conexiones a abrir y validar por environment
+     * @param timeoutMillis espera maxima por todos los environments
+     * @param threads       environments que se calientan a la vez
+     * @return resultado por environment, en el orden de <code>targets</code>
+     */
+    static WarmUpReport run(List<Target> targets, int connections, long timeoutMillis, int threads) {
+        long start = System.nanoTime();
+        int size = Math.max(1, Math.min(threads, targets.size()));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "dao-warmup-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<EnvironmentReadiness>> futures = new ArrayList<>(targets.size());
+        try {
+            for (Target target : targets) {
+                futures.add(executor.submit(() -> warmUp(target, connections, timeoutMillis)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<EnvironmentReadiness> environments = new ArrayList<>(targets.size());
+        for (int i = 0; i < targets.size(); i++) {
+            Target target = targets.get(i);
+            EnvironmentReadiness readiness;
+            try {
+                readiness = futures.get(i).get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                readiness = failed(target, start, String.format("sin terminar despues de %d ms", timeoutMillis));
+            } catch (ExecutionException | CancellationException ex) {
+                readiness = failed(target, start, String.valueOf(ex.getCause() == null ? ex : ex.getCause()));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                readiness = failed(target, start, "calentamiento interrumpido");
+            }
+            environments.add(readiness);
+        }
+        WarmUpReport report = new WarmUpReport(environments, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (report.isReady()) {
+            LOGGER.info("{}", report);
+        } else {
+            LOGGER.warn("{}", report);
+        }
+        return report;
+    }
+
+    private static EnvironmentReadiness warmUp(Target target, int connections, long timeoutMillis) {
+        long start = System.nanoTime();
+        SqlSessionFactory ssf;
+        try {
+            ssf = target.factory.get();
+            if (ssf == null) {
+                return failed(target, start, "environment no declarado");
+            }
+        } catch (RuntimeException ex) {
+            return failed(target, start, ex.getMessage());
+        }
+        long built = System.nanoTime();
+        int methods = 0;
+        for (Class<?> mapperType : ssf.getConfiguration().getMapperRegistry().getMappers()) {
+            methods += MapperDispatcher.preload(mapperType);
+        }
+
+        long validateStart = System.nanoTime();
+        int timeoutSeconds = (int) Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis));
+        List<SqlSession> sessions = new ArrayList<>(connections);
+        String error = null;
+        try {
+            for (int i = 0; i < connections; i++) {
+                SqlSession session = ssf.openSession(true);
+                sessions.add(session);
+                Connection connection = session.getConnection();
+                if (!connection.isValid(timeoutSeconds)) {
+                    error = String.format("conexion %d de %d no valida", i + 1, connections);
+                    break;
+                }
+            }
+        } catch (RuntimeException | SQLException ex) {
+            error = ex.getMessage();
+        } finally {
+            for (SqlSession session : sessions) {
+                session.close();
+            }
+        }
+        long end = System.nanoTime();
+        return new EnvironmentReadiness(target.environment, target.type.name(), target.idMarca, target.replica,
+                error == null, TimeUnit.NANOSECONDS.toMillis(built - start), TimeUnit.NANOSECONDS.toMillis(end - validateStart),
+                error == null ? connections : 0, methods, error);
+    }
+
+    private static EnvironmentReadiness failed(Target target, long start, String error) {
+        return new EnvironmentReadiness(target.environment, target.type.name(), target.idMarca, target.replica, false,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), 0L, 0, 0, error);
+    }
+}
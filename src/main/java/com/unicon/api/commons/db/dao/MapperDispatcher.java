@@ -0,0 +1,272 @@
+package com.unicon.api.commons.db.dao;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tabla de despacho de los metodos de los mappers de mybatis.
+ * <p>
+ * Resuelve una sola vez, por tipo de mapper, nombre de metodo y firma de parametros, el metodo de la interfaz del
+ * mapper y lo enlaza como {@link MapperInvoker}. La firma se compara por asignacion, de modo que un
+ * <code>Integer</code> resuelve un parametro <code>int</code> y un <code>HashMap</code> resuelve un parametro
+ * <code>Map</code>; un argumento <code>null</code> acepta cualquier parametro que no sea primitivo.
+ * Las llamadas siguientes con la misma firma solo recorren un arreglo pequeño y no crean objetos.
+ *
+ * @author acrispin
+ */
+final class MapperDispatcher {
+
+    private static final ClassValue<MapperMethods> MAPPERS = new ClassValue<MapperMethods>() {
+        @Override
+        protected MapperMethods computeValue(Class<?> type) {
+            return new MapperMethods(type);
+        }
+    };
+
+    private MapperDispatcher() {
+    }
+
+    /**
+     * Resuelve el metodo segun las clases de los argumentos recibidos.
+     *
+     * @param mapperType interfaz del mapper
+     * @param methodName nombre del metodo
+     * @param args       argumentos de la llamada
+     * @return invocador del metodo
+     * @throws NoSuchMethodException  si no existe un metodo aplicable o hay mas de uno igual de especifico
+     * @throws IllegalAccessException si el metodo no se puede enlazar
+     */
+    static MapperInvoker resolve(Class<?> mapperType, String methodName, Object[] args)
+            throws NoSuchMethodException, IllegalAccessException {
+        return MAPPERS.get(mapperType).resolve(methodName, args);
+    }
+
+    /**
+     * Resuelve un metodo de un solo parametro segun el tipo declarado.
+     *
+     * @param mapperType interfaz del mapper
+     * @param methodName nombre del metodo
+     * @param paramType  tipo del parametro, <code>null</code> acepta cualquier tipo no primitivo
+     * @return invocador del metodo
+     * @throws NoSuchMethodException  si no existe un metodo aplicable o hay mas de uno igual de especifico
+     * @throws IllegalAccessException si el metodo no se puede enlazar
+     */
+    static MapperInvoker resolve(Class<?> mapperType, String methodName, Class<?> paramType)
+            throws NoSuchMethodException, IllegalAccessException {
+        return MAPPERS.get(mapperType).resolve(methodName, paramType);
+    }
+
+    /**
+     * Enlaza por adelantado todos los metodos del mapper con la firma que declaran, de modo que la primera llamada
+     * no pague la busqueda ni el enlace del metodo. Los metodos con una firma ambigua se omiten.
+     *
+     * @param mapperType interfaz del mapper
+     * @return metodos enlazados
+     */
+    static int preload(Class<?> mapperType) {
+        return MAPPERS.get(mapperType).preload();
+    }
+
+    private static final class Binding {
+        private final Class<?>[] signature;
+        private final MapperInvoker invoker;
+
+        private Binding(Class<?>[] signature, MapperInvoker invoker) {
+            this.signature = signature;
+            this.invoker = invoker;
+        }
+
+        private boolean matches(Object[] args) {
+            if (signature.length != args.length) {
+                return false;
+            }
+            for (int i = 0; i < args.length; i++) {
+                Object arg = args[i];
+                if ((arg == null ? null : arg.getClass()) != signature[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(Class<?> paramType) {
+            return signature.length == 1 && signature[0] == paramType;
+        }
+    }
+
+    private static final class MapperMethods {
+        private final Class<?> mapperType;
+        private final ConcurrentMap<String, Binding[]> bindings = new ConcurrentHashMap<>();
+        private final Map<Method, MapperInvoker> invokers = new HashMap<>();
+
+        private MapperMethods(Class<?> mapperType) {
+            this.mapperType = mapperType;
+        }
+
+        private MapperInvoker resolve(String methodName, Object[] args)
+                throws NoSuchMethodException, IllegalAccessException {
+            Binding[] current = bindings.get(methodName);
+            if (current != null) {
+                for (Binding binding : current) {
+                    if (binding.matches(args)) {
+                        return binding.invoker;
+                    }
+                }
+            }
+            Class<?>[] signature = new Class<?>[args.length];
+            for (int i = 0; i < args.length; i++) {
+                signature[i] = args[i] == null ? null : args[i].getClass();
+            }
+            return bind(methodName, signature);
+        }
+
+        private MapperInvoker resolve(String methodName, Class<?> paramType)
+                throws NoSuchMethodException, IllegalAccessException {
+            Binding[] current = bindings.get(methodName);
+            if (current != null) {
+                for (Binding binding : current) {
+                    if (binding.matches(paramType)) {
+                        return binding.invoker;
+                    }
+                }
+            }
+            return bind(methodName, new Class<?>[]{paramType});
+        }
+
+        private synchronized int preload() {
+            int count = 0;
+            for (Method method : mapperType.getMethods()) {
+                if (Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+                Class<?>[] signature = method.getParameterTypes().clone();
+                for (int i = 0; i < signature.length; i++) {
+                    signature[i] = wrap(signature[i]);
+                }
+                try {
+                    bind(method.getName(), signature);
+                    count++;
+                } catch (NoSuchMethodException | IllegalAccessException ex) {
+                    // firma ambigua o metodo no enlazable: se resuelve en la primera llamada, como antes
+                }
+            }
+            return count;
+        }
+
+        private synchronized MapperInvoker bind(String methodName, Class<?>[] signature)
+                throws NoSuchMethodException, IllegalAccessException {
+            Binding[] current = bindings.get(methodName);
+            if (current != null) {
+                for (Binding binding : current) {
+                    if (Arrays.equals(binding.signature, signature)) {
+                        return binding.invoker;
+                    }
+                }
+            }
+            Method method = findMethod(methodName, signature);
+            MapperInvoker invoker = invokers.get(method);
+            if (invoker == null) {
+                invoker = MapperInvoker.of(method);
+                invokers.put(method, invoker);
+            }
+            Binding[] next = current == null ? new Binding[1] : Arrays.copyOf(current, current.length + 1);
+            next[next.length - 1] = new Binding(signature, invoker);
+            bindings.put(methodName, next);
+            return invoker;
+        }
+
+        private Method findMethod(String methodName, Class<?>[] signature) throws NoSuchMethodException {
+            List<Method> candidates = new ArrayList<>();
+            for (Method method : mapperType.getMethods()) {
+                if (method.getName().equals(methodName)
+                        && !Modifier.isStatic(method.getModifiers())
+                        && isApplicable(method.getParameterTypes(), signature)) {
+                    candidates.add(method);
+                }
+            }
+            if (candidates.isEmpty()) {
+                throw new NoSuchMethodException(String.format("%s.%s%s",
+                        mapperType.getName(), methodName, Arrays.toString(signature)));
+            }
+            Method best = null;
+            for (Method candidate : candidates) {
+                if (best == null || isMoreSpecific(candidate, best)) {
+                    best = candidate;
+                }
+            }
+            for (Method candidate : candidates) {
+                if (candidate != best
+                        && !Arrays.equals(candidate.getParameterTypes(), best.getParameterTypes())
+                        && !isMoreSpecific(best, candidate)) {
+                    throw new NoSuchMethodException(String.format("Llamada ambigua %s.%s%s: %s, %s",
+                            mapperType.getName(), methodName, Arrays.toString(signature), best, candidate));
+                }
+            }
+            return best;
+        }
+
+        private static boolean isApplicable(Class<?>[] parameterTypes, Class<?>[] signature) {
+            if (parameterTypes.length != signature.length) {
+                return false;
+            }
+            for (int i = 0; i < signature.length; i++) {
+                Class<?> param = parameterTypes[i];
+                Class<?> arg = signature[i];
+                if (arg == null) {
+                    if (param.isPrimitive()) {
+                        return false;
+                    }
+                } else if (!wrap(param).isAssignableFrom(wrap(arg))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isMoreSpecific(Method a, Method b) {
+            Class<?>[] pa = a.getParameterTypes();
+            Class<?>[] pb = b.getParameterTypes();
+            if (Arrays.equals(pa, pb)) {
+                // misma firma redeclarada en una sub interfaz o con retorno covariante
+                return !a.isBridge() && b.getDeclaringClass().isAssignableFrom(a.getDeclaringClass());
+            }
+            for (int i = 0; i < pa.length; i++) {
+                if (!wrap(pb[i]).isAssignableFrom(wrap(pa[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Class<?> wrap(Class<?> type) {
+            if (!type.isPrimitive()) {
+                return type;
+            }
+            if (type == int.class) {
+                return Integer.class;
+            } else if (type == long.class) {
+                return Long.class;
+            } else if (type == boolean.class) {
+                return Boolean.class;
+            } else if (type == double.class) {
+                return Double.class;
+            } else if (type == float.class) {
+                return Float.class;
+            } else if (type == short.class) {
+                return Short.class;
+            } else if (type == byte.class) {
+                return Byte.class;
+            } else if (type == char.class) {
+                return Character.class;
+            }
+            return Void.class;
+        }
+    }
+}
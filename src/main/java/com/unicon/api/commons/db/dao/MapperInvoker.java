@@ -0,0 +1,144 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.Configuration;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Metodo de un mapper ya resuelto y enlazado como {@link MethodHandle}.
+ * <p>
+ * Las instancias son inmutables y se comparten entre hilos; las crea y guarda {@link MapperDispatcher}.
+ *
+ * @author acrispin
+ */
+final class MapperInvoker {
+
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+    private static final MethodType SINGLE_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+
+    private final Method method;
+    private final MethodHandle spread;
+    private final MethodHandle single;
+    private volatile ParamResolver paramResolver;
+
+    private MapperInvoker(Method method, MethodHandle spread, MethodHandle single) {
+        this.method = method;
+        this.spread = spread;
+        this.single = single;
+    }
+
+    static MapperInvoker of(Method method) throws IllegalAccessException {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException ex) {
+            // mapper no publico, se replica lo que permitia Method.invoke con setAccessible
+            method.setAccessible(true);
+            handle = MethodHandles.lookup().unreflect(method);
+        }
+        int arity = method.getParameterCount();
+        MethodHandle spread = handle.asSpreader(Object[].class, arity).asType(SPREAD_TYPE);
+        MethodHandle single = arity == 1 ? handle.asType(SINGLE_TYPE) : null;
+        return new MapperInvoker(method, spread, single);
+    }
+
+    /**
+     * @return metodo de la interfaz del mapper al que apunta este invocador
+     */
+    Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return cantidad de parametros del metodo
+     */
+    int getParameterCount() {
+        return method.getParameterCount();
+    }
+
+    /**
+     * @param mapper instancia del mapper (proxy de mybatis)
+     * @param args   argumentos, debe coincidir con la cantidad de parametros del metodo
+     * @return resultado del metodo, <code>null</code> si es <code>void</code>
+     * @throws InvocationTargetException si el metodo lanza una excepcion verificada
+     */
+    Object invoke(Object mapper, Object[] args) throws InvocationTargetException {
+        try {
+            return spread.invokeExact(mapper, args);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new InvocationTargetException(ex);
+        }
+    }
+
+    /**
+     * Invoca un metodo de un solo parametro sin crear el arreglo de argumentos.
+     *
+     * @param mapper instancia del mapper (proxy de mybatis)
+     * @param arg    argumento unico
+     * @return resultado del metodo, <code>null</code> si es <code>void</code>
+     * @throws InvocationTargetException si el metodo lanza una excepcion verificada
+     */
+    Object invokeSingle(Object mapper, Object arg) throws InvocationTargetException {
+        if (single == null) {
+            return invoke(mapper, new Object[]{arg});
+        }
+        try {
+            return single.invokeExact(mapper, arg);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new InvocationTargetException(ex);
+        }
+    }
+
+    /**
+     * Convierte los argumentos al parametro que mybatis pasa al mapped statement, igual que el proxy del mapper.
+     *
+     * @param configuration configuracion de la sesion
+     * @param args          argumentos de la llamada
+     * @return parametro para <code>SqlSession</code>
+     */
+    Object toStatementParameter(Configuration configuration, Object[] args) {
+        ParamResolver resolver = paramResolver;
+        if (resolver == null || resolver.configuration != configuration) {
+            resolver = new ParamResolver(configuration, new ParamNameResolver(configuration, method));
+            paramResolver = resolver;
+        }
+        return resolver.resolver.getNamedParams(args);
+    }
+
+    /**
+     * @param mapperType    interfaz del mapper usada en la llamada
+     * @param configuration configuracion de la sesion
+     * @return id del mapped statement asociado al metodo
+     */
+    String getStatementId(Class<?> mapperType, Configuration configuration) {
+        String statementId = mapperType.getName() + "." + method.getName();
+        if (!configuration.hasStatement(statementId)) {
+            statementId = method.getDeclaringClass().getName() + "." + method.getName();
+        }
+        return statementId;
+    }
+
+    private static final class ParamResolver {
+        private final Configuration configuration;
+        private final ParamNameResolver resolver;
+
+        private ParamResolver(Configuration configuration, ParamNameResolver resolver) {
+            this.configuration = configuration;
+            this.resolver = resolver;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return method.toString();
+    }
+}
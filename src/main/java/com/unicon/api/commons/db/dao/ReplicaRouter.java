@@ -0,0 +1,185 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Estado de la replica de solo lectura de un tipo de conexion e idMarca, compartido por todos sus DAO.
+ * <p>
+ * Una lectura va a la replica solo si el switch global esta activo, no hay una unidad de trabajo abierta sobre el
+ * primario en el hilo y la replica esta disponible. La sesion de la replica toma su conexion al abrirse; si no la
+ * consigue (environment mal declarado, servidor caido, pool agotado) la replica queda fuera por
+ * <code>dao.replica.retryMillis</code> y la lectura va al primario. Con una consulta de atraso configurada, como
+ * maximo una vez cada <code>dao.replica.lagCheckMillis</code> una lectura la ejecuta sobre su propia conexion; si el
+ * atraso supera el maximo las lecturas van al primario hasta la siguiente verificacion.
+ *
+ * @author acrispin
+ */
+final class ReplicaRouter {
+
+    private static final Logger LOGGER = LogManager.getLogger(ReplicaRouter.class);
+    static final String LAG_QUERY = DaoSettings.get(DaoSettings.REPLICA_LAG_QUERY, "");
+    static final long MAX_LAG = DaoSettings.getLong(DaoSettings.REPLICA_MAX_LAG, 5000L);
+    private static final long LAG_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(DaoSettings.getLong(DaoSettings.REPLICA_LAG_CHECK, 1000L));
+    private static final long RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(DaoSettings.getLong(DaoSettings.REPLICA_RETRY, 30000L));
+    private static final Map<EConnectionType, ConcurrentMap<String, ReplicaRouter>> ROUTERS = new EnumMap<>(EConnectionType.class);
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+    private static volatile boolean enabled = DaoSettings.getBoolean(DaoSettings.REPLICA_ENABLED, true);
+
+    static {
+        for (EConnectionType type : EConnectionType.values()) {
+            ROUTERS.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    private final String name;
+    private final AtomicLong nextLagCheck = new AtomicLong(System.nanoTime());
+    private volatile long downUntil;
+    private volatile boolean down;
+    private volatile boolean lagging;
+
+    private ReplicaRouter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param type    tipo de conexion
+     * @param idMarca marca, se ignora en <code>SINGLE</code>
+     * @return estado de la replica de la llave
+     */
+    static ReplicaRouter get(EConnectionType type, String idMarca) {
+        String key = type == EConnectionType.SINGLE || idMarca == null ? "" : idMarca;
+        ConcurrentMap<String, ReplicaRouter> byMarca = ROUTERS.get(type);
+        ReplicaRouter router = byMarca.get(key);
+        if (router == null) {
+            router = byMarca.computeIfAbsent(key, k -> new ReplicaRouter(k.isEmpty() ? type.name() : type.name() + "-" + k));
+        }
+        return router;
+    }
+
+    /**
+     * @param primary factory del primario de la lectura
+     * @return true si la lectura puede ir a una replica
+     */
+    static boolean isRoutable(SqlSessionFactory primary) {
+        return enabled && PRIMARY.get() == null && (!TransactionScope.isActive() || TransactionScope.current(primary) == null);
+    }
+
+    static void setEnabled(boolean value) {
+        enabled = value;
+        LOGGER.info("Lecturas en replica {}", value ? "activadas" : "desactivadas");
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ejecuta <code>work</code> con todas las lecturas del hilo actual en el primario.
+     */
+    static <R> R onPrimary(Supplier<R> work) {
+        if (PRIMARY.get() != null) {
+            return work.get();
+        }
+        PRIMARY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            PRIMARY.remove();
+        }
+    }
+
+    /**
+     * @param replica      factory de la replica, se obtiene solo si la replica esta disponible
+     * @param executorType executor de la sesion, <code>null</code> para el de la configuracion
+     * @param lagQuery     consulta que devuelve el atraso de la replica en milisegundos, vacia para no verificarlo
+     * @param maxLagMillis atraso maximo
+     * @return sesion sobre la replica con su conexion ya tomada, <code>null</code> si la lectura debe ir al primario
+     */
+    SqlSession open(Supplier<SqlSessionFactory> replica, ExecutorType executorType, String lagQuery, long maxLagMillis) {
+        long now = System.nanoTime();
+        if (down && now - downUntil < 0) {
+            return null;
+        }
+        boolean checkLag = lagQuery != null && !lagQuery.isEmpty() && claimLagCheck(now);
+        if (lagging && !checkLag) {
+            return null;
+        }
+        SqlSession session = null;
+        try {
+            SqlSessionFactory ssf = replica.get();
+            if (ssf == null) {
+                return null;
+            }
+            session = executorType == null ? ssf.openSession(true) : ssf.openSession(executorType, true);
+            StatementCounter.current().environment(ssf);
+            Connection connection = session.getConnection();
+            if (checkLag) {
+                updateLag(connection, lagQuery, maxLagMillis);
+            }
+            if (down) {
+                down = false;
+                LOGGER.info("Replica {} disponible otra vez", name);
+            }
+            if (lagging) {
+                session.close();
+                return null;
+            }
+            return session;
+        } catch (RuntimeException | SQLException ex) {
+            if (session != null) {
+                session.close();
+            }
+            downUntil = System.nanoTime() + RETRY_NANOS;
+            down = true;
+            LOGGER.warn("Replica {} no disponible, las lecturas van al primario por {} ms: {}",
+                    name, TimeUnit.NANOSECONDS.toMillis(RETRY_NANOS), ex.getMessage());
+            return null;
+        }
+    }
+
+    boolean isDown() {
+        return down && System.nanoTime() - downUntil < 0;
+    }
+
+    boolean isLagging() {
+        return lagging;
+    }
+
+    private boolean claimLagCheck(long now) {
+        long next = nextLagCheck.get();
+        return now - next >= 0 && nextLagCheck.compareAndSet(next, now + LAG_CHECK_NANOS);
+    }
+
+    private void updateLag(Connection connection, String lagQuery, long maxLagMillis) throws SQLException {
+        long lag;
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(lagQuery)) {
+            lag = rs.next() ? rs.getLong(1) : 0L;
+        }
+        boolean behind = lag > maxLagMillis;
+        if (behind != lagging) {
+            lagging = behind;
+            if (behind) {
+                LOGGER.warn("Replica {} atrasada {} ms (maximo {} ms), las lecturas van al primario", name, lag, maxLagMillis);
+            } else {
+                LOGGER.info("Replica {} al dia ({} ms de atraso), las lecturas vuelven a la replica", name, lag);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Acciones que se ejecutan cuando termina la transaccion de una <code>SqlSession</code> que maneja el llamador.
+ * <p>
+ * Un DAO que recibe la sesion no sabe cuando el llamador hace commit. Con {@link #execute(Object, Runnable, Supplier)}
+ * la accion queda pendiente en el hilo mientras corre la sentencia; {@link StatementInterceptor} la asocia al
+ * executor de la sesion cuando ejecuta el <code>update</code> y la corre despues del <code>commit</code>, el
+ * <code>rollback</code> o el <code>close</code> de ese executor. Si el plugin no esta registrado la accion no se
+ * ejecuta.
+ *
+ * @author acrispin
+ */
+final class SessionCompletion {
+
+    private static final Logger LOGGER = LogManager.getLogger(SessionCompletion.class);
+    private static final ThreadLocal<Map<Object, Runnable>> PENDING = new ThreadLocal<>();
+
+    /**
+     * Sin bloqueo global, se consulta en cada commit, rollback y close. Los executor de mybatis no redefinen
+     * <code>equals</code>, asi que las llaves se comparan por identidad; cada entrada se quita al terminar la
+     * transaccion o al cerrar la sesion.
+     */
+    private static final ConcurrentMap<Executor, Map<Object, Runnable>> BY_EXECUTOR = new ConcurrentHashMap<>();
+
+    private SessionCompletion() {
+    }
+
+    /**
+     * Ejecuta <code>work</code> dejando <code>action</code> pendiente para el fin de la transaccion de la sesion
+     * que ejecute un <code>update</code> dentro de <code>work</code>.
+     *
+     * @param key    llave de la accion, una misma llave se ejecuta una sola vez por transaccion
+     * @param action accion a ejecutar despues del commit o rollback
+     * @param work   sentencia sobre la sesion del llamador
+     * @param <R>    tipo del resultado
+     * @return resultado de <code>work</code>
+     */
+    static <R> R execute(Object key, Runnable action, Supplier<R> work) {
+        Map<Object, Runnable> previous = PENDING.get();
+        Map<Object, Runnable> actions = new LinkedHashMap<>(4);
+        actions.put(key, action);
+        PENDING.set(actions);
+        try {
+            return work.get();
+        } finally {
+            PENDING.set(previous);
+        }
+    }
+
+    /**
+     * Asocia al executor las acciones pendientes del hilo, despues de cada <code>update</code>.
+     */
+    static void bind(Executor executor) {
+        Map<Object, Runnable> actions = PENDING.get();
+        if (actions == null) {
+            return;
+        }
+        BY_EXECUTOR.compute(executor, (key, bound) -> {
+            Map<Object, Runnable> merged = bound == null ? new LinkedHashMap<>(4) : bound;
+            for (Map.Entry<Object, Runnable> entry : actions.entrySet()) {
+                merged.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            return merged;
+        });
+    }
+
+    /**
+     * Ejecuta y descarta las acciones del executor, despues de su <code>commit</code>, <code>rollback</code> o
+     * <code>close</code>.
+     */
+    static void complete(Executor executor) {
+        if (BY_EXECUTOR.isEmpty()) {
+            return;
+        }
+        Map<Object, Runnable> actions = BY_EXECUTOR.remove(executor);
+        if (actions == null) {
+            return;
+        }
+        for (Runnable action : actions.values()) {
+            try {
+                action.run();
+            } catch (RuntimeException ex) {
+                LOGGER.warn(ex.getMessage(), ex);
+            }
+        }
+    }
+}
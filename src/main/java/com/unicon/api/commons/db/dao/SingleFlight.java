@@ -0,0 +1,122 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Lecturas en vuelo de los DAO con single-flight activo. La primera llamada de una llave ejecuta la consulta; las
+ * llamadas identicas que llegan mientras esta en curso no toman conexion, esperan su resultado y lo reciben tambien.
+ * La llave sale del mapa al terminar la consulta, por lo que una llamada posterior vuelve a la base de datos: no es
+ * un cache.
+ * <p>
+ * Los que esperan reciben una copia de la lista, pero los objetos son los mismos que recibe la primera llamada y se
+ * deben tratar como de solo lectura. Si la consulta falla, todos reciben la misma excepcion. Un llamador con
+ * {@link Deadline} espera como maximo lo que le queda del plazo.
+ *
+ * @author acrispin
+ */
+final class SingleFlight {
+
+    private static final ConcurrentMap<Key, CompletableFuture<Object>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private SingleFlight() {
+    }
+
+    /**
+     * @param key      llave de la lectura
+     * @param query    consulta, se ejecuta solo si no hay otra en vuelo con la misma llave
+     * @param onJoined se ejecuta cuando la llamada recibe el resultado de otra
+     * @param <R>      tipo del resultado
+     * @return resultado de la consulta propia o de la que estaba en vuelo
+     */
+    @SuppressWarnings("unchecked")
+    static <R> R execute(Key key, Supplier<R> query, Runnable onJoined) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = IN_FLIGHT.putIfAbsent(key, flight);
+        if (leader != null) {
+            onJoined.run();
+            return (R) copy(await(leader));
+        }
+        try {
+            R result = query.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            IN_FLIGHT.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return lecturas en vuelo en este momento
+     */
+    static int inFlight() {
+        return IN_FLIGHT.size();
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        Deadline deadline = Deadline.current();
+        try {
+            if (deadline == null) {
+                return leader.join();
+            }
+            return leader.get(Math.max(0L, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (CompletionException | ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new PersistenceException(ex.getMessage(), ex);
+        } catch (TimeoutException ex) {
+            throw deadline.exceeded("recibir el resultado de la lectura en vuelo");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Espera de la lectura en vuelo interrumpida", ex);
+        }
+    }
+
+    private static Object copy(Object result) {
+        return result instanceof List ? new ArrayList<>((List<?>) result) : result;
+    }
+
+    /**
+     * Llave de una lectura: factory, mapper, metodo y parametros. Los arreglos de parametros se comparan por
+     * contenido.
+     */
+    static final class Key {
+
+        private final Object[] parts;
+        private final int hash;
+
+        Key(Object... parts) {
+            this.parts = parts;
+            this.hash = Arrays.deepHashCode(parts);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Key && hash == ((Key) o).hash && Arrays.deepEquals(parts, ((Key) o).parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registro concurrente de <code>SqlSessionFactory</code> por tipo de conexion e idMarca.
+ * <p>
+ * Las consultas sobre un factory ya construido no toman ningun bloqueo: solo leen un mapa concurrente y un campo
+ * <code>volatile</code>. La construccion se ejecuta una sola vez por llave y solo bloquea a los hilos que piden esa
+ * misma llave, de modo que un environment JNDI lento no detiene a las demas marcas. Si la construccion falla no se
+ * guarda nada y el siguiente llamado vuelve a intentarlo.
+ *
+ * @author acrispin
+ */
+final class SqlSessionFactoryRegistry {
+
+    /**
+     * Construye el factory de una llave, se invoca una sola vez por llave.
+     */
+    interface Builder {
+        SqlSessionFactory build(EConnectionType type, String idMarca);
+    }
+
+    private final Builder builder;
+    private final Map<EConnectionType, ConcurrentMap<String, Entry>> entries = new EnumMap<>(EConnectionType.class);
+
+    SqlSessionFactoryRegistry(Builder builder) {
+        this.builder = builder;
+        for (EConnectionType type : EConnectionType.values()) {
+            entries.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * @param type    tipo de conexion
+     * @param idMarca marca, se ignora para {@link EConnectionType#SINGLE}
+     * @return factory de la llave, construido en el primer llamado
+     */
+    SqlSessionFactory get(EConnectionType type, String idMarca) {
+        String key = type == EConnectionType.SINGLE || idMarca == null ? "" : idMarca;
+        ConcurrentMap<String, Entry> byMarca = entries.get(type);
+        Entry entry = byMarca.get(key);
+        if (entry == null) {
+            entry = byMarca.computeIfAbsent(key, k -> new Entry(type, k));
+        }
+        return entry.get();
+    }
+
+    private final class Entry {
+        private final EConnectionType type;
+        private final String idMarca;
+        private volatile SqlSessionFactory factory;
+
+        private Entry(EConnectionType type, String idMarca) {
+            this.type = type;
+            this.idMarca = idMarca;
+        }
+
+        private SqlSessionFactory get() {
+            SqlSessionFactory ssf = factory;
+            if (ssf != null) {
+                return ssf;
+            }
+            synchronized (this) {
+                if (factory == null) {
+                    factory = builder.build(type, idMarca);
+                }
+                return factory;
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.columnar.ColumnarResult;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Parametros de la llamada en curso que {@link StatementInterceptor} aplica sobre los <code>Statement</code> que
+ * prepara mybatis en el mismo hilo.
+ * <p>
+ * Se abre con {@link #open()} alrededor de la llamada al mapper y se cierra con try-with-resources; al cerrar se
+ * restaura el contexto anterior, de modo que las llamadas anidadas no se pisan. Los contextos anidados heredan la
+ * {@link Cancellation} del contexto que los contiene.
+ *
+ * @author acrispin
+ */
+final class StatementContext implements AutoCloseable {
+
+    private static final ThreadLocal<StatementContext> CURRENT = new ThreadLocal<>();
+
+    private final StatementContext previous;
+    private int fetchSize;
+    private Cancellation cancellation;
+    private boolean columnar;
+    private ColumnarResult columnarResult;
+
+    private StatementContext(StatementContext previous) {
+        this.previous = previous;
+        this.cancellation = previous == null ? null : previous.cancellation;
+    }
+
+    /**
+     * @return contexto nuevo asociado al hilo actual
+     */
+    static StatementContext open() {
+        StatementContext context = new StatementContext(CURRENT.get());
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * @return contexto del hilo actual, <code>null</code> si no hay una llamada en curso
+     */
+    static StatementContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return fetch size para el statement, 0 usa el del mapped statement
+     */
+    int getFetchSize() {
+        return fetchSize;
+    }
+
+    StatementContext fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * @return cancelacion de la llamada, <code>null</code> si la llamada no se puede cancelar
+     */
+    Cancellation getCancellation() {
+        return cancellation;
+    }
+
+    StatementContext cancellation(Cancellation cancellation) {
+        this.cancellation = cancellation;
+        return this;
+    }
+
+    /**
+     * @return true si el resultado se debe leer por columnas en lugar de mapearlo a objetos
+     */
+    boolean isColumnar() {
+        return columnar;
+    }
+
+    StatementContext columnar(boolean columnar) {
+        this.columnar = columnar;
+        return this;
+    }
+
+    /**
+     * @return resultado leido por columnas, <code>null</code> si la llamada no ejecuto un select
+     */
+    ColumnarResult getColumnarResult() {
+        return columnarResult;
+    }
+
+    void columnarResult(ColumnarResult columnarResult) {
+        this.columnarResult = columnarResult;
+    }
+
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Permite cancelar desde otro hilo el <code>Statement</code> que se esta ejecutando en una llamada.
+     * {@link StatementInterceptor} registra cada statement preparado; una vez cancelada, los statements siguientes
+     * de la misma llamada fallan antes de ejecutarse.
+     */
+    static final class Cancellation {
+        private Statement statement;
+        private boolean cancelled;
+
+        synchronized void register(Statement statement) throws SQLException {
+            if (cancelled) {
+                throw new SQLException("Llamada cancelada");
+            }
+            this.statement = statement;
+        }
+
+        /**
+         * @throws SQLException si el driver no pudo cancelar el statement en curso
+         */
+        synchronized void cancel() throws SQLException {
+            cancelled = true;
+            if (statement != null && !statement.isClosed()) {
+                statement.cancel();
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+/**
+ * Sentencias ejecutadas y sentencias preparadas en la base durante la llamada en curso del hilo.
+ * {@link StatementInterceptor} las cuenta y {@link DaoMetrics} las lee y reinicia al registrar cada llamada; la
+ * diferencia son las ejecuciones que reutilizaron un statement ya preparado (executor <code>REUSE</code> o
+ * <code>BATCH</code>, o el cache de statements del pool).
+ * <p>
+ * Guarda tambien, para el log de sentencias lentas, el environment de la sesion que abrio el DAO y el parametro de
+ * la ultima sentencia.
+ *
+ * @author acrispin
+ */
+final class StatementCounter {
+
+    private static final ThreadLocal<StatementCounter> CURRENT = ThreadLocal.withInitial(StatementCounter::new);
+
+    private int executions;
+    private int prepared;
+    private String environment;
+    private Object parameter;
+
+    private StatementCounter() {
+    }
+
+    static StatementCounter current() {
+        return CURRENT.get();
+    }
+
+    void executed() {
+        executions++;
+    }
+
+    void prepared() {
+        prepared++;
+    }
+
+    void environment(SqlSessionFactory sqlSessionFactory) {
+        Environment env = DaoApplication.getEnvironment(sqlSessionFactory);
+        environment = env == null ? null : env.getId();
+    }
+
+    void parameter(Object parameter) {
+        this.parameter = parameter;
+    }
+
+    int getExecutions() {
+        return executions;
+    }
+
+    int getPrepared() {
+        return prepared;
+    }
+
+    String getEnvironment() {
+        return environment;
+    }
+
+    Object getParameter() {
+        return parameter;
+    }
+
+    void reset() {
+        executions = 0;
+        prepared = 0;
+        environment = null;
+        parameter = null;
+    }
+}
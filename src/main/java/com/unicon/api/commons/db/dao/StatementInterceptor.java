@@ -0,0 +1,129 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.columnar.ColumnarResult;
+import com.unicon.api.commons.db.dao.pool.ConnectionPool;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+
+/**
+ * Plugin de mybatis que aplica el {@link StatementContext} y el {@link Deadline} del hilo actual a cada
+ * <code>Statement</code> preparado, y cuenta en {@link StatementCounter} las ejecuciones y los statements
+ * preparados en la base, junto con el parametro de la ultima sentencia. Si el contexto pide un resultado por
+ * columnas, lee el <code>ResultSet</code> en un {@link ColumnarResult} en lugar de mapear cada fila. En el executor
+ * de cada sesion ejecuta las acciones de {@link SessionCompletion} despues del commit o rollback.
+ * <p>
+ * Se registra en la configuracion de cada environment desde <code>DaoApplication</code>; no es necesario
+ * declararlo en <code>sqlMapConfig.xml</code>.
+ *
+ * @author acrispin
+ */
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}),
+        @Signature(type = StatementHandler.class, method = "parameterize", args = {Statement.class}),
+        @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "commit", args = {boolean.class}),
+        @Signature(type = Executor.class, method = "rollback", args = {boolean.class}),
+        @Signature(type = Executor.class, method = "close", args = {boolean.class})
+})
+public class StatementInterceptor implements Interceptor {
+
+    /**
+     * Agrega el plugin a la configuracion si aun no lo tiene. Se debe llamar antes de publicar la configuracion.
+     *
+     * @param configuration configuracion de mybatis
+     */
+    static void register(Configuration configuration) {
+        for (Interceptor interceptor : configuration.getInterceptors()) {
+            if (interceptor instanceof StatementInterceptor) {
+                return;
+            }
+        }
+        configuration.addInterceptor(new StatementInterceptor());
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (invocation.getTarget() instanceof Executor) {
+            Executor executor = (Executor) invocation.getTarget();
+            if ("update".equals(invocation.getMethod().getName())) {
+                Object result = invocation.proceed();
+                SessionCompletion.bind(executor);
+                return result;
+            }
+            try {
+                return invocation.proceed();
+            } finally {
+                SessionCompletion.complete(executor);
+            }
+        }
+        if ("handleResultSets".equals(invocation.getMethod().getName())) {
+            StatementContext context = StatementContext.current();
+            if (context == null || !context.isColumnar()) {
+                return invocation.proceed();
+            }
+            try (ResultSet resultSet = firstResultSet((Statement) invocation.getArgs()[0])) {
+                if (resultSet != null) {
+                    context.columnarResult(ColumnarResult.read(resultSet));
+                }
+            }
+            return Collections.emptyList();
+        }
+        if ("parameterize".equals(invocation.getMethod().getName())) {
+            StatementCounter counter = StatementCounter.current();
+            counter.executed();
+            counter.parameter(((StatementHandler) invocation.getTarget()).getParameterHandler().getParameterObject());
+            return invocation.proceed();
+        }
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            throw deadline.exceeded("preparar la sentencia");
+        }
+        Statement statement = (Statement) invocation.proceed();
+        if (!ConnectionPool.isReused(statement)) {
+            StatementCounter.current().prepared();
+        }
+        if (deadline != null) {
+            deadline.applyTo(statement);
+        }
+        StatementContext context = StatementContext.current();
+        if (context != null) {
+            if (context.getFetchSize() > 0) {
+                statement.setFetchSize(context.getFetchSize());
+            }
+            if (context.getCancellation() != null) {
+                context.getCancellation().register(statement);
+            }
+        }
+        return statement;
+    }
+
+    /**
+     * Primer resultado de la sentencia, saltando los conteos de filas que algunos drivers devuelven antes, igual que
+     * el <code>ResultSetHandler</code> de mybatis.
+     */
+    private static ResultSet firstResultSet(Statement statement) throws SQLException {
+        ResultSet resultSet = statement.getResultSet();
+        while (resultSet == null) {
+            if (statement.getMoreResults()) {
+                resultSet = statement.getResultSet();
+            } else if (statement.getUpdateCount() == -1) {
+                break;
+            }
+        }
+        return resultSet;
+    }
+}
@@ -0,0 +1,176 @@
+package com.unicon.api.commons.db.dao;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+import org.apache.ibatis.transaction.managed.ManagedTransaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Unidad de trabajo asociada al hilo actual: una conexion y una transaccion por <code>SqlSessionFactory</code>.
+ * <p>
+ * Mientras la unidad esta abierta, cada llamada de un DAO del mismo factory en el mismo hilo abre su sesion sobre la
+ * conexion de la unidad con una transaccion administrada, de modo que sus <code>commit</code>, <code>rollback</code>
+ * y <code>close</code> no confirman ni cierran nada; el commit o rollback unico se hace al terminar la unidad. Los DAO
+ * de otro factory y las llamadas que corren en otros hilos (asincronas, scatter) no se unen.
+ * <p>
+ * Las sesiones de la unidad no usan el cache de segundo nivel de mybatis: sus lecturas ven cambios sin confirmar que
+ * no deben llegar a otros hilos. Los namespaces que la unidad modifica se vacian al terminar, despues del commit o
+ * rollback.
+ * <p>
+ * Una unidad abierta dentro de otra del mismo factory se une a la externa; si termina con error la externa se marca
+ * para rollback aunque el llamador capture la excepcion.
+ *
+ * @author acrispin
+ */
+final class TransactionScope {
+
+    private static final Logger LOGGER = LogManager.getLogger(TransactionScope.class);
+    private static final ThreadLocal<Map<SqlSessionFactory, TransactionScope>> CURRENT = new ThreadLocal<>();
+
+    private final Configuration configuration;
+    private final String environmentId;
+    private final SqlSession session;
+    private final Map<Object, Runnable> afterCompletion = new LinkedHashMap<>();
+    private boolean rollbackOnly;
+
+    private TransactionScope(SqlSessionFactory sqlSessionFactory) {
+        this.configuration = sqlSessionFactory.getConfiguration();
+        this.environmentId = sqlSessionFactory instanceof EnvironmentSqlSessionFactory
+                ? ((EnvironmentSqlSessionFactory) sqlSessionFactory).getEnvironment().getId() : null;
+        this.session = sqlSessionFactory.openSession(false);
+    }
+
+    /**
+     * Ejecuta <code>work</code> en una unidad de trabajo sobre el factory, o dentro de la unidad ya abierta.
+     *
+     * @param sqlSessionFactory factory de la conexion
+     * @param work              llamadas a los DAO
+     * @param <R>               tipo del resultado
+     * @return resultado de <code>work</code>, despues del commit
+     */
+    static <R> R execute(SqlSessionFactory sqlSessionFactory, Supplier<R> work) {
+        Map<SqlSessionFactory, TransactionScope> scopes = CURRENT.get();
+        TransactionScope outer = scopes == null ? null : scopes.get(sqlSessionFactory);
+        if (outer != null) {
+            return outer.join(work);
+        }
+
+        TransactionScope scope = new TransactionScope(sqlSessionFactory);
+        if (scopes == null) {
+            scopes = new IdentityHashMap<>(4);
+            CURRENT.set(scopes);
+        }
+        scopes.put(sqlSessionFactory, scope);
+        boolean committed = false;
+        try {
+            R result = work.get();
+            if (scope.rollbackOnly) {
+                throw new PersistenceException("Unidad de trabajo marcada para rollback por un error en una unidad anidada");
+            }
+            scope.session.commit(true);
+            committed = true;
+            return result;
+        } finally {
+            scopes.remove(sqlSessionFactory);
+            if (scopes.isEmpty()) {
+                CURRENT.remove();
+            }
+            scope.complete(committed);
+        }
+    }
+
+    /**
+     * @return true si hay alguna unidad abierta en el hilo actual
+     */
+    static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * @param sqlSessionFactory factory de la conexion
+     * @return unidad abierta en el hilo actual para el factory, <code>null</code> si no hay
+     */
+    static TransactionScope current(SqlSessionFactory sqlSessionFactory) {
+        Map<SqlSessionFactory, TransactionScope> scopes = CURRENT.get();
+        return scopes == null ? null : scopes.get(sqlSessionFactory);
+    }
+
+    /**
+     * @param executorType executor de la sesion, <code>null</code> para el de la configuracion
+     * @return sesion sobre la conexion de la unidad; cerrarla no cierra la conexion ni confirma la transaccion
+     */
+    SqlSession openSession(ExecutorType executorType) {
+        Executor executor = EnvironmentSqlSessionFactory.newExecutor(configuration,
+                new ManagedTransaction(session.getConnection(), false), executorType, environmentId, false);
+        return new ScopeSession(executor);
+    }
+
+    /**
+     * Registra una accion para despues del commit o rollback de la unidad; se ejecuta una sola vez por clave.
+     */
+    void afterCompletion(Object key, Runnable action) {
+        afterCompletion.putIfAbsent(key, action);
+    }
+
+    private <R> R join(Supplier<R> work) {
+        try {
+            return work.get();
+        } catch (RuntimeException | Error ex) {
+            rollbackOnly = true;
+            throw ex;
+        }
+    }
+
+    /**
+     * Sesion de una llamada dentro de la unidad; registra el vaciado del cache de segundo nivel de cada sentencia
+     * que lo pide (<code>flushCache</code>), ya que su executor no pasa por el <code>CachingExecutor</code>.
+     */
+    private final class ScopeSession extends DefaultSqlSession {
+
+        private ScopeSession(Executor executor) {
+            super(configuration, executor, false);
+        }
+
+        @Override
+        public int update(String statement, Object parameter) {
+            MappedStatement ms = configuration.getMappedStatement(statement);
+            Cache cache = ms.getCache();
+            if (cache != null && ms.isFlushCacheRequired()) {
+                afterCompletion(cache, cache::clear);
+            }
+            return super.update(statement, parameter);
+        }
+    }
+
+    private void complete(boolean committed) {
+        try {
+            if (!committed) {
+                session.rollback(true);
+            }
+        } catch (PersistenceException ex) {
+            LOGGER.error(ex.getMessage(), ex);
+        } finally {
+            session.close();
+            for (Runnable action : afterCompletion.values()) {
+                try {
+                    action.run();
+                } catch (RuntimeException ex) {
+                    LOGGER.warn(ex.getMessage(), ex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.unicon.api.commons.db.dao.cache;
+
+/**
+ * Contadores de un {@link EntityCache} en un momento dado.
+ *
+ * @author acrispin
+ */
+public final class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+    private final int size;
+
+    public CacheStats(long hits, long misses, long evictions, long expirations, long invalidations, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return entradas retiradas por superar el tamaño maximo
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return entradas retiradas por vencer su TTL
+     */
+    public long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * @return veces que se vacio el cache por una operacion DML
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{hits=%d, misses=%d, evictions=%d, expirations=%d, invalidations=%d, size=%d}",
+                hits, misses, evictions, expirations, invalidations, size);
+    }
+}
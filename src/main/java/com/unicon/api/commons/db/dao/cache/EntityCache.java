@@ -0,0 +1,166 @@
+package com.unicon.api.commons.db.dao.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache acotado de entidades con expulsion LRU y tiempo de vida (TTL).
+ * <p>
+ * Se divide en segmentos con su propio bloqueo para que las lecturas concurrentes de distintas llaves no compitan.
+ * Cada invalidacion incrementa una generacion; una carga que empezo antes de la invalidacion no se guarda
+ * (ver {@link #put(Object, Object, long)}), asi un valor leido antes de un commit no reaparece despues.
+ * <p>
+ * Los valores se entregan tal cual a todos los llamadores, por lo que se deben tratar como de solo lectura.
+ *
+ * @author acrispin
+ * @param <V> tipo de los valores
+ */
+public final class EntityCache<V> {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment<V>[] segments;
+    private final long ttlNanos;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param maxSize   cantidad maxima de entradas
+     * @param ttlMillis tiempo de vida de cada entrada, 0 para no vencer
+     */
+    public EntityCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException(String.format("maxSize debe ser mayor a cero: %d", maxSize));
+        }
+        int count = Math.max(1, Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxSize / 8)));
+        @SuppressWarnings("unchecked")
+        Segment<V>[] s = (Segment<V>[]) new Segment<?>[count];
+        int capacity = (maxSize + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            s[i] = new Segment<>(capacity, evictions);
+        }
+        this.segments = s;
+        this.ttlNanos = ttlMillis <= 0 ? 0 : ttlMillis * 1_000_000L;
+    }
+
+    /**
+     * @param key llave de la entidad
+     * @return valor guardado o <code>null</code> si no existe o vencio
+     */
+    public V get(Object key) {
+        Segment<V> segment = segmentFor(key);
+        Entry<V> entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null && entry.isExpired(ttlNanos)) {
+                segment.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * @return generacion actual, se debe leer antes de consultar la base de datos
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Guarda un valor si no hubo invalidaciones desde que se leyo la generacion.
+     *
+     * @param key        llave de la entidad
+     * @param value      valor leido de la base de datos
+     * @param generation generacion leida antes de la consulta
+     */
+    public void put(Object key, V value, long generation) {
+        if (value == null || this.generation.get() != generation) {
+            return;
+        }
+        Segment<V> segment = segmentFor(key);
+        synchronized (segment) {
+            if (this.generation.get() == generation) {
+                segment.put(key, new Entry<>(value));
+            }
+        }
+    }
+
+    /**
+     * Vacia el cache y descarta las cargas en curso.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        invalidations.increment();
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return contadores actuales
+     */
+    public CacheStats stats() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), invalidations.sum(), size);
+    }
+
+    private Segment<V> segmentFor(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long created = System.nanoTime();
+
+        private Entry(V value) {
+            this.value = value;
+        }
+
+        private boolean isExpired(long ttlNanos) {
+            return ttlNanos > 0 && System.nanoTime() - created > ttlNanos;
+        }
+    }
+
+    private static final class Segment<V> extends LinkedHashMap<Object, Entry<V>> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+        private final transient LongAdder evictions;
+
+        private Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry<V>> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
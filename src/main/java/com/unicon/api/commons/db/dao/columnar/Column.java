@@ -0,0 +1,632 @@
+package com.unicon.api.commons.db.dao.columnar;
+
+import com.unicon.api.commons.db.dao.enums.EColumnType;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Valores de una columna de {@link ColumnarResult}, en un arreglo del tipo de la columna (ver {@link EColumnType}).
+ * <p>
+ * Las filas se indican desde 0. Igual que en JDBC, los getters primitivos devuelven 0 o false para un valor nulo y
+ * {@link #isNull(int)} los distingue; los getters de objeto devuelven <code>null</code>. Cada getter de objeto crea
+ * la instancia al leerla, de modo que solo se paga por las filas que se leen.
+ *
+ * @author acrispin
+ */
+public abstract class Column {
+
+    private final String name;
+    private final EColumnType type;
+    private BitSet nulls;
+
+    Column(String name, EColumnType type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * @param metaData metadata del resultado
+     * @param index    columna JDBC, desde 1
+     * @param capacity filas iniciales
+     * @return columna vacia para el tipo JDBC de la columna
+     */
+    static Column of(ResultSetMetaData metaData, int index, int capacity) throws SQLException {
+        String label = metaData.getColumnLabel(index);
+        int sqlType = metaData.getColumnType(index);
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return new IntColumn(label, capacity);
+            case Types.BIGINT:
+                return new LongColumn(label, capacity);
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new DoubleColumn(label, capacity);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return new DecimalColumn(label, Math.max(0, metaData.getScale(index)), capacity);
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+                return new TimestampColumn(label, sqlType, capacity);
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return new BooleanColumn(label, capacity);
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return new StringColumn(label, capacity);
+            default:
+                return new ObjectColumn(label, capacity);
+        }
+    }
+
+    /**
+     * Lee el valor de la fila actual del <code>ResultSet</code>.
+     *
+     * @param resultSet resultado posicionado en la fila
+     * @param index     columna JDBC, desde 1
+     * @param row       fila de destino
+     */
+    abstract void read(ResultSet resultSet, int index, int row) throws SQLException;
+
+    /**
+     * @param capacity filas que deben caber en el arreglo
+     */
+    abstract void resize(int capacity);
+
+    /**
+     * Deja el arreglo del tamaño exacto del resultado, al terminar la lectura.
+     *
+     * @param rows filas leidas
+     */
+    void finish(int rows) {
+        resize(rows);
+    }
+
+    final void setNull(int row) {
+        if (nulls == null) {
+            nulls = new BitSet();
+        }
+        nulls.set(row);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public EColumnType getType() {
+        return type;
+    }
+
+    public boolean isNull(int row) {
+        return nulls != null && nulls.get(row);
+    }
+
+    /**
+     * @param row fila, desde 0
+     * @return valor con el tipo Java que devuelve el driver para la columna, <code>null</code> si es nulo
+     */
+    public abstract Object getObject(int row);
+
+    public int getInt(int row) {
+        return (int) getLong(row);
+    }
+
+    public long getLong(int row) {
+        Object value = getObject(row);
+        return value == null ? 0L : toNumber(value, "long").longValue();
+    }
+
+    public double getDouble(int row) {
+        Object value = getObject(row);
+        return value == null ? 0d : toNumber(value, "double").doubleValue();
+    }
+
+    public BigDecimal getBigDecimal(int row) {
+        Object value = getObject(row);
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        return new BigDecimal(toNumber(value, "BigDecimal").toString());
+    }
+
+    public boolean getBoolean(int row) {
+        Object value = getObject(row);
+        if (value == null || value instanceof Boolean) {
+            return value != null && (Boolean) value;
+        }
+        return toNumber(value, "boolean").longValue() != 0;
+    }
+
+    public String getString(int row) {
+        Object value = getObject(row);
+        return value == null ? null : value.toString();
+    }
+
+    public Date getDate(int row) {
+        Object value = getObject(row);
+        if (value == null || value instanceof Date) {
+            return (Date) value;
+        }
+        throw incompatible("Date");
+    }
+
+    private Number toNumber(Object value, String target) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        throw incompatible(target);
+    }
+
+    private ClassCastException incompatible(String target) {
+        return new ClassCastException(String.format("La columna %s de tipo %s no se puede leer como %s", name, type.value(), target));
+    }
+
+    static final class IntColumn extends Column {
+        private int[] values;
+
+        IntColumn(String name, int capacity) {
+            super(name, EColumnType.INT);
+            values = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            values[row] = resultSet.getInt(index);
+            if (resultSet.wasNull()) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        public int getInt(int row) {
+            return values[row];
+        }
+
+        @Override
+        public long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        public BigDecimal getBigDecimal(int row) {
+            return isNull(row) ? null : BigDecimal.valueOf(values[row]);
+        }
+    }
+
+    static final class LongColumn extends Column {
+        private long[] values;
+
+        LongColumn(String name, int capacity) {
+            super(name, EColumnType.LONG);
+            values = new long[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            values[row] = resultSet.getLong(index);
+            if (resultSet.wasNull()) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        public long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        public BigDecimal getBigDecimal(int row) {
+            return isNull(row) ? null : BigDecimal.valueOf(values[row]);
+        }
+    }
+
+    static final class DoubleColumn extends Column {
+        private double[] values;
+
+        DoubleColumn(String name, int capacity) {
+            super(name, EColumnType.DOUBLE);
+            values = new double[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            values[row] = resultSet.getDouble(index);
+            if (resultSet.wasNull()) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        public long getLong(int row) {
+            return (long) values[row];
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        public BigDecimal getBigDecimal(int row) {
+            return isNull(row) ? null : BigDecimal.valueOf(values[row]);
+        }
+    }
+
+    /**
+     * Decimales como enteros con la escala de la columna: <code>12.50</code> en <code>DECIMAL(12,2)</code> se guarda
+     * como <code>1250</code>. Si un valor no cabe en un <code>long</code> con esa escala, la columna pasa a guardar
+     * los <code>BigDecimal</code> tal como llegan; tambien desde el inicio si la escala no cabe en un
+     * <code>long</code>, como la que informan algunos drivers para una expresion sin <code>CAST</code>.
+     */
+    static final class DecimalColumn extends Column {
+        private static final int MAX_SCALE = 18;
+
+        private final int scale;
+        private final double divisor;
+        private final long factor;
+        private long[] unscaled;
+        private BigDecimal[] values;
+
+        DecimalColumn(String name, int scale, int capacity) {
+            super(name, EColumnType.DECIMAL);
+            this.scale = scale;
+            if (scale > MAX_SCALE) {
+                this.divisor = 0d;
+                this.factor = 0L;
+                this.values = new BigDecimal[capacity];
+            } else {
+                this.divisor = Math.pow(10, scale);
+                this.factor = (long) divisor;
+                this.unscaled = new long[capacity];
+            }
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            BigDecimal value = resultSet.getBigDecimal(index);
+            if (value == null) {
+                setNull(row);
+                return;
+            }
+            if (values == null) {
+                if (value.scale() <= scale) {
+                    BigDecimal scaled = value.setScale(scale);
+                    if (scaled.unscaledValue().bitLength() < Long.SIZE) {
+                        unscaled[row] = scaled.unscaledValue().longValue();
+                        return;
+                    }
+                }
+                inflate(row);
+            }
+            values[row] = value;
+        }
+
+        private void inflate(int rows) {
+            values = new BigDecimal[unscaled.length];
+            for (int row = 0; row < rows; row++) {
+                if (!isNull(row)) {
+                    values[row] = BigDecimal.valueOf(unscaled[row], scale);
+                }
+            }
+            unscaled = null;
+        }
+
+        @Override
+        void resize(int capacity) {
+            if (values == null) {
+                unscaled = Arrays.copyOf(unscaled, capacity);
+            } else {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return getBigDecimal(row);
+        }
+
+        @Override
+        public BigDecimal getBigDecimal(int row) {
+            if (values != null) {
+                return values[row];
+            }
+            return isNull(row) ? null : BigDecimal.valueOf(unscaled[row], scale);
+        }
+
+        @Override
+        public long getLong(int row) {
+            if (values != null) {
+                return values[row] == null ? 0L : values[row].longValue();
+            }
+            return unscaled[row] / factor;
+        }
+
+        @Override
+        public double getDouble(int row) {
+            if (values != null) {
+                return values[row] == null ? 0d : values[row].doubleValue();
+            }
+            return unscaled[row] / divisor;
+        }
+    }
+
+    /**
+     * Fechas y horas como milisegundos desde la epoca; la fraccion menor a un milisegundo de un
+     * <code>TIMESTAMP</code> (por ejemplo de <code>datetime2</code>) no se guarda.
+     */
+    static final class TimestampColumn extends Column {
+        private final int sqlType;
+        private long[] millis;
+
+        TimestampColumn(String name, int sqlType, int capacity) {
+            super(name, EColumnType.TIMESTAMP);
+            this.sqlType = sqlType;
+            this.millis = new long[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            Date value;
+            if (sqlType == Types.DATE) {
+                value = resultSet.getDate(index);
+            } else if (sqlType == Types.TIME) {
+                value = resultSet.getTime(index);
+            } else {
+                value = resultSet.getTimestamp(index);
+            }
+            if (value == null) {
+                setNull(row);
+            } else {
+                millis[row] = value.getTime();
+            }
+        }
+
+        @Override
+        void resize(int capacity) {
+            millis = Arrays.copyOf(millis, capacity);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return getDate(row);
+        }
+
+        /**
+         * @return <code>java.sql.Date</code>, <code>Time</code> o <code>Timestamp</code> segun el tipo JDBC
+         */
+        @Override
+        public Date getDate(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            if (sqlType == Types.DATE) {
+                return new java.sql.Date(millis[row]);
+            }
+            return sqlType == Types.TIME ? new Time(millis[row]) : new Timestamp(millis[row]);
+        }
+
+        /**
+         * @return milisegundos desde la epoca
+         */
+        @Override
+        public long getLong(int row) {
+            return millis[row];
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return millis[row];
+        }
+    }
+
+    static final class BooleanColumn extends Column {
+        private boolean[] values;
+
+        BooleanColumn(String name, int capacity) {
+            super(name, EColumnType.BOOLEAN);
+            values = new boolean[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            values[row] = resultSet.getBoolean(index);
+            if (resultSet.wasNull()) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        public boolean getBoolean(int row) {
+            return values[row];
+        }
+
+        @Override
+        public long getLong(int row) {
+            return values[row] ? 1L : 0L;
+        }
+    }
+
+    /**
+     * Texto con diccionario: cada valor distinto se guarda una sola vez y cada fila guarda el codigo del valor, en un
+     * <code>byte[]</code> si hay hasta 256 valores distintos, en un <code>char[]</code> hasta 65536 y si no en un
+     * <code>int[]</code>. Conviene en columnas con pocos valores distintos (estados, codigos, marcas); en una columna
+     * de valores unicos el codigo suma 4 bytes por fila al <code>String</code>.
+     */
+    static final class StringColumn extends Column {
+        private Map<String, Integer> codesByValue = new HashMap<>();
+        private List<String> building = new ArrayList<>();
+        private String[] dictionary;
+        private int[] codes;
+        private char[] shortCodes;
+        private byte[] byteCodes;
+
+        StringColumn(String name, int capacity) {
+            super(name, EColumnType.STRING);
+            codes = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            String value = resultSet.getString(index);
+            if (value == null) {
+                setNull(row);
+                return;
+            }
+            Integer code = codesByValue.get(value);
+            if (code == null) {
+                code = building.size();
+                building.add(value);
+                codesByValue.put(value, code);
+            }
+            codes[row] = code;
+        }
+
+        @Override
+        void resize(int capacity) {
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        @Override
+        void finish(int rows) {
+            dictionary = building.toArray(new String[0]);
+            building = null;
+            codesByValue = null;
+            if (dictionary.length <= 1 << Byte.SIZE) {
+                byteCodes = new byte[rows];
+                for (int row = 0; row < rows; row++) {
+                    byteCodes[row] = (byte) codes[row];
+                }
+                codes = null;
+            } else if (dictionary.length <= 1 << Character.SIZE) {
+                shortCodes = new char[rows];
+                for (int row = 0; row < rows; row++) {
+                    shortCodes[row] = (char) codes[row];
+                }
+                codes = null;
+            } else {
+                resize(rows);
+            }
+        }
+
+        /**
+         * @return valores distintos de la columna, sin contar el nulo
+         */
+        int getCardinality() {
+            return dictionary.length;
+        }
+
+        private int code(int row) {
+            if (byteCodes != null) {
+                return byteCodes[row] & 0xFF;
+            }
+            return shortCodes != null ? shortCodes[row] : codes[row];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return getString(row);
+        }
+
+        @Override
+        public String getString(int row) {
+            return isNull(row) ? null : dictionary[code(row)];
+        }
+    }
+
+    static final class ObjectColumn extends Column {
+        private Object[] values;
+
+        ObjectColumn(String name, int capacity) {
+            super(name, EColumnType.OBJECT);
+            values = new Object[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            values[row] = resultSet.getObject(index);
+            if (values[row] == null) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return values[row];
+        }
+    }
+}
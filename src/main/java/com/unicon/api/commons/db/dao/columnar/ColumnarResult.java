@@ -0,0 +1,194 @@
+package com.unicon.api.commons.db.dao.columnar;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Resultado de una consulta guardado por columnas, para selects grandes de reportes.
+ * <p>
+ * En lugar de un objeto por fila con sus numeros en <code>Integer</code> o <code>BigDecimal</code> y una copia de
+ * cada texto, cada columna guarda sus valores en un arreglo primitivo y los textos en un diccionario (ver
+ * {@link com.unicon.api.commons.db.dao.enums.EColumnType}). Las filas se recorren con {@link Row}, que lee de las
+ * columnas sin crear un objeto por fila:
+ * <pre>
+ * ColumnarResult ventas = ventaDao.columnarList(params);
+ * for (Row row : ventas) {
+ *     total += row.getDouble("monto");
+ * }
+ * </pre>
+ * El resultado es de solo lectura y se puede compartir entre hilos una vez construido.
+ *
+ * @author acrispin
+ */
+public final class ColumnarResult implements Iterable<Row> {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Column[] columns;
+    private final List<String> columnNames;
+    private final Map<String, Integer> indexByName;
+    private final int size;
+
+    private ColumnarResult(Column[] columns, int size) {
+        this.columns = columns;
+        this.size = size;
+        List<String> names = new ArrayList<>(columns.length);
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            names.add(columns[i].getName());
+            indexes.putIfAbsent(columns[i].getName().toUpperCase(Locale.ROOT), i);
+        }
+        this.columnNames = Collections.unmodifiableList(names);
+        this.indexByName = indexes;
+    }
+
+    /**
+     * Lee todas las filas restantes del <code>ResultSet</code>; no lo cierra.
+     *
+     * @param resultSet resultado de la consulta
+     * @return filas leidas, por columnas
+     * @throws SQLException si falla la lectura
+     */
+    public static ColumnarResult read(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        Column[] columns = new Column[metaData.getColumnCount()];
+        int capacity = INITIAL_CAPACITY;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Column.of(metaData, i + 1, capacity);
+        }
+        int rows = 0;
+        while (resultSet.next()) {
+            if (rows == capacity) {
+                capacity += capacity >> 1;
+                for (Column column : columns) {
+                    column.resize(capacity);
+                }
+            }
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].read(resultSet, i + 1, rows);
+            }
+            rows++;
+        }
+        for (Column column : columns) {
+            column.finish(rows);
+        }
+        return new ColumnarResult(columns, rows);
+    }
+
+    /**
+     * @return numero de filas
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @return etiquetas de las columnas, en el orden del select
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * @param column etiqueta de la columna, sin distinguir mayusculas
+     * @return posicion de la columna desde 0, -1 si no existe
+     */
+    public int indexOf(String column) {
+        Integer index = indexByName.get(column.toUpperCase(Locale.ROOT));
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index posicion de la columna, desde 0
+     * @return columna
+     */
+    public Column getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * @param column etiqueta de la columna, sin distinguir mayusculas
+     * @return columna
+     * @throws IllegalArgumentException si el resultado no tiene la columna
+     */
+    public Column getColumn(String column) {
+        int index = indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("Columna %s no existe en el resultado: %s", column, columnNames));
+        }
+        return columns[index];
+    }
+
+    /**
+     * @param index fila, desde 0
+     * @return vista de la fila, se puede conservar
+     */
+    public Row row(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Fila %d fuera del resultado de %d filas", index, size));
+        }
+        return new Row(this, index);
+    }
+
+    /**
+     * Recorre las filas con una sola vista que avanza en cada paso; para conservar una fila se usa
+     * {@link #row(int)} con {@link Row#getIndex()}.
+     */
+    @Override
+    public Iterator<Row> iterator() {
+        Row row = new Row(this, -1);
+        return new Iterator<Row>() {
+            @Override
+            public boolean hasNext() {
+                return row.getIndex() + 1 < size;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                row.moveTo(row.getIndex() + 1);
+                return row;
+            }
+        };
+    }
+
+    /**
+     * Convierte las filas a objetos, por ejemplo para devolver una parte del resultado a un cliente que espera POJOs.
+     *
+     * @param <T>    tipo de los elementos
+     * @param mapper conversion de cada fila, no debe conservar la vista
+     * @return lista con un elemento por fila
+     */
+    public <T> List<T> toList(Function<? super Row, ? extends T> mapper) {
+        List<T> list = new ArrayList<>(size);
+        for (Row row : this) {
+            list.add(mapper.apply(row));
+        }
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ColumnarResult[%d filas, columnas %s]", size, columnNames);
+    }
+}
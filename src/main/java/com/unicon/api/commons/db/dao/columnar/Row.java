@@ -0,0 +1,113 @@
+package com.unicon.api.commons.db.dao.columnar;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Vista de una fila de {@link ColumnarResult}: cada getter lee de la columna, por posicion desde 0 o por etiqueta
+ * sin distinguir mayusculas. Las reglas de nulos y conversiones son las de {@link Column}.
+ *
+ * @author acrispin
+ */
+public final class Row {
+
+    private final ColumnarResult result;
+    private int index;
+
+    Row(ColumnarResult result, int index) {
+        this.result = result;
+        this.index = index;
+    }
+
+    void moveTo(int index) {
+        this.index = index;
+    }
+
+    /**
+     * @return fila en el resultado, desde 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isNull(int column) {
+        return result.getColumn(column).isNull(index);
+    }
+
+    public boolean isNull(String column) {
+        return result.getColumn(column).isNull(index);
+    }
+
+    public Object getObject(int column) {
+        return result.getColumn(column).getObject(index);
+    }
+
+    public Object getObject(String column) {
+        return result.getColumn(column).getObject(index);
+    }
+
+    public int getInt(int column) {
+        return result.getColumn(column).getInt(index);
+    }
+
+    public int getInt(String column) {
+        return result.getColumn(column).getInt(index);
+    }
+
+    public long getLong(int column) {
+        return result.getColumn(column).getLong(index);
+    }
+
+    public long getLong(String column) {
+        return result.getColumn(column).getLong(index);
+    }
+
+    public double getDouble(int column) {
+        return result.getColumn(column).getDouble(index);
+    }
+
+    public double getDouble(String column) {
+        return result.getColumn(column).getDouble(index);
+    }
+
+    public BigDecimal getBigDecimal(int column) {
+        return result.getColumn(column).getBigDecimal(index);
+    }
+
+    public BigDecimal getBigDecimal(String column) {
+        return result.getColumn(column).getBigDecimal(index);
+    }
+
+    public boolean getBoolean(int column) {
+        return result.getColumn(column).getBoolean(index);
+    }
+
+    public boolean getBoolean(String column) {
+        return result.getColumn(column).getBoolean(index);
+    }
+
+    public String getString(int column) {
+        return result.getColumn(column).getString(index);
+    }
+
+    public String getString(String column) {
+        return result.getColumn(column).getString(index);
+    }
+
+    public Date getDate(int column) {
+        return result.getColumn(column).getDate(index);
+    }
+
+    public Date getDate(String column) {
+        return result.getColumn(column).getDate(index);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Row[").append(index);
+        for (int i = 0; i < result.getColumnCount(); i++) {
+            sb.append(i == 0 ? ": " : ", ").append(result.getColumn(i).getName()).append('=').append(getObject(i));
+        }
+        return sb.append(']').toString();
+    }
+}
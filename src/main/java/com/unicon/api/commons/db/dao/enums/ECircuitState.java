@@ -0,0 +1,31 @@
+package com.unicon.api.commons.db.dao.enums;
+
+/**
+ * Estado del circuito de un tipo de conexion e idMarca.
+ *
+ * @author acrispin
+ */
+public enum ECircuitState {
+    /**
+     * Las llamadas pasan; las fallas de conexion o de timeout consecutivas se cuentan.
+     */
+    CLOSED("CLOSED"),
+    /**
+     * Las llamadas se rechazan sin tomar una conexion hasta que vence el tiempo de apertura.
+     */
+    OPEN("OPEN"),
+    /**
+     * Una sola llamada de prueba pasa; si termina bien el circuito se cierra, si falla se abre otra vez.
+     */
+    HALF_OPEN("HALF_OPEN");
+
+    private final String value;
+
+    ECircuitState(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+}
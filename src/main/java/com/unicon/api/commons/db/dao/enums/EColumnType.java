@@ -0,0 +1,52 @@
+package com.unicon.api.commons.db.dao.enums;
+
+/**
+ * Almacenamiento de una columna de <code>ColumnarResult</code>, segun su tipo JDBC.
+ *
+ * @author acrispin
+ */
+public enum EColumnType {
+    /**
+     * <code>TINYINT</code>, <code>SMALLINT</code> e <code>INTEGER</code> en un <code>int[]</code>.
+     */
+    INT("INT"),
+    /**
+     * <code>BIGINT</code> en un <code>long[]</code>.
+     */
+    LONG("LONG"),
+    /**
+     * <code>REAL</code>, <code>FLOAT</code> y <code>DOUBLE</code> en un <code>double[]</code>.
+     */
+    DOUBLE("DOUBLE"),
+    /**
+     * <code>DECIMAL</code> y <code>NUMERIC</code> como enteros escalados en un <code>long[]</code>; si algun valor
+     * no cabe, como <code>BigDecimal</code>.
+     */
+    DECIMAL("DECIMAL"),
+    /**
+     * <code>DATE</code>, <code>TIME</code> y <code>TIMESTAMP</code> como milisegundos en un <code>long[]</code>.
+     */
+    TIMESTAMP("TIMESTAMP"),
+    /**
+     * <code>BIT</code> y <code>BOOLEAN</code> en un <code>boolean[]</code>.
+     */
+    BOOLEAN("BOOLEAN"),
+    /**
+     * Texto con diccionario: cada valor distinto se guarda una vez y cada fila guarda su codigo.
+     */
+    STRING("STRING"),
+    /**
+     * Los demas tipos, con el objeto que devuelve el driver.
+     */
+    OBJECT("OBJECT");
+
+    private final String value;
+
+    EColumnType(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+}
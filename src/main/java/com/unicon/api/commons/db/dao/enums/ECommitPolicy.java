@@ -0,0 +1,27 @@
+package com.unicon.api.commons.db.dao.enums;
+
+/**
+ * Momento en que se confirma una operacion por lotes.
+ *
+ * @author acrispin
+ */
+public enum ECommitPolicy {
+    /**
+     * Commit despues de cada bloque; si un bloque falla los anteriores ya quedan confirmados.
+     */
+    PER_CHUNK("PER_CHUNK"),
+    /**
+     * Un solo commit al final; si un bloque falla se revierte toda la llamada.
+     */
+    PER_CALL("PER_CALL");
+
+    private final String value;
+
+    ECommitPolicy(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+}
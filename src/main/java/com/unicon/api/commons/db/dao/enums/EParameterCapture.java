@@ -0,0 +1,31 @@
+package com.unicon.api.commons.db.dao.enums;
+
+/**
+ * Forma en que el log de sentencias lentas guarda los parametros de una llamada.
+ *
+ * @author acrispin
+ */
+public enum EParameterCapture {
+    /**
+     * No se guardan los parametros.
+     */
+    NONE("NONE"),
+    /**
+     * Los textos se reemplazan por <code>***</code> y su longitud; numeros, fechas, booleanos y enums se guardan.
+     */
+    MASKED("MASKED"),
+    /**
+     * Se guardan todos los valores.
+     */
+    FULL("FULL");
+
+    private final String value;
+
+    EParameterCapture(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+}
@@ -0,0 +1,27 @@
+package com.unicon.api.commons.db.dao.enums;
+
+/**
+ * Operacion de una escritura diferida.
+ *
+ * @author acrispin
+ */
+public enum EWriteOperation {
+    /**
+     * Se escribe con <code>insertBatch</code>; cada objeto es una fila nueva.
+     */
+    INSERT("INSERT"),
+    /**
+     * Se escribe con <code>updateBatch</code>; las actualizaciones pendientes de la misma llave se combinan en una.
+     */
+    UPDATE("UPDATE");
+
+    private final String value;
+
+    EWriteOperation(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+}
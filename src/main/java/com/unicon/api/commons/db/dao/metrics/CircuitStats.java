@@ -0,0 +1,72 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Estado del circuito de un tipo de conexion e idMarca y sus cambios desde el ultimo <code>reset</code>.
+ * <code>opened</code> cuenta las aperturas, incluidas las que siguen a una prueba fallida.
+ *
+ * @author acrispin
+ */
+public final class CircuitStats {
+
+    private final String connectionType;
+    private final String idMarca;
+    private final String state;
+    private final long opened;
+    private final long halfOpened;
+    private final long closed;
+    private final long lastTransitionMillis;
+
+    @ConstructorProperties({"connectionType", "idMarca", "state", "opened", "halfOpened", "closed", "lastTransitionMillis"})
+    public CircuitStats(String connectionType, String idMarca, String state,
+                        long opened, long halfOpened, long closed, long lastTransitionMillis) {
+        this.connectionType = connectionType;
+        this.idMarca = idMarca;
+        this.state = state;
+        this.opened = opened;
+        this.halfOpened = halfOpened;
+        this.closed = closed;
+        this.lastTransitionMillis = lastTransitionMillis;
+    }
+
+    public String getConnectionType() {
+        return connectionType;
+    }
+
+    public String getIdMarca() {
+        return idMarca;
+    }
+
+    /**
+     * @return <code>CLOSED</code>, <code>OPEN</code> o <code>HALF_OPEN</code>
+     */
+    public String getState() {
+        return state;
+    }
+
+    public long getOpened() {
+        return opened;
+    }
+
+    public long getHalfOpened() {
+        return halfOpened;
+    }
+
+    public long getClosed() {
+        return closed;
+    }
+
+    /**
+     * @return momento del ultimo cambio de estado, en milisegundos desde epoch
+     */
+    public long getLastTransitionMillis() {
+        return lastTransitionMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s%s %s, opened=%d, halfOpened=%d, closed=%d",
+                connectionType, idMarca.isEmpty() ? "" : "/" + idMarca, state, opened, halfOpened, closed);
+    }
+}
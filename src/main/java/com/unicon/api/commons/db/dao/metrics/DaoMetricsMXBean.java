@@ -0,0 +1,26 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import java.util.List;
+
+/**
+ * Vista JMX de {@link DefaultMetricsRegistry}, registrada como <code>com.unicon.api.commons.db:type=DaoMetrics</code>.
+ *
+ * @author acrispin
+ */
+public interface DaoMetricsMXBean {
+
+    /**
+     * @return valores actuales de cada serie
+     */
+    List<StatementStats> getStatements();
+
+    /**
+     * @return circuitos que cambiaron de estado alguna vez, con su estado actual
+     */
+    List<CircuitStats> getCircuits();
+
+    /**
+     * Vacia todas las series.
+     */
+    void reset();
+}
@@ -0,0 +1,96 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import com.unicon.api.commons.db.dao.enums.ECircuitState;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registro en memoria de las metricas, una {@link StatementMetrics} por serie y el estado de cada circuito. No
+ * requiere red; se consulta desde codigo con {@link #getStatements()} y {@link #getCircuits()} o por JMX.
+ *
+ * @author acrispin
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry, DaoMetricsMXBean {
+
+    private final ConcurrentMap<MetricKey, StatementMetrics> statements = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CircuitStats> circuits = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordStatement(MetricKey key, long nanos, int rows, boolean error) {
+        statement(key).record(nanos, rows, error);
+    }
+
+    @Override
+    public void recordStatementCache(MetricKey key, int executions, int prepared) {
+        statement(key).recordStatementCache(executions, prepared);
+    }
+
+    @Override
+    public void recordCoalesced(MetricKey key) {
+        statement(key).recordCoalesced();
+    }
+
+    @Override
+    public void recordRejected(MetricKey key) {
+        statement(key).recordRejected();
+    }
+
+    /**
+     * Los cambios de estado son pocos, cada uno reemplaza la copia del circuito.
+     */
+    @Override
+    public void recordCircuitTransition(String connectionType, String idMarca, ECircuitState from, ECircuitState to) {
+        String marca = idMarca == null ? "" : idMarca;
+        circuits.compute(connectionType + "/" + marca, (k, old) -> new CircuitStats(connectionType, marca, to.value(),
+                (old == null ? 0L : old.getOpened()) + (to == ECircuitState.OPEN ? 1L : 0L),
+                (old == null ? 0L : old.getHalfOpened()) + (to == ECircuitState.HALF_OPEN ? 1L : 0L),
+                (old == null ? 0L : old.getClosed()) + (to == ECircuitState.CLOSED ? 1L : 0L),
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * @param key serie
+     * @return metricas de la serie, se crean en el primer uso
+     */
+    public StatementMetrics statement(MetricKey key) {
+        StatementMetrics metrics = statements.get(key);
+        if (metrics == null) {
+            metrics = statements.computeIfAbsent(key, StatementMetrics::new);
+        }
+        return metrics;
+    }
+
+    @Override
+    public List<StatementStats> getStatements() {
+        List<StatementStats> stats = new ArrayList<>(statements.size());
+        for (StatementMetrics metrics : statements.values()) {
+            stats.add(metrics.snapshot());
+        }
+        stats.sort(Comparator.comparing(StatementStats::getMapper)
+                .thenComparing(StatementStats::getMethod)
+                .thenComparing(StatementStats::getConnectionType)
+                .thenComparing(StatementStats::getIdMarca));
+        return stats;
+    }
+
+    @Override
+    public List<CircuitStats> getCircuits() {
+        List<CircuitStats> stats = new ArrayList<>(circuits.values());
+        stats.sort(Comparator.comparing(CircuitStats::getConnectionType).thenComparing(CircuitStats::getIdMarca));
+        return stats;
+    }
+
+    /**
+     * Los circuitos conservan su estado y vacian sus contadores.
+     */
+    @Override
+    public void reset() {
+        statements.values().forEach(StatementMetrics::reset);
+        circuits.replaceAll((k, old) -> new CircuitStats(old.getConnectionType(), old.getIdMarca(), old.getState(),
+                0L, 0L, 0L, old.getLastTransitionMillis()));
+    }
+}
@@ -0,0 +1,93 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias sin bloqueos, con buckets log-lineales: cada potencia de dos se divide en 16 buckets,
+ * por lo que el error relativo de los percentiles es menor a 1/16 (~6%) en todo el rango.
+ * <p>
+ * Registrar un valor es un solo incremento atomico sobre un arreglo fijo, sin crear objetos.
+ *
+ * @author acrispin
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * @param value valor a registrar, por ejemplo nanosegundos; los negativos se registran como 0
+     */
+    public void record(long value) {
+        counts.incrementAndGet(indexOf(Math.max(0L, value)));
+    }
+
+    /**
+     * @return cantidad de valores registrados
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @param percentile percentil entre 0 y 100, por ejemplo 99.9
+     * @return valor aproximado del percentil, 0 si no hay valores
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long target = Math.max(1L, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(BUCKETS - 1);
+    }
+
+    /**
+     * Vacia el histograma. Los valores registrados durante el reinicio pueden conservarse.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB_COUNT - 1);
+        return ((shift + 1) << SUB_BITS) + sub;
+    }
+
+    /**
+     * @return valor medio del bucket
+     */
+    static long valueOf(int index) {
+        if (index < 2 * SUB_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        long lower = (long) (SUB_COUNT + (index & (SUB_COUNT - 1))) << shift;
+        return lower + ((1L << shift) >>> 1);
+    }
+}
@@ -0,0 +1,75 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import java.util.Objects;
+
+/**
+ * Identifica una serie de metricas: mapper, metodo, tipo de conexion e idMarca.
+ *
+ * @author acrispin
+ */
+public final class MetricKey {
+
+    private final String mapper;
+    private final String method;
+    private final String connectionType;
+    private final String idMarca;
+    private final int hash;
+
+    /**
+     * @param mapper         nombre simple de la interfaz del mapper
+     * @param method         nombre del metodo del mapper
+     * @param connectionType tipo de conexion del DAO
+     * @param idMarca        marca, vacio en <code>SINGLE</code>
+     */
+    public MetricKey(String mapper, String method, String connectionType, String idMarca) {
+        this.mapper = mapper;
+        this.method = method;
+        this.connectionType = connectionType;
+        this.idMarca = idMarca == null ? "" : idMarca;
+        this.hash = Objects.hash(this.mapper, this.method, this.connectionType, this.idMarca);
+    }
+
+    public String getMapper() {
+        return mapper;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getConnectionType() {
+        return connectionType;
+    }
+
+    public String getIdMarca() {
+        return idMarca;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof MetricKey)) {
+            return false;
+        }
+        MetricKey other = (MetricKey) obj;
+        return hash == other.hash
+                && Objects.equals(mapper, other.mapper)
+                && Objects.equals(method, other.method)
+                && Objects.equals(connectionType, other.connectionType)
+                && Objects.equals(idMarca, other.idMarca);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return idMarca.isEmpty()
+                ? String.format("%s.%s[%s]", mapper, method, connectionType)
+                : String.format("%s.%s[%s/%s]", mapper, method, connectionType, idMarca);
+    }
+}
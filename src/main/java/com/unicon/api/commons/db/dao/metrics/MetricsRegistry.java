@@ -0,0 +1,69 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import com.unicon.api.commons.db.dao.enums.ECircuitState;
+
+/**
+ * Destino de las metricas de los DAO. La implementacion por defecto es {@link DefaultMetricsRegistry}; se puede
+ * reemplazar, por ejemplo para publicar en otro sistema de monitoreo, con <code>dao.metrics.registry</code> o
+ * <code>DaoMetrics.setRegistry</code>.
+ * <p>
+ * Los metodos se llaman en el hilo de cada llamada al DAO, por lo que deben ser rapidos y no bloquear.
+ *
+ * @author acrispin
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Registro que descarta todas las metricas.
+     */
+    MetricsRegistry NOOP = (key, nanos, rows, error) -> {
+    };
+
+    /**
+     * @param key   serie de la llamada
+     * @param nanos duracion de la llamada
+     * @param rows  filas leidas o afectadas
+     * @param error true si la llamada termino con error
+     */
+    void recordStatement(MetricKey key, long nanos, int rows, boolean error);
+
+    /**
+     * Se llama despues de {@link #recordStatement} cuando la llamada ejecuto sentencias; las ejecuciones que no
+     * prepararon un statement nuevo reutilizaron uno ya preparado.
+     *
+     * @param key        serie de la llamada
+     * @param executions sentencias ejecutadas
+     * @param prepared   statements preparados en la base
+     */
+    default void recordStatementCache(MetricKey key, int executions, int prepared) {
+    }
+
+    /**
+     * Se llama, en lugar de {@link #recordStatement}, cuando una lectura con single-flight recibe el resultado de
+     * una lectura identica que ya estaba en vuelo, sin ejecutar sentencias.
+     *
+     * @param key serie de la llamada
+     */
+    default void recordCoalesced(MetricKey key) {
+    }
+
+    /**
+     * Se llama, en lugar de {@link #recordStatement}, cuando una llamada se rechaza sin tomar una conexion porque el
+     * circuito de su tipo de conexion e idMarca esta abierto.
+     *
+     * @param key serie de la llamada
+     */
+    default void recordRejected(MetricKey key) {
+    }
+
+    /**
+     * Se llama cuando el circuito de un tipo de conexion e idMarca cambia de estado.
+     *
+     * @param connectionType tipo de conexion
+     * @param idMarca        marca, vacio en <code>SINGLE</code>
+     * @param from           estado anterior
+     * @param to             estado nuevo
+     */
+    default void recordCircuitTransition(String connectionType, String idMarca, ECircuitState from, ECircuitState to) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import java.beans.ConstructorProperties;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Una llamada guardada por {@link SlowStatementLog}, porque supero el umbral de su metodo o porque salio en el
+ * muestreo.
+ *
+ * @author acrispin
+ */
+public final class SlowStatement {
+
+    private final long sequence;
+    private final long timestamp;
+    private final String mapper;
+    private final String method;
+    private final String connectionType;
+    private final String idMarca;
+    private final String environment;
+    private final long elapsedMicros;
+    private final int rows;
+    private final boolean error;
+    private final boolean sampled;
+    private final String parameters;
+
+    @ConstructorProperties({"sequence", "timestamp", "mapper", "method", "connectionType", "idMarca", "environment",
+            "elapsedMicros", "rows", "error", "sampled", "parameters"})
+    public SlowStatement(long sequence, long timestamp, String mapper, String method, String connectionType,
+                         String idMarca, String environment, long elapsedMicros, int rows, boolean error,
+                         boolean sampled, String parameters) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.mapper = mapper;
+        this.method = method;
+        this.connectionType = connectionType;
+        this.idMarca = idMarca;
+        this.environment = environment;
+        this.elapsedMicros = elapsedMicros;
+        this.rows = rows;
+        this.error = error;
+        this.sampled = sampled;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return orden de la llamada en el log, creciente
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return fin de la llamada, en milisegundos desde epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getMapper() {
+        return mapper;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getConnectionType() {
+        return connectionType;
+    }
+
+    public String getIdMarca() {
+        return idMarca;
+    }
+
+    /**
+     * @return environment de <code>sqlMapConfig.xml</code> de la sesion, vacio si la sesion la abrio el llamador
+     */
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public long getElapsedMicros() {
+        return elapsedMicros;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public boolean isError() {
+        return error;
+    }
+
+    /**
+     * @return true si la llamada no supero el umbral y se guardo por el muestreo
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * @return parametros de la ultima sentencia de la llamada, <code>null</code> si no se guardan
+     */
+    public String getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s.%s %s '%s' env=%s %d us, %d filas%s%s%s",
+                new SimpleDateFormat("yyyyMMdd HH:mm:ss.SSS").format(new Date(timestamp)), mapper, method,
+                connectionType, idMarca, environment, elapsedMicros, rows, error ? ", con error" : "",
+                sampled ? ", muestreo" : "", parameters == null ? "" : ", parametros " + parameters);
+    }
+}
@@ -0,0 +1,242 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import com.unicon.api.commons.db.dao.enums.EParameterCapture;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ToLongFunction;
+
+/**
+ * Log de sentencias lentas de los DAO. Una llamada que supera el umbral de su metodo se registra con nivel WARN en
+ * este logger y se guarda en un buffer circular; ademas se guarda, sin log, una fraccion <code>sampleRate</code> de
+ * las llamadas normales, para comparar.
+ * <p>
+ * El buffer no usa locks: cada llamada toma una posicion con un contador atomico y sobrescribe la entrada mas
+ * antigua. {@link #getRecent()} y {@link #dump()} leen el buffer sin detener a los que escriben; una entrada que se
+ * sobrescribe durante la lectura se omite. Los parametros se convierten a texto solo al guardar una llamada.
+ *
+ * @author acrispin
+ */
+public final class SlowStatementLog implements SlowStatementLogMXBean {
+
+    private static final Logger LOGGER = LogManager.getLogger(SlowStatementLog.class);
+    private static final int MAX_PARAMETERS = 512;
+
+    private final AtomicReferenceArray<SlowStatement> buffer;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    private final long defaultThresholdMillis;
+    private final ToLongFunction<String> thresholdLookup;
+    private final ConcurrentMap<String, Long> thresholds = new ConcurrentHashMap<>();
+    private final EParameterCapture parameterCapture;
+    private volatile double sampleRate;
+
+    /**
+     * @param capacity               entradas del buffer, se redondea a la siguiente potencia de 2
+     * @param defaultThresholdMillis umbral de los metodos sin umbral propio
+     * @param sampleRate             fraccion de las llamadas normales que se guardan, 0 para no muestrear
+     * @param parameterCapture       forma de guardar los parametros
+     */
+    public SlowStatementLog(int capacity, long defaultThresholdMillis, double sampleRate, EParameterCapture parameterCapture) {
+        this(capacity, defaultThresholdMillis, sampleRate, parameterCapture, key -> defaultThresholdMillis);
+    }
+
+    /**
+     * @param capacity               entradas del buffer, se redondea a la siguiente potencia de 2
+     * @param defaultThresholdMillis umbral de los metodos sin umbral propio
+     * @param sampleRate             fraccion de las llamadas normales que se guardan, 0 para no muestrear
+     * @param parameterCapture       forma de guardar los parametros
+     * @param thresholdLookup        umbral en milisegundos de <code>Mapper.metodo</code>, se consulta una vez por metodo
+     */
+    public SlowStatementLog(int capacity, long defaultThresholdMillis, double sampleRate, EParameterCapture parameterCapture,
+                            ToLongFunction<String> thresholdLookup) {
+        if (capacity <= 0 || defaultThresholdMillis < 0) {
+            throw new IllegalArgumentException(String.format("Parametros incorrectos para el log de sentencias lentas: capacity=%d, thresholdMillis=%d",
+                    capacity, defaultThresholdMillis));
+        }
+        int size = Integer.highestOneBit(capacity);
+        size = size < capacity ? size << 1 : size;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.defaultThresholdMillis = defaultThresholdMillis;
+        this.thresholdLookup = thresholdLookup;
+        this.parameterCapture = parameterCapture == null ? EParameterCapture.MASKED : parameterCapture;
+        setSampleRate(sampleRate);
+    }
+
+    /**
+     * Guarda la llamada si supera el umbral de su metodo o si sale en el muestreo.
+     *
+     * @param key         serie de la llamada
+     * @param environment environment de la sesion
+     * @param nanos       duracion
+     * @param rows        filas leidas o afectadas
+     * @param error       true si termino con error
+     * @param parameter   parametro de la ultima sentencia, se convierte a texto solo si la llamada se guarda
+     * @return true si la llamada se guardo
+     */
+    public boolean record(MetricKey key, String environment, long nanos, int rows, boolean error, Object parameter) {
+        boolean slow = nanos >= TimeUnit.MILLISECONDS.toNanos(thresholdMillis(key.getMapper(), key.getMethod()));
+        if (!slow) {
+            double rate = sampleRate;
+            if (rate <= 0d || ThreadLocalRandom.current().nextDouble() >= rate) {
+                return false;
+            }
+        }
+        long seq = sequence.getAndIncrement();
+        SlowStatement statement = new SlowStatement(seq, System.currentTimeMillis(), key.getMapper(), key.getMethod(),
+                key.getConnectionType(), key.getIdMarca(), environment == null ? "" : environment,
+                TimeUnit.NANOSECONDS.toMicros(nanos), rows, error, !slow, renderParameters(parameter));
+        buffer.set((int) (seq & mask), statement);
+        if (slow && LOGGER.isWarnEnabled()) {
+            LOGGER.warn("Sentencia lenta: {}", statement);
+        }
+        return true;
+    }
+
+    /**
+     * @param mapper nombre simple del mapper
+     * @param method metodo del mapper
+     * @return umbral del metodo en milisegundos
+     */
+    public long thresholdMillis(String mapper, String method) {
+        String name = mapper + "." + method;
+        Long threshold = thresholds.get(name);
+        if (threshold == null) {
+            threshold = thresholds.computeIfAbsent(name, thresholdLookup::applyAsLong);
+        }
+        return threshold;
+    }
+
+    @Override
+    public void setThreshold(String mapper, String method, long thresholdMillis) {
+        thresholds.put(mapper + "." + method, thresholdMillis);
+    }
+
+    @Override
+    public long getDefaultThresholdMillis() {
+        return defaultThresholdMillis;
+    }
+
+    @Override
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = Math.max(0d, Math.min(1d, sampleRate));
+    }
+
+    @Override
+    public long getRecorded() {
+        return sequence.get();
+    }
+
+    @Override
+    public List<SlowStatement> getRecent() {
+        long last = sequence.get() - 1;
+        long first = Math.max(0L, last - mask);
+        List<SlowStatement> recent = new ArrayList<>((int) (last - first + 1));
+        for (long seq = last; seq >= first; seq--) {
+            SlowStatement statement = buffer.get((int) (seq & mask));
+            if (statement != null && statement.getSequence() == seq) {
+                recent.add(statement);
+            }
+        }
+        return recent;
+    }
+
+    /**
+     * @return llamadas guardadas, una por linea y de la mas reciente a la mas antigua, para un volcado de diagnostico
+     */
+    public String dump() {
+        List<SlowStatement> recent = getRecent();
+        StringBuilder sb = new StringBuilder(128 + recent.size() * 160);
+        sb.append(String.format("Sentencias lentas: %d guardadas, %d en el buffer, umbral por defecto %d ms, muestreo %s%n",
+                getRecorded(), recent.size(), defaultThresholdMillis, sampleRate));
+        for (SlowStatement statement : recent) {
+            sb.append(statement).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < buffer.length(); i++) {
+            buffer.set(i, null);
+        }
+    }
+
+    private String renderParameters(Object parameter) {
+        if (parameterCapture == EParameterCapture.NONE) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        if (parameter == null || isScalar(parameter)) {
+            appendValue(sb, parameter);
+        } else if (parameter instanceof Collection || parameter.getClass().isArray()) {
+            sb.append(parameter.getClass().getSimpleName()).append("(...)");
+        } else {
+            MetaObject meta = SystemMetaObject.forObject(parameter);
+            sb.append('{');
+            String[] names = meta.getGetterNames();
+            for (int i = 0; i < names.length && sb.length() < MAX_PARAMETERS; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(names[i]).append('=');
+                try {
+                    appendValue(sb, meta.getValue(names[i]));
+                } catch (RuntimeException ex) {
+                    sb.append('?');
+                }
+            }
+            sb.append('}');
+        }
+        if (sb.length() > MAX_PARAMETERS) {
+            sb.setLength(MAX_PARAMETERS);
+            sb.append("...");
+        }
+        return sb.toString();
+    }
+
+    private void appendValue(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof CharSequence) {
+            if (parameterCapture == EParameterCapture.FULL) {
+                sb.append('\'').append(value).append('\'');
+            } else {
+                sb.append("***(").append(((CharSequence) value).length()).append(')');
+            }
+        } else if (isScalar(value)) {
+            sb.append(value);
+        } else if (value instanceof Map || value instanceof Collection) {
+            sb.append(value.getClass().getSimpleName()).append('[').append(value instanceof Map ? ((Map<?, ?>) value).size()
+                    : ((Collection<?>) value).size()).append(']');
+        } else {
+            sb.append(value.getClass().getSimpleName());
+        }
+    }
+
+    private static boolean isScalar(Object value) {
+        return value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof Date || value instanceof Enum
+                || value instanceof Temporal;
+    }
+}
@@ -0,0 +1,48 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import java.util.List;
+
+/**
+ * Vista JMX de {@link SlowStatementLog}, registrada como <code>com.unicon.api.commons.db:type=SlowStatements</code>.
+ *
+ * @author acrispin
+ */
+public interface SlowStatementLogMXBean {
+
+    /**
+     * @return llamadas guardadas, de la mas reciente a la mas antigua
+     */
+    List<SlowStatement> getRecent();
+
+    /**
+     * @return llamadas guardadas desde el inicio, incluidas las que ya se sobrescribieron
+     */
+    long getRecorded();
+
+    /**
+     * @return umbral por defecto en milisegundos
+     */
+    long getDefaultThresholdMillis();
+
+    /**
+     * @return fraccion de las llamadas normales que se guardan
+     */
+    double getSampleRate();
+
+    /**
+     * @param sampleRate fraccion entre 0 y 1, 0 para no muestrear
+     */
+    void setSampleRate(double sampleRate);
+
+    /**
+     * @param mapper          nombre simple del mapper
+     * @param method          metodo del mapper
+     * @param thresholdMillis umbral del metodo en milisegundos
+     */
+    void setThreshold(String mapper, String method, long thresholdMillis);
+
+    /**
+     * Vacia el buffer.
+     */
+    void clear();
+}
@@ -0,0 +1,110 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores y latencias de una serie de metricas. Todos los registros son sin bloqueos.
+ *
+ * @author acrispin
+ */
+public final class StatementMetrics {
+
+    private final MetricKey key;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder prepared = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public StatementMetrics(MetricKey key) {
+        this.key = key;
+    }
+
+    /**
+     * @param nanos duracion de la llamada
+     * @param rows  filas leidas o afectadas
+     * @param error true si la llamada termino con error
+     */
+    public void record(long nanos, int rows, boolean error) {
+        calls.increment();
+        if (error) {
+            errors.increment();
+        }
+        if (rows > 0) {
+            this.rows.add(rows);
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        latency.record(nanos);
+    }
+
+    /**
+     * @param executions sentencias ejecutadas en la llamada
+     * @param prepared   statements preparados en la base en la llamada
+     */
+    public void recordStatementCache(int executions, int prepared) {
+        this.executions.add(executions);
+        this.prepared.add(prepared);
+    }
+
+    /**
+     * Registra una llamada que recibio el resultado de otra identica en vuelo.
+     */
+    public void recordCoalesced() {
+        coalesced.increment();
+    }
+
+    /**
+     * Registra una llamada rechazada por el circuito abierto de su marca.
+     */
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    public MetricKey getKey() {
+        return key;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return copia de los valores actuales, con las latencias en microsegundos
+     */
+    public StatementStats snapshot() {
+        long count = calls.sum();
+        long executed = executions.sum();
+        long prepares = prepared.sum();
+        return new StatementStats(key.getMapper(), key.getMethod(), key.getConnectionType(), key.getIdMarca(),
+                count, errors.sum(), rows.sum(), coalesced.sum(), rejected.sum(), executed, prepares,
+                executed == 0 ? 0.0 : Math.max(0L, executed - prepares) / (double) executed,
+                count == 0 ? 0L : totalNanos.sum() / count / 1000L,
+                latency.getPercentile(50) / 1000L,
+                latency.getPercentile(99) / 1000L,
+                latency.getPercentile(99.9) / 1000L,
+                maxNanos.get() / 1000L);
+    }
+
+    /**
+     * Vacia los contadores.
+     */
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        rows.reset();
+        executions.reset();
+        prepared.reset();
+        coalesced.reset();
+        rejected.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        latency.reset();
+    }
+}
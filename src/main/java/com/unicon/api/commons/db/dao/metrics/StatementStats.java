@@ -0,0 +1,134 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Valores de una serie de metricas en un momento dado. Las latencias estan en microsegundos.
+ * <code>statementHitRate</code> es la fraccion de ejecuciones que reutilizaron un statement ya preparado.
+ * <code>coalesced</code> cuenta las llamadas que recibieron el resultado de una lectura identica en vuelo; no se
+ * incluyen en <code>calls</code>. <code>rejected</code> cuenta las llamadas rechazadas por el circuito abierto de la
+ * marca, tampoco incluidas en <code>calls</code>.
+ *
+ * @author acrispin
+ */
+public final class StatementStats {
+
+    private final String mapper;
+    private final String method;
+    private final String connectionType;
+    private final String idMarca;
+    private final long calls;
+    private final long errors;
+    private final long rows;
+    private final long coalesced;
+    private final long rejected;
+    private final long executions;
+    private final long prepared;
+    private final double statementHitRate;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    @ConstructorProperties({"mapper", "method", "connectionType", "idMarca", "calls", "errors", "rows", "coalesced",
+            "rejected", "executions", "prepared", "statementHitRate",
+            "meanMicros", "p50Micros", "p99Micros", "p999Micros", "maxMicros"})
+    public StatementStats(String mapper, String method, String connectionType, String idMarca,
+                          long calls, long errors, long rows, long coalesced,
+                          long rejected, long executions, long prepared, double statementHitRate,
+                          long meanMicros, long p50Micros, long p99Micros, long p999Micros, long maxMicros) {
+        this.mapper = mapper;
+        this.method = method;
+        this.connectionType = connectionType;
+        this.idMarca = idMarca;
+        this.calls = calls;
+        this.errors = errors;
+        this.rows = rows;
+        this.coalesced = coalesced;
+        this.rejected = rejected;
+        this.executions = executions;
+        this.prepared = prepared;
+        this.statementHitRate = statementHitRate;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public String getMapper() {
+        return mapper;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getConnectionType() {
+        return connectionType;
+    }
+
+    public String getIdMarca() {
+        return idMarca;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    public long getPrepared() {
+        return prepared;
+    }
+
+    public double getStatementHitRate() {
+        return statementHitRate;
+    }
+
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s.%s[%s%s] calls=%d, errors=%d, rows=%d, coalesced=%d, rejected=%d, statementHitRate=%.2f, mean=%dus, p50=%dus, p99=%dus, p999=%dus, max=%dus",
+                mapper, method, connectionType, idMarca.isEmpty() ? "" : "/" + idMarca,
+                calls, errors, rows, coalesced, rejected, statementHitRate, meanMicros, p50Micros, p99Micros, p999Micros, maxMicros);
+    }
+}
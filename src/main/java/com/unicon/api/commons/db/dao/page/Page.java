@@ -0,0 +1,37 @@
+package com.unicon.api.commons.db.dao.page;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pagina de resultados de <code>DaoBase.selectPage</code>.
+ *
+ * @author acrispin
+ * @param <T> tipo de los elementos
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final String nextToken;
+
+    /**
+     * @param items     elementos de la pagina
+     * @param nextToken token de la pagina siguiente, <code>null</code> si es la ultima
+     */
+    public Page(List<T> items, String nextToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
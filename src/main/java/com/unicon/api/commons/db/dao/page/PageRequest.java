@@ -0,0 +1,61 @@
+package com.unicon.api.commons.db.dao.page;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Solicitud de una pagina para <code>DaoBase.selectPage</code>.
+ * <p>
+ * La primera pagina se pide sin token; las siguientes con el token que devuelve {@link Page#getNextToken()}, o con
+ * {@link #next(Page)}. El token es opaco y se puede enviar tal cual a los clientes REST.
+ *
+ * @author acrispin
+ */
+public final class PageRequest {
+
+    private final Map<String, Object> params;
+    private final int size;
+    private final String token;
+
+    /**
+     * @param size cantidad de elementos por pagina
+     */
+    public PageRequest(int size) {
+        this(null, size, null);
+    }
+
+    /**
+     * @param params parametros de la consulta, se copian
+     * @param size   cantidad de elementos por pagina
+     * @param token  token de la pagina a leer, <code>null</code> para la primera
+     */
+    public PageRequest(Map<String, Object> params, int size, String token) {
+        if (size <= 0) {
+            throw new IllegalArgumentException(String.format("size debe ser mayor a cero: %d", size));
+        }
+        this.params = params == null ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(params));
+        this.size = size;
+        this.token = token == null || token.isEmpty() ? null : token;
+    }
+
+    /**
+     * @param page pagina leida con esta solicitud
+     * @return solicitud de la pagina siguiente, <code>null</code> si no hay mas paginas
+     */
+    public PageRequest next(Page<?> page) {
+        return page.hasNext() ? new PageRequest(params, size, page.getNextToken()) : null;
+    }
+
+    public Map<String, Object> getParams() {
+        return params;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getToken() {
+        return token;
+    }
+}
@@ -0,0 +1,155 @@
+package com.unicon.api.commons.db.dao.page;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Codifica la llave de la ultima fila de una pagina como un token opaco y seguro para URL.
+ * <p>
+ * Solo se aceptan tipos simples (texto, numeros, booleanos y fechas), de modo que un token manipulado por un cliente
+ * no puede crear objetos arbitrarios al decodificarse.
+ *
+ * @author acrispin
+ */
+public final class PageToken {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 'S';
+    private static final byte INTEGER = 'I';
+    private static final byte LONG = 'L';
+    private static final byte SHORT = 'H';
+    private static final byte DOUBLE = 'F';
+    private static final byte DECIMAL = 'D';
+    private static final byte BIG_INTEGER = 'N';
+    private static final byte BOOLEAN = 'Z';
+    private static final byte TIMESTAMP = 'T';
+    private static final byte SQL_DATE = 'd';
+    private static final byte DATE = 'U';
+
+    private PageToken() {
+    }
+
+    /**
+     * @param key valores de la llave, en el orden del <code>ORDER BY</code>
+     * @return token
+     */
+    public static String encode(Object... key) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(key.length);
+            for (Object value : key) {
+                write(out, value);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @param token token generado por {@link #encode(Object...)}
+     * @return valores de la llave, <code>null</code> si el token es <code>null</code>
+     * @throws IllegalArgumentException si el token no es valido
+     */
+    public static Object[] decode(String token) {
+        if (token == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            Object[] key = new Object[in.readUnsignedByte()];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = read(in);
+            }
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Token de pagina incorrecto");
+            }
+            return key;
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new IllegalArgumentException(String.format("Token de pagina incorrecto: %s", token), ex);
+        }
+    }
+
+    private static void write(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            out.writeUTF(value.toString());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            throw new IllegalArgumentException(String.format("Tipo no soportado en la llave de pagina: %s", value.getClass().getName()));
+        }
+    }
+
+    private static Object read(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return in.readUTF();
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case SHORT:
+                return in.readShort();
+            case DOUBLE:
+                return in.readDouble();
+            case DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case BIG_INTEGER:
+                return new BigInteger(in.readUTF());
+            case BOOLEAN:
+                return in.readBoolean();
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case DATE:
+                return new Date(in.readLong());
+            default:
+                throw new IllegalArgumentException(String.format("Tipo desconocido en token: %d", type));
+        }
+    }
+}
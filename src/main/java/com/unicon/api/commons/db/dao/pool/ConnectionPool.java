@@ -0,0 +1,721 @@
+package com.unicon.api.commons.db.dao.pool;
+
+import com.unicon.api.commons.db.dao.Deadline;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de conexiones concurrente, sin un bloqueo global.
+ * <p>
+ * Una conexion se presta en tres pasos: primero se buscan las ultimas conexiones que el mismo hilo devolvio
+ * (afinidad por hilo, normalmente siguen libres), luego se recorre la lista compartida tomando la primera libre
+ * por CAS y, si no hay, se abre una nueva mientras no se supere <code>maximumPoolSize</code>. Si el pool esta lleno
+ * el hilo espera en una cola justa (FIFO) hasta <code>connectionTimeout</code>, o hasta que vence el {@link Deadline}
+ * del hilo si es antes; cada conexion devuelta se ofrece directamente al primer hilo en espera. Quien devuelve la
+ * conexion no espera a que un hilo este listo para recibirla: si nadie la toma queda libre y los hilos en espera
+ * vuelven a recorrer la lista cada pocos milisegundos. Si la espera la corta el plazo, la
+ * <code>SQLTransientConnectionException</code> lleva como causa una
+ * {@link com.unicon.api.commons.db.dao.DeadlineExceededException}.
+ * <p>
+ * Una tarea de mantenimiento cierra las conexiones que superan <code>maxLifetime</code> o que estan libres mas de
+ * <code>idleTimeout</code> por encima de <code>minimumIdle</code>, valida con <code>Connection.isValid</code> las que
+ * no se usan hace mas de <code>keepaliveTime</code> (una conexion cortada por un firewall o un failover se descarta
+ * antes de prestarla) y vuelve a abrir hasta <code>minimumIdle</code>. Con <code>leakDetectionThreshold</code> la
+ * misma tarea registra en el log la pila del hilo que tomo una conexion que sigue prestada despues de ese tiempo.
+ * <p>
+ * Con <code>statementCacheSize</code> cada conexion mantiene abiertos sus ultimos <code>PreparedStatement</code>;
+ * al cerrarlos se limpian y quedan en el cache de la conexion, y el siguiente <code>prepareStatement</code> con el
+ * mismo SQL los reutiliza sin volver a prepararlos en la base. {@link #isReused(Statement)} indica si un statement
+ * salio del cache.
+ *
+ * @author acrispin
+ */
+public final class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(ConnectionPool.class);
+    private static final int AFFINITY_SIZE = 8;
+    private static final int HANDOFF_ATTEMPTS = 16;
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final ScheduledExecutorService HOUSEKEEPER = createHousekeeper();
+
+    private final PoolSettings settings;
+    private final UnpooledDataSource unpooled;
+    private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<>();
+    private final SynchronousQueue<PoolEntry> handoff = new SynchronousQueue<>(true);
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final ThreadLocal<List<PoolEntry>> affinity = ThreadLocal.withInitial(() -> new ArrayList<>(AFFINITY_SIZE));
+    private final ScheduledFuture<?> housekeeping;
+    private final long connectionTimeoutNanos;
+    private final long maxLifetimeNanos;
+    private final long idleTimeoutNanos;
+    private final long keepaliveNanos;
+    private final long leakThresholdNanos;
+    private final int validationSeconds;
+    private volatile boolean closed;
+
+    /**
+     * @param driver           clase del driver JDBC
+     * @param url              url de la base de datos
+     * @param driverProperties propiedades del driver, por ejemplo <code>user</code> y <code>password</code>
+     * @param settings         parametros del pool
+     */
+    public ConnectionPool(String driver, String url, Properties driverProperties, PoolSettings settings) {
+        settings.validate();
+        this.settings = settings;
+        this.unpooled = new UnpooledDataSource(driver, url, driverProperties);
+        this.connectionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(settings.getConnectionTimeout());
+        this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(settings.getMaxLifetime());
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(settings.getIdleTimeout());
+        this.keepaliveNanos = TimeUnit.MILLISECONDS.toNanos(settings.getKeepaliveTime());
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(settings.getLeakDetectionThreshold());
+        this.validationSeconds = (int) Math.max(1L, (settings.getValidationTimeout() + 999L) / 1000L);
+        fillMinimumIdle();
+        this.housekeeping = HOUSEKEEPER.scheduleWithFixedDelay(this::housekeep,
+                settings.getHousekeepingPeriod(), settings.getHousekeepingPeriod(), TimeUnit.MILLISECONDS);
+    }
+
+    public PoolSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return conexiones abiertas, prestadas o libres
+     */
+    public int getTotalConnections() {
+        return total.get();
+    }
+
+    /**
+     * @return conexiones prestadas en este momento
+     */
+    public int getActiveConnections() {
+        int active = 0;
+        for (PoolEntry entry : entries) {
+            if (entry.getState() == PoolEntry.IN_USE) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * @return conexiones libres en este momento
+     */
+    public int getIdleConnections() {
+        int idle = 0;
+        for (PoolEntry entry : entries) {
+            if (entry.getState() == PoolEntry.IDLE) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * @return hilos esperando una conexion
+     */
+    public int getWaitingThreads() {
+        return waiters.get();
+    }
+
+    /**
+     * @return conexiones reportadas como posibles fugas desde que se creo el pool
+     */
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    /**
+     * @return conexiones descartadas por fallar la validacion desde que se creo el pool
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return <code>prepareStatement</code> atendidos desde el cache de statements
+     */
+    public long getStatementCacheHits() {
+        return statementHits.sum();
+    }
+
+    /**
+     * @return <code>prepareStatement</code> que se prepararon en la base con el cache de statements activo
+     */
+    public long getStatementCacheMisses() {
+        return statementMisses.sum();
+    }
+
+    /**
+     * @param statement statement devuelto por una conexion, de este pool u otro origen
+     * @return true si el statement salio del cache de statements de un {@link ConnectionPool} sin volver a prepararse
+     */
+    public static boolean isReused(Statement statement) {
+        try {
+            return statement.isWrapperFor(ReusedStatement.class);
+        } catch (SQLException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException(String.format("El pool %s esta cerrado", settings.getPoolName()));
+        }
+        PoolEntry entry = borrow(System.nanoTime());
+        entry.lastAccessNanos = System.nanoTime();
+        if (leakThresholdNanos > 0) {
+            entry.leakReported = false;
+            entry.borrowStack = new Throwable(String.format("Conexion tomada del pool %s por el hilo %s",
+                    settings.getPoolName(), Thread.currentThread().getName()));
+        }
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new PooledConnection(entry));
+    }
+
+    private PoolEntry borrow(long start) throws SQLException {
+        List<PoolEntry> local = affinity.get();
+        for (int i = local.size() - 1; i >= 0; i--) {
+            PoolEntry entry = local.remove(i);
+            if (entry.compareAndSet(PoolEntry.IDLE, PoolEntry.IN_USE) && isUsable(entry)) {
+                return entry;
+            }
+        }
+        PoolEntry entry = scan();
+        if (entry == null) {
+            entry = tryCreate(PoolEntry.IN_USE);
+        }
+        if (entry != null) {
+            return entry;
+        }
+
+        Deadline deadline = Deadline.current();
+        long timeoutNanos = connectionTimeoutNanos;
+        boolean deadlineBound = false;
+        if (deadline != null) {
+            long remaining = Math.max(0L, deadline.remainingNanos());
+            deadlineBound = timeoutNanos <= 0 || remaining < timeoutNanos;
+            timeoutNanos = deadlineBound ? remaining : timeoutNanos;
+        }
+        boolean bounded = connectionTimeoutNanos > 0 || deadline != null;
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                entry = scan();
+                if (entry == null) {
+                    entry = tryCreate(PoolEntry.IN_USE);
+                }
+                if (entry != null) {
+                    return entry;
+                }
+                long remaining = timeoutNanos - (System.nanoTime() - start);
+                if (bounded && remaining <= 0) {
+                    break;
+                }
+                // espera por tramos: una conexion devuelta cuando este hilo aun no estaba en poll queda en la lista
+                entry = handoff.poll(bounded ? Math.min(remaining, WAIT_SLICE_NANOS) : WAIT_SLICE_NANOS, TimeUnit.NANOSECONDS);
+                if (entry != null && entry.compareAndSet(PoolEntry.IDLE, PoolEntry.IN_USE) && isUsable(entry)) {
+                    return entry;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(String.format("Espera de conexion interrumpida en el pool %s", settings.getPoolName()), ex);
+        } finally {
+            waiters.decrementAndGet();
+        }
+        SQLTransientConnectionException timeout = new SQLTransientConnectionException(String.format(
+                "No hay conexiones libres en el pool %s despues de %d ms (total=%d, activas=%d, en espera=%d)",
+                settings.getPoolName(), TimeUnit.NANOSECONDS.toMillis(timeoutNanos), getTotalConnections(), getActiveConnections(), getWaitingThreads()));
+        if (deadlineBound) {
+            // la espera la corto el plazo de la llamada y no connectionTimeout: el circuit breaker no la cuenta como falla
+            timeout.initCause(deadline.exceeded("obtener una conexion del pool " + settings.getPoolName()));
+        }
+        throw timeout;
+    }
+
+    private PoolEntry scan() {
+        for (PoolEntry entry : entries) {
+            if (entry.compareAndSet(PoolEntry.IDLE, PoolEntry.IN_USE) && isUsable(entry)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true si la conexion tomada se puede prestar; si vencio o no responde se cierra
+     */
+    private boolean isUsable(PoolEntry entry) {
+        long now = System.nanoTime();
+        if (isExpired(entry, now) || needsValidation(entry, now) && !isValid(entry)) {
+            retire(entry);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean needsValidation(PoolEntry entry, long now) {
+        return keepaliveNanos > 0 && now - entry.lastValidNanos > keepaliveNanos;
+    }
+
+    /**
+     * Valida la conexion con <code>Connection.isValid</code>; si no responde cuenta un descarte.
+     */
+    private boolean isValid(PoolEntry entry) {
+        try {
+            if (entry.connection.isValid(validationSeconds)) {
+                entry.lastValidNanos = System.nanoTime();
+                return true;
+            }
+            LOGGER.warn("Conexion sin respuesta descartada del pool {}", settings.getPoolName());
+        } catch (SQLException ex) {
+            LOGGER.warn("Conexion invalida descartada del pool {}: {}", settings.getPoolName(), ex.getMessage());
+        }
+        evictions.incrementAndGet();
+        return false;
+    }
+
+    private boolean isExpired(PoolEntry entry, long now) {
+        return maxLifetimeNanos > 0 && now - entry.createdNanos > maxLifetimeNanos;
+    }
+
+    private PoolEntry tryCreate(int state) throws SQLException {
+        while (true) {
+            int current = total.get();
+            if (current >= settings.getMaximumPoolSize()) {
+                return null;
+            }
+            if (total.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        try {
+            PoolEntry entry = new PoolEntry(unpooled.getConnection(), state, settings.getStatementCacheSize());
+            entries.add(entry);
+            return entry;
+        } catch (SQLException | RuntimeException ex) {
+            total.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * Devuelve una conexion prestada al pool; si hay hilos esperando se les entrega directamente.
+     */
+    void release(PoolEntry entry) {
+        long borrowed = entry.lastAccessNanos;
+        entry.lastAccessNanos = System.nanoTime();
+        entry.lastValidNanos = entry.lastAccessNanos;
+        if (entry.leakReported) {
+            LOGGER.info("Conexion reportada como posible fuga devuelta al pool {} despues de {} ms",
+                    settings.getPoolName(), TimeUnit.NANOSECONDS.toMillis(entry.lastAccessNanos - borrowed));
+        }
+        entry.borrowStack = null;
+        if (closed || isExpired(entry, entry.lastAccessNanos)) {
+            retire(entry);
+            replace();
+            return;
+        }
+        entry.setState(PoolEntry.IDLE);
+        List<PoolEntry> local = affinity.get();
+        if (local.size() >= AFFINITY_SIZE) {
+            local.remove(0);
+        }
+        local.add(entry);
+        handOff(entry);
+    }
+
+    /**
+     * Ofrece la conexion libre a un hilo en espera unas pocas veces; se ejecuta en el <code>close</code> del
+     * llamador, que no debe esperar a un hilo que esta abriendo una conexion fisica.
+     */
+    private void handOff(PoolEntry entry) {
+        for (int i = 0; i < HANDOFF_ATTEMPTS && waiters.get() > 0; i++) {
+            if (entry.getState() != PoolEntry.IDLE || handoff.offer(entry)) {
+                return;
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Cierra la conexion fisica y libera su lugar.
+     */
+    void retire(PoolEntry entry) {
+        if (entry.getAndSet(PoolEntry.REMOVED) == PoolEntry.REMOVED) {
+            return;
+        }
+        entries.remove(entry);
+        total.decrementAndGet();
+        try {
+            entry.connection.close();
+        } catch (SQLException ex) {
+            LOGGER.debug(ex.getMessage());
+        }
+    }
+
+    /**
+     * Si hay hilos esperando abre una conexion en el lugar de una retirada. No se debe llamar desde un hilo que
+     * espera una conexion, ese hilo abre la suya en {@link #borrow(long)}.
+     */
+    private void replace() {
+        if (!closed && waiters.get() > 0) {
+            try {
+                PoolEntry replacement = tryCreate(PoolEntry.IDLE);
+                if (replacement != null) {
+                    handOff(replacement);
+                }
+            } catch (SQLException | RuntimeException ex) {
+                LOGGER.warn("No se pudo abrir una conexion de reemplazo en el pool {}: {}", settings.getPoolName(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Tarea de mantenimiento: reporta las posibles fugas, cierra las conexiones vencidas, inactivas o que no responden
+     * y vuelve a abrir hasta <code>minimumIdle</code>.
+     */
+    void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (PoolEntry entry : entries) {
+            if (entry.getState() == PoolEntry.IN_USE) {
+                reportLeak(entry, now);
+                continue;
+            }
+            if (!entry.compareAndSet(PoolEntry.IDLE, PoolEntry.RESERVED)) {
+                continue;
+            }
+            boolean idleTooLong = idleTimeoutNanos > 0 && now - entry.lastAccessNanos > idleTimeoutNanos
+                    && total.get() > settings.getMinimumIdle();
+            if (isExpired(entry, now) || idleTooLong || needsValidation(entry, now) && !isValid(entry)) {
+                retire(entry);
+                replace();
+            } else {
+                entry.setState(PoolEntry.IDLE);
+                handOff(entry);
+            }
+        }
+        fillMinimumIdle();
+    }
+
+    private void reportLeak(PoolEntry entry, long now) {
+        Throwable borrowStack = entry.borrowStack;
+        if (leakThresholdNanos > 0 && borrowStack != null && !entry.leakReported
+                && now - entry.lastAccessNanos > leakThresholdNanos) {
+            entry.leakReported = true;
+            leaks.incrementAndGet();
+            LOGGER.warn("Posible fuga de conexion en el pool {}: prestada hace {} ms sin devolverse",
+                    settings.getPoolName(), TimeUnit.NANOSECONDS.toMillis(now - entry.lastAccessNanos), borrowStack);
+        }
+    }
+
+    private void fillMinimumIdle() {
+        try {
+            while (!closed && total.get() < settings.getMinimumIdle()) {
+                PoolEntry entry = tryCreate(PoolEntry.IDLE);
+                if (entry == null) {
+                    return;
+                }
+                handOff(entry);
+            }
+        } catch (SQLException | RuntimeException ex) {
+            LOGGER.warn("No se pudo completar minimumIdle en el pool {}: {}", settings.getPoolName(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Cierra las conexiones libres; las prestadas se cierran al devolverse.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeping.cancel(false);
+        for (PoolEntry entry : entries) {
+            if (entry.compareAndSet(PoolEntry.IDLE, PoolEntry.RESERVED)) {
+                retire(entry);
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("El pool usa el usuario de su configuracion");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // sin log writer, el pool usa log4j
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        unpooled.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return unpooled.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() {
+        return java.util.logging.Logger.getLogger(java.util.logging.Logger.GLOBAL_LOGGER_NAME);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException(String.format("%s no implementa %s", getClass().getName(), iface.getName()));
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private static ScheduledExecutorService createHousekeeper() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "dao-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Marca de {@link #isReused(Statement)}, no se implementa.
+     */
+    private interface ReusedStatement {
+    }
+
+    /**
+     * Conexion entregada a mybatis; <code>close</code> la devuelve al pool en lugar de cerrarla.
+     */
+    private final class PooledConnection implements InvocationHandler {
+        private final PoolEntry entry;
+        private boolean closed;
+
+        private PooledConnection(PoolEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                close();
+                return null;
+            } else if ("isClosed".equals(name)) {
+                return closed || entry.connection.isClosed();
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("toString".equals(name)) {
+                return String.format("%s[%s]", settings.getPoolName(), entry.connection);
+            } else if (closed) {
+                throw new SQLException("La conexion ya fue devuelta al pool");
+            }
+            try {
+                if (entry.statements != null && "prepareStatement".equals(name) && isCacheable(args)) {
+                    return prepareCached((Connection) proxy, method, args);
+                }
+                return method.invoke(entry.connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        /**
+         * Solo se cachean las variantes con SQL y opciones enteras (tipo de result set, concurrencia, claves generadas).
+         */
+        private boolean isCacheable(Object[] args) {
+            for (Object arg : args) {
+                if (!(arg instanceof String || arg instanceof Integer)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Object prepareCached(Connection connection, Method method, Object[] args) throws ReflectiveOperationException, SQLException {
+            List<Object> key = Arrays.asList(args);
+            PreparedStatement statement = entry.statements.take(key);
+            boolean reused = statement != null;
+            if (reused) {
+                statementHits.increment();
+            } else {
+                statementMisses.increment();
+                statement = (PreparedStatement) method.invoke(entry.connection, args);
+            }
+            return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    new CachedStatement(this, connection, key, statement, reused));
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (!entry.connection.getAutoCommit()) {
+                    entry.connection.rollback();
+                    entry.connection.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                LOGGER.warn("Conexion descartada del pool {}: {}", settings.getPoolName(), ex.getMessage());
+                retire(entry);
+                replace();
+                return;
+            }
+            release(entry);
+        }
+    }
+
+    /**
+     * Statement entregado a mybatis desde el cache; <code>close</code> lo limpia y lo devuelve al cache de la conexion.
+     */
+    private static final class CachedStatement implements InvocationHandler {
+        private final PooledConnection owner;
+        private final Connection connection;
+        private final List<Object> key;
+        private final PreparedStatement statement;
+        private final boolean reused;
+        private volatile boolean closed;
+        private boolean dirty;
+        private boolean batched;
+
+        private CachedStatement(PooledConnection owner, Connection connection, List<Object> key,
+                                PreparedStatement statement, boolean reused) {
+            this.owner = owner;
+            this.connection = connection;
+            this.key = key;
+            this.statement = statement;
+            this.reused = reused;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return connection;
+                case "isWrapperFor":
+                    if (args[0] == ReusedStatement.class) {
+                        return reused;
+                    }
+                    break;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return statement.toString();
+                case "setFetchSize":
+                case "setFetchDirection":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setMaxFieldSize":
+                case "setQueryTimeout":
+                    dirty = true;
+                    break;
+                case "addBatch":
+                    batched = true;
+                    break;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("El statement ya fue cerrado");
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        /**
+         * Deja el statement como recien preparado; si la conexion ya se devolvio al pool o falla la limpieza lo cierra.
+         */
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (owner.closed) {
+                StatementCache.closeQuietly(statement);
+                return;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearWarnings();
+                if (batched) {
+                    statement.clearBatch();
+                }
+                if (dirty) {
+                    statement.setFetchSize(0);
+                    statement.setFetchDirection(ResultSet.FETCH_FORWARD);
+                    statement.setMaxRows(0);
+                    statement.setMaxFieldSize(0);
+                    statement.setQueryTimeout(0);
+                }
+                owner.entry.statements.offer(key, statement);
+            } catch (SQLException ex) {
+                LOGGER.debug(ex.getMessage());
+                StatementCache.closeQuietly(statement);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.unicon.api.commons.db.dao.pool;
+
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.datasource.DataSourceFactory;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * Factory de mybatis para usar {@link ConnectionPool} en <code>sqlMapConfig.xml</code>:
+ * <pre>
+ * &lt;dataSource type="com.unicon.api.commons.db.dao.pool.ConnectionPoolDataSourceFactory"&gt;
+ *     &lt;property name="driver" value="..."/&gt;
+ *     &lt;property name="url" value="..."/&gt;
+ *     &lt;property name="username" value="..."/&gt;
+ *     &lt;property name="password" value="..."/&gt;
+ *     &lt;property name="maximumPoolSize" value="100"/&gt;
+ * &lt;/dataSource&gt;
+ * </pre>
+ * Ademas acepta <code>poolName</code>, <code>minimumIdle</code>, <code>connectionTimeout</code>,
+ * <code>maxLifetime</code>, <code>idleTimeout</code>, <code>housekeepingPeriod</code>, <code>keepaliveTime</code>,
+ * <code>validationTimeout</code>, <code>leakDetectionThreshold</code> y <code>statementCacheSize</code>
+ * (ver {@link PoolSettings}), y las propiedades del driver con el prefijo <code>driver.</code>.
+ *
+ * @author acrispin
+ */
+public class ConnectionPoolDataSourceFactory implements DataSourceFactory {
+
+    private static final String DRIVER_PREFIX = "driver.";
+
+    private ConnectionPool dataSource;
+
+    @Override
+    public void setProperties(Properties props) {
+        String driver = null;
+        String url = null;
+        Properties driverProperties = new Properties();
+        PoolSettings settings = new PoolSettings();
+        for (String name : props.stringPropertyNames()) {
+            String value = props.getProperty(name).trim();
+            try {
+                switch (name) {
+                    case "driver":
+                        driver = value;
+                        break;
+                    case "url":
+                        url = value;
+                        break;
+                    case "username":
+                        driverProperties.setProperty("user", value);
+                        break;
+                    case "password":
+                        driverProperties.setProperty("password", value);
+                        break;
+                    case "poolName":
+                        settings.poolName(value);
+                        break;
+                    case "maximumPoolSize":
+                        settings.maximumPoolSize(Integer.parseInt(value));
+                        break;
+                    case "minimumIdle":
+                        settings.minimumIdle(Integer.parseInt(value));
+                        break;
+                    case "connectionTimeout":
+                        settings.connectionTimeout(Long.parseLong(value));
+                        break;
+                    case "maxLifetime":
+                        settings.maxLifetime(Long.parseLong(value));
+                        break;
+                    case "idleTimeout":
+                        settings.idleTimeout(Long.parseLong(value));
+                        break;
+                    case "housekeepingPeriod":
+                        settings.housekeepingPeriod(Long.parseLong(value));
+                        break;
+                    case "keepaliveTime":
+                        settings.keepaliveTime(Long.parseLong(value));
+                        break;
+                    case "validationTimeout":
+                        settings.validationTimeout(Long.parseLong(value));
+                        break;
+                    case "leakDetectionThreshold":
+                        settings.leakDetectionThreshold(Long.parseLong(value));
+                        break;
+                    case "statementCacheSize":
+                        settings.statementCacheSize(Integer.parseInt(value));
+                        break;
+                    default:
+                        if (!name.startsWith(DRIVER_PREFIX)) {
+                            throw new DataSourceException(String.format("Propiedad desconocida para el pool: %s", name));
+                        }
+                        driverProperties.setProperty(name.substring(DRIVER_PREFIX.length()), value);
+                }
+            } catch (NumberFormatException ex) {
+                throw new DataSourceException(String.format("Valor '%s' incorrecto para la propiedad %s del pool", value, name), ex);
+            }
+        }
+        if (driver == null || url == null) {
+            throw new DataSourceException("El pool requiere las propiedades driver y url");
+        }
+        try {
+            dataSource = new ConnectionPool(driver, url, driverProperties, settings);
+        } catch (IllegalArgumentException ex) {
+            throw new DataSourceException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+}
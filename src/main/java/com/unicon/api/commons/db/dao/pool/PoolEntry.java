@@ -0,0 +1,63 @@
+package com.unicon.api.commons.db.dao.pool;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Conexion fisica del pool y su estado. El estado solo cambia por CAS, de modo que una conexion libre la toma un
+ * solo hilo sin bloqueos.
+ *
+ * @author acrispin
+ */
+final class PoolEntry {
+
+    static final int IDLE = 0;
+    static final int IN_USE = 1;
+    static final int RESERVED = 2;
+    static final int REMOVED = -1;
+
+    private static final AtomicIntegerFieldUpdater<PoolEntry> STATE = AtomicIntegerFieldUpdater.newUpdater(PoolEntry.class, "state");
+
+    final Connection connection;
+    final long createdNanos;
+    volatile long lastAccessNanos;
+    /**
+     * Ultima vez que se uso o se valido la conexion.
+     */
+    volatile long lastValidNanos;
+    /**
+     * Pila del hilo que tomo la conexion, solo con la deteccion de fugas activa.
+     */
+    volatile Throwable borrowStack;
+    volatile boolean leakReported;
+    /**
+     * Statements abiertos de la conexion, <code>null</code> sin cache.
+     */
+    final StatementCache statements;
+    private volatile int state;
+
+    PoolEntry(Connection connection, int state, int statementCacheSize) {
+        this.connection = connection;
+        this.statements = statementCacheSize > 0 ? new StatementCache(statementCacheSize) : null;
+        this.createdNanos = System.nanoTime();
+        this.lastAccessNanos = createdNanos;
+        this.lastValidNanos = createdNanos;
+        this.state = state;
+    }
+
+    int getState() {
+        return state;
+    }
+
+    void setState(int state) {
+        this.state = state;
+    }
+
+    boolean compareAndSet(int expect, int update) {
+        return STATE.compareAndSet(this, expect, update);
+    }
+
+    int getAndSet(int update) {
+        return STATE.getAndSet(this, update);
+    }
+}
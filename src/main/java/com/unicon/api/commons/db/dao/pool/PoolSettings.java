@@ -0,0 +1,178 @@
+package com.unicon.api.commons.db.dao.pool;
+
+/**
+ * Parametros de un {@link ConnectionPool}. Los tiempos estan en milisegundos; 0 desactiva el limite.
+ *
+ * @author acrispin
+ */
+public final class PoolSettings {
+
+    private String poolName = "pool";
+    private int maximumPoolSize = 10;
+    private int minimumIdle = 0;
+    private long connectionTimeout = 30_000L;
+    private long maxLifetime = 1_800_000L;
+    private long idleTimeout = 600_000L;
+    private long housekeepingPeriod = 30_000L;
+    private long keepaliveTime = 120_000L;
+    private long validationTimeout = 5_000L;
+    private long leakDetectionThreshold = 0L;
+    private int statementCacheSize = 0;
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * @param poolName nombre usado en los mensajes del pool
+     */
+    public PoolSettings poolName(String poolName) {
+        this.poolName = poolName;
+        return this;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    /**
+     * @param maximumPoolSize conexiones maximas, prestadas o libres
+     */
+    public PoolSettings maximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+        return this;
+    }
+
+    public int getMinimumIdle() {
+        return minimumIdle;
+    }
+
+    /**
+     * @param minimumIdle conexiones que se mantienen abiertas aunque no se usen
+     */
+    public PoolSettings minimumIdle(int minimumIdle) {
+        this.minimumIdle = minimumIdle;
+        return this;
+    }
+
+    public long getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    /**
+     * @param connectionTimeout espera maxima por una conexion libre antes de fallar
+     */
+    public PoolSettings connectionTimeout(long connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+        return this;
+    }
+
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    /**
+     * @param maxLifetime tiempo maximo de vida de una conexion, se cierra al devolverse o en el mantenimiento
+     */
+    public PoolSettings maxLifetime(long maxLifetime) {
+        this.maxLifetime = maxLifetime;
+        return this;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @param idleTimeout tiempo sin uso despues del cual se cierra una conexion por encima de <code>minimumIdle</code>
+     */
+    public PoolSettings idleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    public long getHousekeepingPeriod() {
+        return housekeepingPeriod;
+    }
+
+    /**
+     * @param housekeepingPeriod periodo de la tarea de mantenimiento del pool
+     */
+    public PoolSettings housekeepingPeriod(long housekeepingPeriod) {
+        this.housekeepingPeriod = housekeepingPeriod;
+        return this;
+    }
+
+    public long getKeepaliveTime() {
+        return keepaliveTime;
+    }
+
+    /**
+     * @param keepaliveTime tiempo sin uso despues del cual una conexion libre se valida con
+     *                      <code>Connection.isValid</code> en el mantenimiento o antes de prestarla
+     */
+    public PoolSettings keepaliveTime(long keepaliveTime) {
+        this.keepaliveTime = keepaliveTime;
+        return this;
+    }
+
+    public long getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    /**
+     * @param validationTimeout espera maxima de <code>Connection.isValid</code>, se redondea a segundos
+     */
+    public PoolSettings validationTimeout(long validationTimeout) {
+        this.validationTimeout = validationTimeout;
+        return this;
+    }
+
+    public long getLeakDetectionThreshold() {
+        return leakDetectionThreshold;
+    }
+
+    /**
+     * @param leakDetectionThreshold tiempo que una conexion puede estar prestada antes de registrar en el log la pila
+     *                               del hilo que la tomo
+     */
+    public PoolSettings leakDetectionThreshold(long leakDetectionThreshold) {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+        return this;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * @param statementCacheSize <code>PreparedStatement</code> que se mantienen abiertos por conexion para reutilizarlos
+     *                           entre llamadas; 0 desactiva el cache
+     */
+    public PoolSettings statementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+        return this;
+    }
+
+    void validate() {
+        if (maximumPoolSize <= 0) {
+            throw new IllegalArgumentException(String.format("maximumPoolSize debe ser mayor a cero: %d", maximumPoolSize));
+        }
+        if (minimumIdle < 0 || minimumIdle > maximumPoolSize) {
+            throw new IllegalArgumentException(String.format("minimumIdle debe estar entre 0 y %d: %d", maximumPoolSize, minimumIdle));
+        }
+        if (housekeepingPeriod <= 0) {
+            throw new IllegalArgumentException(String.format("housekeepingPeriod debe ser mayor a cero: %d", housekeepingPeriod));
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException(String.format("statementCacheSize no puede ser negativo: %d", statementCacheSize));
+        }
+        if (validationTimeout <= 0) {
+            throw new IllegalArgumentException(String.format("validationTimeout debe ser mayor a cero: %d", validationTimeout));
+        }
+        if (keepaliveTime < 0 || leakDetectionThreshold < 0) {
+            throw new IllegalArgumentException(String.format("keepaliveTime y leakDetectionThreshold no pueden ser negativos: %d, %d",
+                    keepaliveTime, leakDetectionThreshold));
+        }
+    }
+}
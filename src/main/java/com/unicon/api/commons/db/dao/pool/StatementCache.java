@@ -0,0 +1,76 @@
+package com.unicon.api.commons.db.dao.pool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <code>PreparedStatement</code> abiertos de una conexion fisica, en orden LRU. La clave es el SQL mas los
+ * parametros de <code>prepareStatement</code>.
+ * <p>
+ * No es thread-safe: solo lo usa el hilo que tiene la conexion prestada. Un statement se saca del cache mientras
+ * se usa, de modo que la misma sentencia abierta dos veces a la vez usa dos statements.
+ *
+ * @author acrispin
+ */
+final class StatementCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(StatementCache.class);
+
+    private final int maxSize;
+    private final Map<List<Object>, PreparedStatement> statements;
+
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param key sentencia y parametros
+     * @return statement libre para la sentencia, <code>null</code> si no hay uno
+     */
+    PreparedStatement take(List<Object> key) throws SQLException {
+        PreparedStatement statement = statements.remove(key);
+        if (statement != null && statement.isClosed()) {
+            return null;
+        }
+        return statement;
+    }
+
+    /**
+     * Guarda un statement libre; si ya hay uno para la misma sentencia o el cache esta lleno cierra el sobrante.
+     *
+     * @param key       sentencia y parametros
+     * @param statement statement ya limpio
+     */
+    void offer(List<Object> key, PreparedStatement statement) {
+        if (statements.putIfAbsent(key, statement) != null) {
+            closeQuietly(statement);
+            return;
+        }
+        if (statements.size() > maxSize) {
+            Iterator<PreparedStatement> eldest = statements.values().iterator();
+            PreparedStatement evicted = eldest.next();
+            eldest.remove();
+            closeQuietly(evicted);
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ex) {
+            LOGGER.debug(ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.unicon.api.commons.db.dao.scatter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resultado de una consulta ejecutada en paralelo sobre todas las marcas (idMarca) de una plataforma.
+ * <p>
+ * Cada marca termina en uno de tres estados: con resultado, con error o sin respuesta dentro del tiempo limite.
+ * El resultado es parcial si alguna marca no respondio o fallo.
+ *
+ * @author acrispin
+ * @param <R> tipo del resultado de cada marca
+ */
+public final class ScatterResult<R> {
+
+    private final Map<String, R> results;
+    private final Map<String, Throwable> failures;
+    private final Set<String> timedOut;
+
+    /**
+     * @param results  resultado por idMarca, en el orden de las marcas
+     * @param failures error por idMarca
+     * @param timedOut marcas que no respondieron a tiempo
+     */
+    public ScatterResult(Map<String, R> results, Map<String, Throwable> failures, Set<String> timedOut) {
+        this.results = Collections.unmodifiableMap(new LinkedHashMap<>(results));
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        this.timedOut = Collections.unmodifiableSet(new LinkedHashSet<>(timedOut));
+    }
+
+    /**
+     * Une en una sola lista los resultados de tipo coleccion de todas las marcas que respondieron, en el orden de
+     * las marcas.
+     *
+     * @param <E>    tipo de los elementos
+     * @param result resultado de una consulta de lista
+     * @return elementos de todas las marcas
+     */
+    public static <E> List<E> merge(ScatterResult<? extends Collection<? extends E>> result) {
+        List<E> merged = new ArrayList<>();
+        for (Collection<? extends E> items : result.getResults().values()) {
+            if (items != null) {
+                merged.addAll(items);
+            }
+        }
+        return merged;
+    }
+
+    public Map<String, R> getResults() {
+        return results;
+    }
+
+    public Map<String, Throwable> getFailures() {
+        return failures;
+    }
+
+    public Set<String> getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return true si alguna marca fallo o no respondio a tiempo
+     */
+    public boolean isPartial() {
+        return !failures.isEmpty() || !timedOut.isEmpty();
+    }
+}
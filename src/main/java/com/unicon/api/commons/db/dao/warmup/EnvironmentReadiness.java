@@ -0,0 +1,106 @@
+package com.unicon.api.commons.db.dao.warmup;
+
+/**
+ * Resultado del calentamiento de un environment de <code>sqlMapConfig.xml</code>.
+ *
+ * @author acrispin
+ */
+public final class EnvironmentReadiness {
+
+    private final String environment;
+    private final String connectionType;
+    private final String idMarca;
+    private final boolean replica;
+    private final boolean ready;
+    private final long buildMillis;
+    private final long validateMillis;
+    private final int connections;
+    private final int mapperMethods;
+    private final String error;
+
+    public EnvironmentReadiness(String environment, String connectionType, String idMarca, boolean replica, boolean ready,
+                                long buildMillis, long validateMillis, int connections, int mapperMethods, String error) {
+        this.environment = environment;
+        this.connectionType = connectionType;
+        this.idMarca = idMarca;
+        this.replica = replica;
+        this.ready = ready;
+        this.buildMillis = buildMillis;
+        this.validateMillis = validateMillis;
+        this.connections = connections;
+        this.mapperMethods = mapperMethods;
+        this.error = error;
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public String getConnectionType() {
+        return connectionType;
+    }
+
+    public String getIdMarca() {
+        return idMarca;
+    }
+
+    /**
+     * @return true si es una replica de solo lectura; una replica que no esta lista no impide recibir trafico
+     */
+    public boolean isReplica() {
+        return replica;
+    }
+
+    /**
+     * @return true si el factory se construyo y todas sus conexiones se validaron
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return tiempo de construccion del <code>SqlSessionFactory</code>: lectura del XML y busqueda JNDI
+     */
+    public long getBuildMillis() {
+        return buildMillis;
+    }
+
+    /**
+     * @return tiempo de apertura y validacion de las conexiones
+     */
+    public long getValidateMillis() {
+        return validateMillis;
+    }
+
+    /**
+     * @return conexiones abiertas y validadas
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * @return metodos de los mappers del environment resueltos por adelantado
+     */
+    public int getMapperMethods() {
+        return mapperMethods;
+    }
+
+    /**
+     * @return causa si el environment no esta listo, <code>null</code> si lo esta
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        String name = String.format("%s [%s%s%s]", environment, connectionType, idMarca.isEmpty() ? "" : "/" + idMarca,
+                replica ? ", replica" : "");
+        if (!ready) {
+            return String.format("%s no listo despues de %d ms: %s", name, buildMillis + validateMillis, error);
+        }
+        return String.format("%s listo en %d ms (construccion %d ms, %d conexiones validadas en %d ms, %d metodos)",
+                name, buildMillis + validateMillis, buildMillis, connections, validateMillis, mapperMethods);
+    }
+}
@@ -0,0 +1,59 @@
+package com.unicon.api.commons.db.dao.warmup;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado del calentamiento de todos los environments. El nodo esta listo para recibir trafico cuando todos los
+ * environments primarios estan listos; las replicas se informan pero no cuentan, porque sin ellas las lecturas van
+ * al primario.
+ *
+ * @author acrispin
+ */
+public final class WarmUpReport {
+
+    private final List<EnvironmentReadiness> environments;
+    private final long elapsedMillis;
+
+    public WarmUpReport(List<EnvironmentReadiness> environments, long elapsedMillis) {
+        this.environments = Collections.unmodifiableList(environments);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return resultado por environment, en orden de nombre
+     */
+    public List<EnvironmentReadiness> getEnvironments() {
+        return environments;
+    }
+
+    /**
+     * @return duracion total del calentamiento
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return true si todos los environments primarios estan listos
+     */
+    public boolean isReady() {
+        for (EnvironmentReadiness environment : environments) {
+            if (!environment.isReady() && !environment.isReplica()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(64 + environments.size() * 128);
+        sb.append(String.format("Calentamiento de %d environments en %d ms: %s", environments.size(), elapsedMillis,
+                isReady() ? "listo" : "no listo"));
+        for (EnvironmentReadiness environment : environments) {
+            sb.append(System.lineSeparator()).append("  ").append(environment);
+        }
+        return sb.toString();
+    }
+}
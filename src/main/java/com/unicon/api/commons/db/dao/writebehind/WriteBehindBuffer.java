@@ -0,0 +1,339 @@
+package com.unicon.api.commons.db.dao.writebehind;
+
+import com.unicon.api.commons.db.dao.enums.EWriteOperation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Buffer de escritura diferida: el llamador encola el objeto y vuelve sin esperar a la base de datos; un hilo del
+ * buffer escribe los pendientes por bloques cuando se juntan <code>batchSize</code> objetos o cada
+ * <code>flushMillis</code>, lo que ocurra primero.
+ * <p>
+ * La cola no usa locks y tiene capacidad fija. Con la cola llena el llamador espera hasta <code>offerMillis</code>
+ * a que el hilo libere espacio y si no lo logra el objeto se rechaza. Las actualizaciones con llave se combinan:
+ * mientras una actualizacion de la misma llave siga en cola solo se reemplaza el objeto, que se escribe en la
+ * posicion de la primera. Los bloques se escriben en el orden de la cola, un bloque por cada tramo seguido de la
+ * misma operacion; si un bloque falla se entrega a {@link WriteBehindTarget#onFailure} y no se reintenta.
+ * <p>
+ * Al cerrar, el buffer deja de aceptar objetos y escribe los pendientes. Los buffers abiertos se cierran tambien
+ * en el shutdown de la JVM.
+ *
+ * @author acrispin
+ * @param <T> tipo de los objetos
+ */
+public final class WriteBehindBuffer<T> implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(WriteBehindBuffer.class);
+    private static final Object CONSUMED = new Object();
+    private static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SHUTDOWN_MILLIS = 30000L;
+    private static final Set<WriteBehindBuffer<?>> OPEN = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger HOOK = new AtomicInteger();
+
+    private final String name;
+    private final WriteBehindTarget<T> target;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushNanos;
+    private final long offerNanos;
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<Object, Pending> updates = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final Thread flusher;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private volatile long completed;
+    private volatile boolean flushRequested;
+    private volatile boolean closed;
+
+    /**
+     * @param name        nombre del buffer, usado en el hilo y en los logs
+     * @param target      destino de las escrituras
+     * @param capacity    objetos en cola como maximo
+     * @param batchSize   objetos por bloque
+     * @param flushMillis espera maxima de un objeto en cola antes de escribirse
+     * @param offerMillis espera maxima del llamador con la cola llena, 0 rechaza sin esperar
+     */
+    public WriteBehindBuffer(String name, WriteBehindTarget<T> target, int capacity, int batchSize, long flushMillis, long offerMillis) {
+        if (capacity <= 0 || batchSize <= 0 || flushMillis <= 0 || offerMillis < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Parametros incorrectos para el buffer %s: capacity=%d, batchSize=%d, flushMillis=%d, offerMillis=%d",
+                    name, capacity, batchSize, flushMillis, offerMillis));
+        }
+        this.name = name;
+        this.target = Objects.requireNonNull(target, "target");
+        this.capacity = capacity;
+        this.batchSize = Math.min(batchSize, capacity);
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.offerNanos = TimeUnit.MILLISECONDS.toNanos(offerMillis);
+        this.flusher = new Thread(this::run, "dao-write-behind-" + name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        OPEN.add(this);
+        if (HOOK.compareAndSet(0, 1)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(WriteBehindBuffer::closeAll, "dao-write-behind-shutdown"));
+        }
+    }
+
+    /**
+     * Encola un <code>insert</code>.
+     *
+     * @param item objeto a insertar
+     * @return false si el buffer esta lleno o cerrado y el objeto se rechazo
+     */
+    public boolean insert(T item) {
+        return enqueue(EWriteOperation.INSERT, Objects.requireNonNull(item, "item"), null);
+    }
+
+    /**
+     * Encola un <code>update</code>. Si ya hay en cola una actualizacion con la misma llave se reemplaza su objeto.
+     *
+     * @param item objeto a actualizar
+     * @param key  llave del objeto, <code>null</code> para no combinar
+     * @return false si el buffer esta lleno o cerrado y el objeto se rechazo
+     */
+    public boolean update(T item, Object key) {
+        Objects.requireNonNull(item, "item");
+        if (key == null) {
+            return enqueue(EWriteOperation.UPDATE, item, null);
+        }
+        while (!closed) {
+            Pending pending = updates.get(key);
+            if (pending == null) {
+                return enqueue(EWriteOperation.UPDATE, item, key);
+            }
+            Object current = pending.item;
+            if (current != CONSUMED && Pending.ITEM.compareAndSet(pending, current, item)) {
+                accepted.increment();
+                coalesced.increment();
+                return true;
+            }
+            updates.remove(key, pending);
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Escribe los objetos que estaban en cola al momento de la llamada y espera a que terminen.
+     *
+     * @param timeoutMillis espera maxima
+     * @return true si se escribieron (o fallaron y se entregaron a <code>onFailure</code>) antes del tiempo
+     */
+    public boolean flush(long timeoutMillis) {
+        long goal = enqueued.get();
+        if (Thread.currentThread() == flusher) {
+            return completed >= goal;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (completed < goal) {
+            if (!flusher.isAlive() || System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            flushRequested = true;
+            LockSupport.unpark(flusher);
+            LockSupport.parkNanos(this, WAIT_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Deja de aceptar objetos y espera hasta <code>timeoutMillis</code> a que se escriban los pendientes.
+     *
+     * @param timeoutMillis espera maxima
+     * @return true si no quedaron pendientes
+     */
+    public boolean close(long timeoutMillis) {
+        closed = true;
+        OPEN.remove(this);
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(timeoutMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        int pending = size.get();
+        if (pending > 0) {
+            LOGGER.warn("Buffer {} cerrado con {} escrituras pendientes", name, pending);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        close(SHUTDOWN_MILLIS);
+    }
+
+    /**
+     * @return contadores actuales del buffer
+     */
+    public WriteBehindStats stats() {
+        return new WriteBehindStats(accepted.sum(), coalesced.sum(), rejected.sum(), written.sum(), failed.sum(),
+                flushes.sum(), size.get());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Cierra todos los buffers abiertos escribiendo sus pendientes.
+     */
+    public static void closeAll() {
+        for (WriteBehindBuffer<?> buffer : OPEN) {
+            buffer.close(SHUTDOWN_MILLIS);
+        }
+    }
+
+    private boolean enqueue(EWriteOperation operation, T item, Object key) {
+        if (closed || !reserve()) {
+            rejected.increment();
+            return false;
+        }
+        if (closed) {
+            size.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        Pending pending = new Pending(operation, item, key);
+        if (key != null) {
+            Pending previous = updates.putIfAbsent(key, pending);
+            if (previous != null) {
+                size.decrementAndGet();
+                return update(item, key);
+            }
+        }
+        enqueued.incrementAndGet();
+        queue.add(pending);
+        accepted.increment();
+        if (size.get() >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return true;
+    }
+
+    /**
+     * Toma un lugar en la cola; con la cola llena despierta al hilo del buffer y espera hasta <code>offerNanos</code>.
+     */
+    private boolean reserve() {
+        long deadline = 0L;
+        for (;;) {
+            int current = size.get();
+            if (current < capacity) {
+                if (size.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+                continue;
+            }
+            if (closed || offerNanos == 0L) {
+                return false;
+            }
+            long now = System.nanoTime();
+            if (deadline == 0L) {
+                deadline = now + offerNanos;
+            } else if (now - deadline >= 0) {
+                return false;
+            }
+            LockSupport.unpark(flusher);
+            LockSupport.parkNanos(this, Math.min(WAIT_NANOS, deadline - now));
+        }
+    }
+
+    private void run() {
+        long lastFlush = System.nanoTime();
+        while (!closed || size.get() > 0) {
+            long waited = System.nanoTime() - lastFlush;
+            if (!closed && !flushRequested && size.get() < batchSize && waited < flushNanos) {
+                LockSupport.parkNanos(this, flushNanos - waited);
+                continue;
+            }
+            flushRequested = false;
+            lastFlush = System.nanoTime();
+            drain();
+        }
+    }
+
+    /**
+     * Escribe todo lo que hay en cola, en bloques de <code>batchSize</code>.
+     */
+    private void drain() {
+        List<T> items = new ArrayList<>(batchSize);
+        EWriteOperation operation = null;
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            @SuppressWarnings("unchecked")
+            T item = (T) Pending.ITEM.getAndSet(pending, CONSUMED);
+            if (pending.key != null) {
+                updates.remove(pending.key, pending);
+            }
+            if (operation != null && (operation != pending.operation || items.size() == batchSize)) {
+                write(operation, items);
+                items = new ArrayList<>(batchSize);
+            }
+            operation = pending.operation;
+            items.add(item);
+        }
+        if (operation != null) {
+            write(operation, items);
+        }
+    }
+
+    private void write(EWriteOperation operation, List<T> items) {
+        try {
+            target.write(operation, items);
+            written.add(items.size());
+        } catch (RuntimeException ex) {
+            failed.add(items.size());
+            try {
+                target.onFailure(operation, items, ex);
+            } catch (RuntimeException callbackError) {
+                LOGGER.error(callbackError.getMessage(), callbackError);
+            }
+        } finally {
+            flushes.increment();
+            size.addAndGet(-items.size());
+            completed += items.size();
+        }
+    }
+
+    private static final class Pending {
+
+        static final AtomicReferenceFieldUpdater<Pending, Object> ITEM =
+                AtomicReferenceFieldUpdater.newUpdater(Pending.class, Object.class, "item");
+
+        final EWriteOperation operation;
+        final Object key;
+        volatile Object item;
+
+        Pending(EWriteOperation operation, Object item, Object key) {
+            this.operation = operation;
+            this.item = item;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.unicon.api.commons.db.dao.writebehind;
+
+/**
+ * Contadores de un {@link WriteBehindBuffer} en un momento dado.
+ *
+ * @author acrispin
+ */
+public final class WriteBehindStats {
+
+    private final long accepted;
+    private final long coalesced;
+    private final long rejected;
+    private final long written;
+    private final long failed;
+    private final long flushes;
+    private final int pending;
+
+    public WriteBehindStats(long accepted, long coalesced, long rejected, long written, long failed, long flushes, int pending) {
+        this.accepted = accepted;
+        this.coalesced = coalesced;
+        this.rejected = rejected;
+        this.written = written;
+        this.failed = failed;
+        this.flushes = flushes;
+        this.pending = pending;
+    }
+
+    /**
+     * @return objetos recibidos, incluidos los combinados
+     */
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * @return actualizaciones que reemplazaron a otra pendiente de la misma llave
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * @return objetos rechazados con el buffer lleno o cerrado
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return objetos escritos en la base
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * @return objetos de bloques que fallaron
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return bloques escritos o fallidos
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * @return objetos en espera de escribirse
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WriteBehindStats{accepted=%d, coalesced=%d, rejected=%d, written=%d, failed=%d, flushes=%d, pending=%d}",
+                accepted, coalesced, rejected, written, failed, flushes, pending);
+    }
+}
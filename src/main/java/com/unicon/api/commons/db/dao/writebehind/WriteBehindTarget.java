@@ -0,0 +1,31 @@
+package com.unicon.api.commons.db.dao.writebehind;
+
+import com.unicon.api.commons.db.dao.enums.EWriteOperation;
+
+import java.util.List;
+
+/**
+ * Destino de las escrituras de un {@link WriteBehindBuffer}. Los dos metodos se llaman en el hilo del buffer.
+ *
+ * @author acrispin
+ * @param <T> tipo de los objetos
+ */
+public interface WriteBehindTarget<T> {
+
+    /**
+     * Escribe un bloque de objetos, por ejemplo con <code>insertBatch</code> o <code>updateBatch</code>.
+     *
+     * @param operation operacion del bloque
+     * @param items     objetos en el orden en que se recibieron
+     */
+    void write(EWriteOperation operation, List<T> items);
+
+    /**
+     * Se llama cuando {@link #write} falla; los objetos del bloque no se vuelven a intentar.
+     *
+     * @param operation operacion del bloque
+     * @param items     objetos del bloque que fallo
+     * @param error     error de la escritura
+     */
+    void onFailure(EWriteOperation operation, List<T> items, RuntimeException error);
+}
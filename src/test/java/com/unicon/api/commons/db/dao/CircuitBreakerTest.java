@@ -0,0 +1,237 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.ECircuitState;
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import com.unicon.api.commons.db.dao.metrics.CircuitStats;
+import com.unicon.api.commons.db.dao.metrics.DefaultMetricsRegistry;
+import com.unicon.api.commons.db.dao.metrics.MetricKey;
+import com.unicon.api.commons.db.dao.metrics.MetricsRegistry;
+import com.unicon.api.commons.db.dao.metrics.StatementStats;
+import com.unicon.api.commons.db.dao.pool.ConnectionPool;
+import com.unicon.api.commons.db.dao.pool.PoolSettings;
+import com.unicon.api.commons.db.dao.support.H2Database;
+import com.unicon.api.commons.db.dao.support.Item;
+import com.unicon.api.commons.db.dao.support.ItemDao;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author acrispin
+ */
+class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 200L;
+
+    @Test
+    void consecutiveConnectionFailuresOpenTheCircuitOfTheMarca() throws InterruptedException {
+        AtomicBoolean down = new AtomicBoolean();
+        ItemDao dao = sdcDao("circuito", H2Database.create("circuit-breaker", switchable(H2Database.pooled("circuit-breaker", 4), down)));
+        MetricsRegistry previous = DaoMetrics.getRegistry();
+        DefaultMetricsRegistry registry = new DefaultMetricsRegistry();
+        DaoMetrics.setRegistry(registry);
+        try {
+            assertTrue(dao.insert(new Item(1, "UNO", BigDecimal.ONE)));
+
+            down.set(true);
+            assertConnectionFailure(dao);
+            assertConnectionFailure(dao);
+            down.set(false);
+            assertThrows(PersistenceException.class, () -> dao.insert(new Item(1, "DUPLICADO", BigDecimal.ONE)));
+            down.set(true);
+            assertConnectionFailure(dao);
+            assertConnectionFailure(dao);
+            assertEquals(ECircuitState.CLOSED, DaoApplication.getCircuitState(EConnectionType.SDC, "circuito"));
+            assertConnectionFailure(dao);
+            assertEquals(ECircuitState.OPEN, DaoApplication.getCircuitState(EConnectionType.SDC, "circuito"));
+
+            down.set(false);
+            CircuitOpenException rejected = assertThrows(CircuitOpenException.class, dao::selectAll);
+            assertTrue(rejected.getRetryAfterMillis() <= OPEN_MILLIS);
+            assertThrows(CircuitOpenException.class, () -> dao.insert(new Item(2, "DOS", BigDecimal.ONE)));
+            assertEquals(ECircuitState.CLOSED, DaoApplication.getCircuitState(EConnectionType.SDC, "otra"));
+
+            down.set(true);
+            Thread.sleep(OPEN_MILLIS + 50L);
+            assertConnectionFailure(dao);
+            assertEquals(ECircuitState.OPEN, DaoApplication.getCircuitState(EConnectionType.SDC, "circuito"));
+
+            down.set(false);
+            Thread.sleep(OPEN_MILLIS + 50L);
+            assertEquals(1, dao.selectAll().size());
+            assertEquals(ECircuitState.CLOSED, DaoApplication.getCircuitState(EConnectionType.SDC, "circuito"));
+            assertTrue(dao.insert(new Item(2, "DOS", BigDecimal.ONE)));
+
+            List<CircuitStats> circuits = registry.getCircuits();
+            assertEquals(1, circuits.size());
+            CircuitStats circuit = circuits.get(0);
+            assertEquals("SDC", circuit.getConnectionType());
+            assertEquals("circuito", circuit.getIdMarca());
+            assertEquals("CLOSED", circuit.getState());
+            assertEquals(2, circuit.getOpened());
+            assertEquals(2, circuit.getHalfOpened());
+            assertEquals(1, circuit.getClosed());
+            StatementStats selectAll = registry.statement(new MetricKey("ItemMapper", "selectAll", "SDC", "circuito")).snapshot();
+            assertEquals(1, selectAll.getRejected());
+            assertEquals(7, selectAll.getCalls());
+            assertEquals(1, registry.statement(new MetricKey("ItemMapper", "insert", "SDC", "circuito")).snapshot().getRejected());
+        } finally {
+            DaoMetrics.setRegistry(previous);
+        }
+    }
+
+    @Test
+    void onlyConnectionAndTimeoutErrorsCountAsFailures() {
+        assertTrue(CircuitBreaker.isConnectionFailure(new PersistenceException(new SQLException("red", "08S01"))));
+        assertTrue(CircuitBreaker.isConnectionFailure(new PersistenceException(new SQLException("timeout", "HYT00"))));
+        assertTrue(CircuitBreaker.isConnectionFailure(new PersistenceException(new SQLNonTransientConnectionException("caido"))));
+        assertFalse(CircuitBreaker.isConnectionFailure(new PersistenceException(new SQLException("duplicado", "23505"))));
+        assertFalse(CircuitBreaker.isConnectionFailure(new PersistenceException("sin causa")));
+    }
+
+    @Test
+    void poolWaitsCutByTheDeadlineDoNotOpenTheCircuit() throws SQLException {
+        try (ConnectionPool pool = H2Database.connectionPool("circuit-deadline",
+                new PoolSettings().maximumPoolSize(1).connectionTimeout(10000));
+             ConnectionPool timeoutPool = H2Database.connectionPool("circuit-pool-timeout",
+                new PoolSettings().maximumPoolSize(1).connectionTimeout(50))) {
+            ItemDao dao = sdcDao("plazo", H2Database.create("circuit-deadline", pool));
+            ItemDao timeoutDao = sdcDao("espera", H2Database.create("circuit-pool-timeout", timeoutPool));
+            try (Connection held = pool.getConnection(); Connection heldToo = timeoutPool.getConnection()) {
+                for (int i = 0; i < 5; i++) {
+                    PersistenceException ex = assertThrows(PersistenceException.class, () -> Deadline.execute(50, dao::selectAll));
+                    assertFalse(ex instanceof CircuitOpenException, ex.getMessage());
+                }
+                assertEquals(ECircuitState.CLOSED, DaoApplication.getCircuitState(EConnectionType.SDC, "plazo"));
+
+                for (int i = 0; i < 3; i++) {
+                    assertThrows(PersistenceException.class, () -> Deadline.execute(10000, timeoutDao::selectAll));
+                }
+                assertEquals(ECircuitState.OPEN, DaoApplication.getCircuitState(EConnectionType.SDC, "espera"));
+                assertTrue(held.isValid(1) && heldToo.isValid(1));
+            }
+            assertEquals(0, dao.selectAll().size());
+        }
+    }
+
+    @Test
+    void cancelledCallsDoNotOpenTheCircuit() throws Exception {
+        Semaphore entered = new Semaphore(0);
+        AtomicReference<CountDownLatch> hold = new AtomicReference<>();
+        DataSource pooled = H2Database.pooled("circuit-cancel", 4);
+        DataSource cancelling = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    CountDownLatch latch = hold.get();
+                    if (latch != null && method.getName().equals("getConnection")) {
+                        entered.release();
+                        latch.await(5, TimeUnit.SECONDS);
+                        throw new SQLException("Operation cancelled", "HY008");
+                    }
+                    try {
+                        return method.invoke(pooled, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ItemDao dao = new ItemDao(H2Database.create("circuit-cancel", cancelling)) {
+            @Override
+            protected EConnectionType getConnectionType() {
+                return EConnectionType.SDC;
+            }
+
+            @Override
+            protected int getCircuitFailureThreshold() {
+                return 3;
+            }
+
+            @Override
+            protected Executor getAsyncExecutor() {
+                return executor;
+            }
+        };
+        dao.setIdMarca("cancelada");
+        try {
+            for (int i = 0; i < 5; i++) {
+                hold.set(new CountDownLatch(1));
+                CompletableFuture<List<Item>> future = dao.selectListAsync(Collections.singletonMap("code", "PAR"));
+                assertTrue(entered.tryAcquire(5, TimeUnit.SECONDS), "llamada " + i + " rechazada");
+                assertTrue(future.cancel(true));
+                hold.get().countDown();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        assertEquals(ECircuitState.CLOSED, DaoApplication.getCircuitState(EConnectionType.SDC, "cancelada"));
+        assertFalse(CircuitBreaker.isConnectionFailure(new PersistenceException(new SQLException("cancelada", "HY008"))));
+    }
+
+    private static void assertConnectionFailure(ItemDao dao) {
+        PersistenceException ex = assertThrows(PersistenceException.class, dao::selectAll);
+        assertFalse(ex instanceof CircuitOpenException, ex.getMessage());
+    }
+
+    private static ItemDao sdcDao(String idMarca, SqlSessionFactory sqlSessionFactory) {
+        ItemDao dao = new ItemDao(sqlSessionFactory) {
+            @Override
+            protected EConnectionType getConnectionType() {
+                return EConnectionType.SDC;
+            }
+
+            @Override
+            protected int getCircuitFailureThreshold() {
+                return 3;
+            }
+
+            @Override
+            protected long getCircuitOpenMillis() {
+                return OPEN_MILLIS;
+            }
+        };
+        dao.setIdMarca(idMarca);
+        return dao;
+    }
+
+    /**
+     * Origen de conexiones que, mientras <code>down</code> es true, falla como un servidor caido.
+     */
+    private static DataSource switchable(DataSource dataSource, AtomicBoolean down) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    if (down.get() && method.getName().equals("getConnection")) {
+                        throw new SQLNonTransientConnectionException("Servidor no disponible", "08001");
+                    }
+                    try {
+                        return method.invoke(dataSource, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,85 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.support.H2Database;
+import com.unicon.api.commons.db.dao.support.Item;
+import com.unicon.api.commons.db.dao.support.ItemDao;
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author acrispin
+ */
+class ConfigurationTemplateTest {
+
+    @Test
+    void environmentsShareOneConfiguration() throws Exception {
+        ConfigurationTemplate template = ConfigurationTemplate.getInstance("sqlMapConfig.xml");
+        Properties props = new Properties();
+        props.put("driver", "org.example.Driver");
+        props.put("url", "jdbc:example:one");
+        props.put("username", "sa");
+        props.put("password", "");
+
+        EnvironmentSqlSessionFactory one = template.newSqlSessionFactory("junit", props);
+        props.put("url", "jdbc:example:two");
+        EnvironmentSqlSessionFactory two = template.newSqlSessionFactory("junit", props);
+
+        assertSame(one.getConfiguration(), two.getConfiguration());
+        assertNull(one.getConfiguration().getEnvironment());
+        assertEquals("junit", DaoApplication.getEnvironment(one).getId());
+        assertEquals("jdbc:example:one", ((UnpooledDataSource) one.getEnvironment().getDataSource()).getUrl());
+        assertEquals("jdbc:example:two", ((UnpooledDataSource) two.getEnvironment().getDataSource()).getUrl());
+        assertTrue(one.getConfiguration().hasStatement("com.unicon.api.commons.db.dao.mapper.AppMapper.selectServer"));
+        assertTrue(template.getEnvironmentIds().contains("1-sdc"));
+        assertThrows(BuilderException.class, () -> template.newSqlSessionFactory("9-sdc", null));
+    }
+
+    @Test
+    void secondLevelCacheKeepsEachEnvironmentApart() {
+        Configuration configuration = new Configuration();
+        configuration.addMapper(CachedCodeMapper.class);
+        EnvironmentSqlSessionFactory one = environment(configuration, "1-sdc", "shared-cache-1", "MARCA1");
+        EnvironmentSqlSessionFactory two = environment(configuration, "2-sdc", "shared-cache-2", "MARCA2");
+
+        assertEquals("MARCA1", selectCode(one));
+        assertEquals("MARCA1", selectCode(one));
+        assertEquals("MARCA2", selectCode(two));
+        assertEquals("MARCA2", selectCode(two));
+        assertEquals(2, configuration.getCache(CachedCodeMapper.class.getName()).getSize());
+    }
+
+    private static EnvironmentSqlSessionFactory environment(Configuration configuration, String id, String database, String code) {
+        new ItemDao(H2Database.create(database)).insert(new Item(1, code, BigDecimal.ONE));
+        return new EnvironmentSqlSessionFactory(configuration,
+                new Environment(id, new JdbcTransactionFactory(), H2Database.pooled(database, 2)));
+    }
+
+    private static String selectCode(EnvironmentSqlSessionFactory factory) {
+        try (SqlSession session = factory.openSession(true)) {
+            return session.getMapper(CachedCodeMapper.class).selectCode(1);
+        }
+    }
+
+    @CacheNamespace
+    interface CachedCodeMapper {
+        @Select("SELECT code FROM item WHERE id = #{id}")
+        String selectCode(int id);
+    }
+}
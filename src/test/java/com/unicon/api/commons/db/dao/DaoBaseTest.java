@@ -0,0 +1,709 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.cache.CacheStats;
+import com.unicon.api.commons.db.dao.enums.ECommitPolicy;
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import com.unicon.api.commons.db.dao.enums.EParameterCapture;
+import com.unicon.api.commons.db.dao.enums.EWriteOperation;
+import com.unicon.api.commons.db.dao.metrics.DefaultMetricsRegistry;
+import com.unicon.api.commons.db.dao.metrics.MetricKey;
+import com.unicon.api.commons.db.dao.metrics.MetricsRegistry;
+import com.unicon.api.commons.db.dao.metrics.SlowStatement;
+import com.unicon.api.commons.db.dao.metrics.SlowStatementLog;
+import com.unicon.api.commons.db.dao.metrics.StatementStats;
+import com.unicon.api.commons.db.dao.scatter.ScatterResult;
+import com.unicon.api.commons.db.dao.page.Page;
+import com.unicon.api.commons.db.dao.page.PageRequest;
+import com.unicon.api.commons.db.dao.page.PageToken;
+import com.unicon.api.commons.db.dao.pool.ConnectionPool;
+import com.unicon.api.commons.db.dao.pool.PoolSettings;
+import com.unicon.api.commons.db.dao.support.H2Database;
+import com.unicon.api.commons.db.dao.support.Item;
+import com.unicon.api.commons.db.dao.support.ItemDao;
+import com.unicon.api.commons.db.dao.support.ItemMapper;
+import com.unicon.api.commons.db.dao.writebehind.WriteBehindBuffer;
+import com.unicon.api.commons.db.dao.writebehind.WriteBehindStats;
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author acrispin
+ */
+class DaoBaseTest {
+
+    private SqlSessionFactory sqlSessionFactory;
+    private ItemDao dao;
+
+    @BeforeEach
+    void setUp() {
+        sqlSessionFactory = H2Database.create("dao-base");
+        dao = new ItemDao(sqlSessionFactory);
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            items.add(new Item(i, i % 2 == 0 ? "PAR" : "IMPAR", BigDecimal.valueOf(i)));
+        }
+        return items;
+    }
+
+    @Test
+    void batchOperationsReturnCountsPerChunk() {
+        List<Item> items = items(2500);
+        assertArrayEquals(new int[]{1000, 1000, 500}, dao.insertBatch(items, 1000, ECommitPolicy.PER_CHUNK));
+        items.forEach(item -> item.setCode("X"));
+        assertArrayEquals(new int[]{2500}, dao.updateBatch(items, 5000, ECommitPolicy.PER_CALL));
+        assertArrayEquals(new int[]{2, 1}, dao.deleteBatch(items.subList(0, 3), 2, ECommitPolicy.PER_CALL));
+        assertEquals(0, dao.insertBatch(Collections.emptyList()).length);
+        assertEquals(2497, dao.selectAll().size());
+    }
+
+    @Test
+    void streamsKeepSessionOpenUntilClosed() {
+        dao.insertBatch(items(3000));
+        try (Stream<Item> stream = dao.streamAll()) {
+            assertEquals(10, stream.limit(10).count());
+            assertEquals(1, H2Database.activeConnections(sqlSessionFactory));
+        }
+        assertEquals(0, H2Database.activeConnections(sqlSessionFactory));
+        try (Stream<Item> stream = dao.streamAll()) {
+            assertEquals(3000, stream.mapToInt(Item::getId).distinct().count());
+        }
+        AtomicInteger pares = new AtomicInteger();
+        dao.forEachList(Collections.singletonMap("code", "PAR"), item -> pares.incrementAndGet());
+        assertEquals(1500, pares.get());
+        assertEquals(0, H2Database.activeConnections(sqlSessionFactory));
+    }
+
+    @Test
+    void pagesFollowKeysetToken() {
+        dao.insertBatch(items(25));
+        PageRequest request = new PageRequest(Collections.singletonMap("code", "PAR"), 5, null);
+        List<Integer> ids = new ArrayList<>();
+        int pages = 0;
+        while (request != null) {
+            Page<Item> page = dao.selectPage(request);
+            page.getItems().forEach(item -> ids.add(item.getId()));
+            pages++;
+            request = request.next(page);
+        }
+        assertEquals(3, pages);
+        assertEquals(12, ids.size());
+        assertEquals(Integer.valueOf(24), ids.get(11));
+        Page<Item> empty = dao.selectPage(new PageRequest(Collections.singletonMap("code", "X"), 5, null));
+        assertFalse(empty.hasNext());
+        assertEquals(0, empty.getItems().size());
+    }
+
+    @Test
+    void pageTokenRoundTripsSimpleTypes() {
+        Timestamp timestamp = Timestamp.valueOf("2020-01-02 03:04:05.123456789");
+        Object[] key = {1, 2L, "código", BigDecimal.valueOf(1050, 2), timestamp, null, true};
+        assertArrayEquals(key, PageToken.decode(PageToken.encode(key)));
+        assertNull(PageToken.decode(null));
+        assertThrows(IllegalArgumentException.class, () -> PageToken.decode("no-es-token"));
+        assertThrows(IllegalArgumentException.class, () -> PageToken.encode(new Object()));
+    }
+
+    @Test
+    void unitOfWorkSharesOneConnectionAndCommitsOnce() {
+        ItemDao other = new ItemDao(sqlSessionFactory);
+        int visible = dao.inTransaction(() -> {
+            dao.insert(new Item(1, "A", BigDecimal.ONE));
+            other.insertBatch(items(5).subList(1, 5));
+            dao.update(new Item(1, "B", BigDecimal.TEN));
+            assertEquals(1, H2Database.activeConnections(sqlSessionFactory));
+            assertEquals(0, CompletableFuture.supplyAsync(() -> dao.selectAll().size()).join());
+            return other.selectAll().size();
+        });
+        assertEquals(5, visible);
+        assertEquals(5, dao.selectAll().size());
+        assertEquals("B", dao.selectById(1).getCode());
+        assertEquals(0, H2Database.activeConnections(sqlSessionFactory));
+    }
+
+    @Test
+    void unitOfWorkRollsBackEverythingOnFailure() {
+        dao.insert(new Item(1, "A", BigDecimal.ONE));
+        assertThrows(PersistenceException.class, () -> dao.inTransaction(() -> {
+            dao.insertBatch(items(5).subList(1, 5));
+            return dao.insert(new Item(1, "DUPLICADO", BigDecimal.ONE));
+        }));
+        assertEquals(1, dao.selectAll().size());
+
+        PersistenceException nested = assertThrows(PersistenceException.class, () -> dao.inTransaction(() -> {
+            dao.insert(new Item(2, "B", BigDecimal.ONE));
+            try {
+                dao.inTransaction(() -> dao.insert(new Item(1, "DUPLICADO", BigDecimal.ONE)));
+            } catch (PersistenceException ex) {
+                // la unidad externa queda marcada para rollback
+            }
+            return true;
+        }));
+        assertTrue(nested.getMessage().contains("rollback"));
+        assertEquals(1, dao.selectAll().size());
+        assertEquals(0, H2Database.activeConnections(sqlSessionFactory));
+    }
+
+    @Test
+    void unitOfWorkKeepsUncommittedRowsOutOfTheSecondLevelCache() {
+        dao.insert(new Item(1, "A", BigDecimal.ONE));
+        Configuration configuration = new Configuration();
+        configuration.addMapper(CachedItemMapper.class);
+        StatementInterceptor.register(configuration);
+        EnvironmentSqlSessionFactory shared = new EnvironmentSqlSessionFactory(configuration,
+                new Environment("1-sdc", new JdbcTransactionFactory(), H2Database.pooled("dao-base", 4)));
+        ItemDao cachedDao = new ItemDao(shared) {
+            @Override
+            @SuppressWarnings("unchecked")
+            protected Class<ItemMapper> getMapperType() {
+                return (Class<ItemMapper>) (Class<?>) CachedItemMapper.class;
+            }
+        };
+        org.apache.ibatis.cache.Cache cache = configuration.getCache(CachedItemMapper.class.getName());
+
+        assertThrows(IllegalStateException.class, () -> cachedDao.inTransaction(() -> {
+            cachedDao.update(new Item(1, "SIN_COMMIT", BigDecimal.TEN));
+            assertEquals("SIN_COMMIT", cachedDao.selectAll().get(0).getCode());
+            throw new IllegalStateException("rollback");
+        }));
+        assertEquals(0, cache.getSize());
+        assertEquals("A", cachedDao.selectAll().get(0).getCode());
+        assertEquals(1, cache.getSize());
+
+        cachedDao.inTransaction(() -> cachedDao.update(new Item(1, "B", BigDecimal.TEN)));
+        assertEquals(0, cache.getSize());
+        assertEquals("B", cachedDao.selectAll().get(0).getCode());
+    }
+
+    @CacheNamespace(readWrite = false)
+    interface CachedItemMapper extends ItemMapper {
+    }
+
+    @Test
+    void selectByIdReadsThroughCacheUntilDml() {
+        ItemDao cached = new ItemDao(sqlSessionFactory) {
+            @Override
+            protected int getCacheMaxSize() {
+                return 2;
+            }
+        };
+        cached.insertBatch(items(3));
+        Item first = cached.selectById(1);
+        assertSame(first, cached.selectById(1));
+        cached.selectById(2);
+        cached.selectById(3);
+        assertNull(cached.selectById(99));
+        CacheStats stats = cached.getCacheStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(4, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getSize());
+
+        Item changed = new Item(3, "CAMBIO", BigDecimal.TEN);
+        cached.update(changed);
+        assertEquals(0, cached.getCacheStats().getSize());
+        assertEquals("CAMBIO", cached.selectById(3).getCode());
+        assertNotSame(first, cached.selectById(1));
+        assertNull(dao.getCacheStats());
+    }
+
+    @Test
+    void callerSessionDmlInvalidatesTheCacheAfterCommit() {
+        ItemDao cached = new ItemDao(sqlSessionFactory) {
+            @Override
+            protected int getCacheMaxSize() {
+                return 10;
+            }
+        };
+        cached.insertBatch(items(3));
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            assertTrue(cached.update(session, new Item(3, "CAMBIO", BigDecimal.TEN)));
+            assertEquals("IMPAR", cached.selectById(3).getCode());
+            assertEquals(1, cached.getCacheStats().getSize());
+            session.commit();
+            assertEquals(0, cached.getCacheStats().getSize());
+        }
+        assertEquals("CAMBIO", cached.selectById(3).getCode());
+
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            assertTrue(cached.delete(session, new Item(3, null, null)));
+            assertEquals("CAMBIO", cached.selectById(3).getCode());
+        }
+        assertEquals(0, cached.getCacheStats().getSize());
+        assertEquals("CAMBIO", cached.selectById(3).getCode());
+    }
+
+    @Test
+    void asyncCallsRunOnConnectionExecutorAndCancelStatement() throws Exception {
+        dao.insertBatch(items(10));
+        CompletableFuture<List<Item>> pares = dao.selectListAsync(Collections.singletonMap("code", "PAR"));
+        CompletableFuture<Item> first = dao.selectByIdAsync(1);
+        assertEquals(5, pares.get(5, TimeUnit.SECONDS).size());
+        assertEquals("IMPAR", first.get(5, TimeUnit.SECONDS).getCode());
+        assertTrue(dao.supplyAsync(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS).startsWith("dao-single-"));
+
+        CompletableFuture<Long> slow = dao.queryObjectAsync(Long.class, "slowSum");
+        long until = System.currentTimeMillis() + 5000;
+        while (H2Database.activeConnections(sqlSessionFactory) == 0 && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+        assertTrue(slow.cancel(true));
+        until = System.currentTimeMillis() + 5000;
+        while (H2Database.activeConnections(sqlSessionFactory) > 0 && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, H2Database.activeConnections(sqlSessionFactory));
+        assertTrue(slow.isCancelled());
+    }
+
+    @Test
+    void scatterQueryRunsOnEveryMarcaAndKeepsPartialResults() {
+        SqlSessionFactory marca1 = H2Database.create("marca-1");
+        SqlSessionFactory marca2 = H2Database.create("marca-2");
+        new ItemDao(marca1).insertBatch(items(3));
+        new ItemDao(marca2).insertBatch(items(5));
+        ItemDao sdc = new ItemDao(null) {
+            @Override
+            protected EConnectionType getConnectionType() {
+                return EConnectionType.SDC;
+            }
+
+            @Override
+            protected SqlSessionFactory getSqlSessionFactoryInnerSdc(String idMarca) {
+                switch (idMarca) {
+                    case "1":
+                        return marca1;
+                    case "2":
+                        return marca2;
+                    default:
+                        throw new PersistenceException(String.format("Environment por marca '%s-sdc' incorrecto", idMarca));
+                }
+            }
+
+            @Override
+            protected Collection<String> getIdMarcas() {
+                return Arrays.asList("1", "2", "3");
+            }
+        };
+
+        ScatterResult<List<Item>> all = sdc.scatterQuery("selectAll", 5000);
+        assertEquals(Arrays.asList("1", "2"), new ArrayList<>(all.getResults().keySet()));
+        assertEquals(5, all.getResults().get("2").size());
+        assertTrue(all.getFailures().get("3") instanceof PersistenceException);
+        assertTrue(all.isPartial());
+        assertEquals(8, ScatterResult.merge(all).size());
+
+        ScatterResult<List<Item>> pares = sdc.scatterQuery("selectList", 5000, Collections.singletonMap("code", "PAR"));
+        assertEquals(3, ScatterResult.merge(pares).size());
+
+        long start = System.nanoTime();
+        ScatterResult<Long> slow = sdc.scatterQuery("slowSum", 300);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        assertTrue(slow.getResults().isEmpty());
+        assertEquals(Arrays.asList("1", "2"), new ArrayList<>(slow.getTimedOut()));
+    }
+
+    @Test
+    void statementMetricsCountCallsRowsAndErrors() {
+        MetricsRegistry previous = DaoMetrics.getRegistry();
+        DefaultMetricsRegistry registry = new DefaultMetricsRegistry();
+        DaoMetrics.setRegistry(registry);
+        try {
+            dao.insertBatch(items(20), 8, ECommitPolicy.PER_CALL);
+            dao.selectAll();
+            dao.selectList(Collections.singletonMap("code", "PAR"));
+            try (Stream<Item> stream = dao.streamAll()) {
+                assertEquals(5, stream.limit(5).count());
+            }
+            dao.selectById(3);
+            assertThrows(PersistenceException.class, () -> dao.insert(new Item(3, "DUPLICADO", BigDecimal.ONE)));
+
+            StatementStats insertBatch = registry.statement(new MetricKey("ItemMapper", "insert", "SINGLE", "")).snapshot();
+            assertEquals(2, insertBatch.getCalls());
+            assertEquals(1, insertBatch.getErrors());
+            assertEquals(20, insertBatch.getRows());
+            StatementStats selectAll = registry.statement(new MetricKey("ItemMapper", "selectAll", "SINGLE", "")).snapshot();
+            assertEquals(2, selectAll.getCalls());
+            assertEquals(25, selectAll.getRows());
+            assertTrue(selectAll.getP50Micros() <= selectAll.getP999Micros());
+            assertEquals(10, registry.statement(new MetricKey("ItemMapper", "selectList", "SINGLE", "")).snapshot().getRows());
+            assertEquals(1, registry.statement(new MetricKey("ItemMapper", "selectById", "SINGLE", "")).snapshot().getRows());
+            assertEquals(4, registry.getStatements().size());
+        } finally {
+            DaoMetrics.setRegistry(previous);
+        }
+    }
+
+    @Test
+    void statementHitRateCoversPoolCacheAndReuseExecutor() {
+        MetricsRegistry previous = DaoMetrics.getRegistry();
+        DefaultMetricsRegistry registry = new DefaultMetricsRegistry();
+        DaoMetrics.setRegistry(registry);
+        try (ConnectionPool pool = H2Database.connectionPool("statement-cache",
+                new PoolSettings().maximumPoolSize(2).statementCacheSize(16))) {
+            ItemDao cached = new ItemDao(H2Database.create("statement-cache", pool));
+            cached.insertBatch(items(10), 10, ECommitPolicy.PER_CALL);
+            for (int id = 1; id <= 5; id++) {
+                assertEquals(id, cached.selectById(id).getId());
+            }
+            StatementStats selectById = registry.statement(new MetricKey("ItemMapper", "selectById", "SINGLE", "")).snapshot();
+            assertEquals(5, selectById.getExecutions());
+            assertEquals(1, selectById.getPrepared());
+            assertEquals(0.8, selectById.getStatementHitRate(), 0.001);
+            assertTrue(pool.getStatementCacheHits() >= 4);
+
+            registry.reset();
+            ItemDao reuse = new ItemDao(sqlSessionFactory) {
+                @Override
+                protected ExecutorType getExecutorType() {
+                    return ExecutorType.REUSE;
+                }
+            };
+            try (SqlSession session = reuse.openSession(false)) {
+                for (Item item : items(3)) {
+                    reuse.executeDml(session, "insert", Item.class, item);
+                }
+                session.commit();
+            }
+            StatementStats insert = registry.statement(new MetricKey("ItemMapper", "insert", "SINGLE", "")).snapshot();
+            assertEquals(3, insert.getCalls());
+            assertEquals(3, insert.getExecutions());
+            assertEquals(1, insert.getPrepared());
+            assertEquals(3, reuse.selectAll().size());
+        } finally {
+            DaoMetrics.setRegistry(previous);
+        }
+    }
+
+    @Test
+    void writeBehindCoalescesUpdatesAndAppliesBackpressure() throws Exception {
+        List<String> failures = new CopyOnWriteArrayList<>();
+        CountDownLatch[] gate = {null};
+        ItemDao behind = new ItemDao(sqlSessionFactory) {
+            @Override
+            protected int getWriteBehindCapacity() {
+                return 4;
+            }
+
+            @Override
+            protected int getBatchSize() {
+                return 2;
+            }
+
+            @Override
+            protected long getWriteBehindFlushMillis() {
+                return 60000;
+            }
+
+            @Override
+            protected long getWriteBehindOfferMillis() {
+                return 0;
+            }
+
+            @Override
+            protected Object getEntityKey(Item obj) {
+                return obj.getId();
+            }
+
+            @Override
+            protected void onWriteBehindFailure(EWriteOperation operation, List<Item> objs, RuntimeException ex) {
+                failures.add(operation.value() + ":" + objs.size());
+            }
+
+            @Override
+            public int[] insertBatch(Collection<Item> objs) {
+                try {
+                    if (gate[0] != null) {
+                        gate[0].await(5, TimeUnit.SECONDS);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.insertBatch(objs);
+            }
+        };
+        behind.insertBatch(items(2));
+        assertTrue(behind.updateBehind(new Item(1, "A", BigDecimal.ONE)));
+        assertTrue(behind.updateBehind(new Item(1, "B", BigDecimal.ONE)));
+        assertTrue(behind.updateBehind(new Item(1, "C", BigDecimal.ONE)));
+        assertEquals("IMPAR", dao.selectById(1).getCode());
+        assertTrue(behind.flushWriteBehind(5000));
+        assertEquals("C", dao.selectById(1).getCode());
+
+        assertTrue(behind.insertBehind(new Item(1, "DUPLICADO", BigDecimal.ONE)));
+        assertTrue(behind.insertBehind(new Item(3, "C", BigDecimal.ONE)));
+        assertTrue(behind.flushWriteBehind(5000));
+        assertEquals(Collections.singletonList("INSERT:2"), failures);
+
+        gate[0] = new CountDownLatch(1);
+        for (int id = 10; id < 14; id++) {
+            assertTrue(behind.insertBehind(new Item(id, "D", BigDecimal.ONE)));
+        }
+        assertFalse(behind.insertBehind(new Item(14, "D", BigDecimal.ONE)));
+        gate[0].countDown();
+        assertTrue(behind.flushWriteBehind(5000));
+        assertEquals(4, dao.selectList(Collections.singletonMap("code", "D")).size());
+
+        assertTrue(behind.insertBehind(new Item(20, "E", BigDecimal.ONE)));
+        WriteBehindBuffer.closeAll();
+        assertEquals("E", dao.selectById(20).getCode());
+        assertFalse(behind.insertBehind(new Item(21, "E", BigDecimal.ONE)));
+
+        WriteBehindStats stats = behind.getWriteBehindStats();
+        assertEquals(10, stats.getAccepted());
+        assertEquals(2, stats.getCoalesced());
+        assertEquals(2, stats.getRejected());
+        assertEquals(6, stats.getWritten());
+        assertEquals(2, stats.getFailed());
+        assertEquals(0, stats.getPending());
+        assertNull(dao.getWriteBehindStats());
+        assertThrows(UnsupportedOperationException.class, () -> dao.insertBehind(new Item(30, "F", BigDecimal.ONE)));
+    }
+
+    private ItemDao replicaDao(String idMarca, SqlSessionFactory replica, String lagQuery) {
+        ItemDao split = new ItemDao(sqlSessionFactory) {
+            @Override
+            protected EConnectionType getConnectionType() {
+                return EConnectionType.SDC;
+            }
+
+            @Override
+            protected SqlSessionFactory getSqlSessionFactoryInnerReplica(String idMarca) {
+                return replica;
+            }
+
+            @Override
+            protected String getReplicaLagQuery() {
+                return lagQuery;
+            }
+
+            @Override
+            protected Object getEntityKey(Item obj) {
+                return obj.getId();
+            }
+
+            @Override
+            protected int getCacheMaxSize() {
+                return 10;
+            }
+        };
+        split.setIdMarca(idMarca);
+        return split;
+    }
+
+    @Test
+    void readsGoToReplicaAndFallBackToPrimary() {
+        SqlSessionFactory replica = H2Database.create("dao-base-ro");
+        new ItemDao(replica).insert(new Item(1, "REPLICA", BigDecimal.ONE));
+        dao.insertBatch(items(3));
+
+        ItemDao split = replicaDao("ro", replica, "");
+        assertEquals(1, split.selectAll().size());
+        assertEquals(1, split.selectList(Collections.singletonMap("code", "REPLICA")).size());
+        assertEquals("IMPAR", split.selectById(1).getCode());
+        assertEquals(3, split.inTransaction(() -> split.selectAll().size()));
+        assertTrue(split.insert(new Item(4, "PAR", BigDecimal.ONE)));
+        assertEquals(4, dao.selectAll().size());
+        DaoApplication.setReplicaReads(false);
+        try {
+            assertEquals(4, split.selectAll().size());
+        } finally {
+            DaoApplication.setReplicaReads(true);
+        }
+
+        assertEquals(4, replicaDao("lag", replica, "SELECT 60000").selectAll().size());
+        assertTrue(ReplicaRouter.get(EConnectionType.SDC, "lag").isLagging());
+        assertEquals(1, replicaDao("lag-ok", replica, "SELECT 10").selectAll().size());
+
+        SqlSessionFactory unreachable = new SqlSessionFactoryBuilder().build(new Configuration(new Environment("caida",
+                new JdbcTransactionFactory(), new UnpooledDataSource("org.h2.Driver", "jdbc:h2:mem:no-existe;IFEXISTS=TRUE", "sa", ""))));
+        assertEquals(4, replicaDao("caida", unreachable, "").selectAll().size());
+        assertTrue(ReplicaRouter.get(EConnectionType.SDC, "caida").isDown());
+        assertEquals(0, H2Database.activeConnections(replica));
+        assertEquals(0, H2Database.activeConnections(sqlSessionFactory));
+    }
+
+    @Test
+    void slowStatementLogCapturesEnvironmentRowsAndParameters() {
+        SlowStatementLog previous = DaoMetrics.getSlowLog();
+        SlowStatementLog slowLog = new SlowStatementLog(16, 60_000, 0, EParameterCapture.MASKED);
+        slowLog.setThreshold("ItemMapper", "selectList", 0);
+        slowLog.setThreshold("ItemMapper", "insert", 0);
+        DaoMetrics.setSlowLog(slowLog);
+        try {
+            dao.insertBatch(items(4), 2, ECommitPolicy.PER_CALL);
+            dao.selectAll();
+            dao.selectList(Collections.singletonMap("code", "PAR"));
+
+            List<SlowStatement> recent = slowLog.getRecent();
+            assertEquals(2, recent.size());
+            SlowStatement select = recent.get(0);
+            assertEquals("selectList", select.getMethod());
+            assertEquals("dao-base", select.getEnvironment());
+            assertEquals(2, select.getRows());
+            assertEquals("{code=***(3)}", select.getParameters());
+            SlowStatement insert = recent.get(1);
+            assertEquals(4, insert.getRows());
+            assertTrue(insert.getParameters().contains("id=4"), insert.getParameters());
+        } finally {
+            DaoMetrics.setSlowLog(previous);
+        }
+    }
+
+    @Test
+    void identicalConcurrentReadsShareOneExecution() throws Exception {
+        MetricsRegistry previous = DaoMetrics.getRegistry();
+        DefaultMetricsRegistry registry = new DefaultMetricsRegistry();
+        DaoMetrics.setRegistry(registry);
+        ItemDao flight = new ItemDao(sqlSessionFactory) {
+            @Override
+            protected boolean isSingleFlight(String methodName) {
+                return "selectGated".equals(methodName);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch gate = H2Database.closeGate();
+        try {
+            dao.insertBatch(items(6));
+            StatementStats stats = registry.statement(new MetricKey("ItemMapper", "selectGated", "SINGLE", "")).snapshot();
+            List<CompletableFuture<List<Item>>> calls = new ArrayList<>();
+            calls.add(CompletableFuture.supplyAsync(() -> flight.queryList("selectGated", Collections.singletonMap("code", "PAR")), executor));
+            long until = System.currentTimeMillis() + 5000;
+            while (H2Database.gateCalls() == 0 && System.currentTimeMillis() < until) {
+                Thread.sleep(10);
+            }
+            for (int i = 0; i < 6; i++) {
+                calls.add(CompletableFuture.supplyAsync(() -> flight.queryList("selectGated", Collections.singletonMap("code", "PAR")), executor));
+            }
+            CompletableFuture<List<Item>> other = CompletableFuture.supplyAsync(
+                    () -> flight.queryList("selectGated", Collections.singletonMap("code", "IMPAR")), executor);
+            until = System.currentTimeMillis() + 5000;
+            while ((stats.getCoalesced() < 6 || H2Database.gateCalls() < 2) && System.currentTimeMillis() < until) {
+                Thread.sleep(10);
+                stats = registry.statement(new MetricKey("ItemMapper", "selectGated", "SINGLE", "")).snapshot();
+            }
+            gate.countDown();
+
+            List<Item> first = calls.get(0).get(5, TimeUnit.SECONDS);
+            assertEquals(3, first.size());
+            for (CompletableFuture<List<Item>> call : calls.subList(1, calls.size())) {
+                List<Item> shared = call.get(5, TimeUnit.SECONDS);
+                assertNotSame(first, shared);
+                assertSame(first.get(0), shared.get(0));
+            }
+            assertEquals(3, other.get(5, TimeUnit.SECONDS).size());
+            stats = registry.statement(new MetricKey("ItemMapper", "selectGated", "SINGLE", "")).snapshot();
+            assertEquals(2, stats.getCalls());
+            assertEquals(6, stats.getCoalesced());
+            assertEquals(0, SingleFlight.inFlight());
+
+            assertEquals(3, flight.queryList("selectGated", Collections.singletonMap("code", "PAR")).size());
+            assertEquals(3, flight.inTransaction(() -> flight.<Item>queryList("selectGated", Collections.singletonMap("code", "PAR")).size()));
+            assertEquals(4, registry.statement(new MetricKey("ItemMapper", "selectGated", "SINGLE", "")).snapshot().getCalls());
+        } finally {
+            gate.countDown();
+            executor.shutdownNow();
+            DaoMetrics.setRegistry(previous);
+        }
+    }
+
+    @Test
+    void failuresAreLoggedOnce() {
+        List<LogEvent> events = new CopyOnWriteArrayList<>();
+        Appender appender = new AbstractAppender("dao-base-test", null, null, true, Property.EMPTY_ARRAY) {
+            @Override
+            public void append(LogEvent event) {
+                events.add(event.toImmutable());
+            }
+        };
+        appender.start();
+        org.apache.logging.log4j.core.Logger logger = (org.apache.logging.log4j.core.Logger) LogManager.getLogger(ItemDao.class);
+        logger.addAppender(appender);
+        try {
+            dao.insert(new Item(1, "IMPAR", BigDecimal.ONE));
+            assertThrows(PersistenceException.class, () -> dao.insert(new Item(1, "DUPLICADO", BigDecimal.ONE)));
+            assertThrows(PersistenceException.class, () -> dao.insertBatch(Arrays.asList(new Item(2, "PAR", BigDecimal.ONE),
+                    new Item(1, "DUPLICADO", BigDecimal.ONE)), 1, ECommitPolicy.PER_CALL));
+            assertThrows(PersistenceException.class, () -> dao.queryList("noExiste"));
+            List<LogEvent> errors = events.stream().filter(event -> event.getLevel().isMoreSpecificThan(Level.ERROR)).collect(Collectors.toList());
+            assertEquals(3, errors.size());
+            assertTrue(errors.stream().allMatch(event -> event.getThrown() != null));
+        } finally {
+            logger.removeAppender(appender);
+            appender.stop();
+        }
+    }
+
+    @Test
+    void batchFailureLogsTheChunkThatFailed() {
+        List<LogEvent> events = new CopyOnWriteArrayList<>();
+        Appender appender = new AbstractAppender("dao-base-chunk-test", null, null, true, Property.EMPTY_ARRAY) {
+            @Override
+            public void append(LogEvent event) {
+                events.add(event.toImmutable());
+            }
+        };
+        appender.start();
+        org.apache.logging.log4j.core.Logger logger = (org.apache.logging.log4j.core.Logger) LogManager.getLogger(ItemDao.class);
+        logger.addAppender(appender);
+        try {
+            dao.insert(new Item(50, "PAR", BigDecimal.ONE));
+            List<Item> items = items(20);
+            items.get(10).setId(50);
+            assertThrows(PersistenceException.class, () -> dao.insertBatch(items, 8, ECommitPolicy.PER_CHUNK));
+            List<LogEvent> errors = events.stream().filter(event -> event.getLevel().isMoreSpecificThan(Level.ERROR)).collect(Collectors.toList());
+            assertEquals(1, errors.size());
+            assertTrue(errors.get(0).getMessage().getFormattedMessage().startsWith("Error en el bloque 2 de 3"),
+                    errors.get(0).getMessage().getFormattedMessage());
+            assertEquals(9, dao.selectAll().size());
+        } finally {
+            logger.removeAppender(appender);
+            appender.stop();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.pool.ConnectionPool;
+import com.unicon.api.commons.db.dao.pool.PoolSettings;
+import com.unicon.api.commons.db.dao.support.H2Database;
+import com.unicon.api.commons.db.dao.support.Item;
+import com.unicon.api.commons.db.dao.support.ItemDao;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author acrispin
+ */
+class DeadlineTest {
+
+    @Test
+    void expiredDeadlineFailsWithoutTouchingTheDatabase() {
+        ItemDao dao = new ItemDao(H2Database.create("deadline-expired"));
+        assertTrue(dao.insert(new Item(1, "UNO", BigDecimal.ONE)));
+
+        DeadlineExceededException ex = assertThrows(DeadlineExceededException.class,
+                () -> Deadline.execute(0, dao::selectAll));
+        assertTrue(ex.getMessage().contains("selectAll"), ex.getMessage());
+        assertEquals(0, H2Database.activeConnections(dao.getSqlSessionFactoryInner()));
+        assertNull(Deadline.current());
+        assertEquals(1, Deadline.execute(1000, dao::selectAll).size());
+    }
+
+    @Test
+    void deadlineBoundsTheStatementTimeout() {
+        ItemDao dao = new ItemDao(H2Database.create("deadline-statement"));
+        long start = System.nanoTime();
+        PersistenceException ex = assertThrows(PersistenceException.class,
+                () -> Deadline.execute(500, () -> dao.queryObject(Long.class, "slowSum")));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(CircuitBreaker.isConnectionFailure(ex), ex.getMessage());
+        assertTrue(elapsed < 5000, elapsed + " ms");
+    }
+
+    @Test
+    void deadlineBoundsTheConnectionWait() throws Exception {
+        try (ConnectionPool pool = H2Database.connectionPool("deadline-pool",
+                new PoolSettings().maximumPoolSize(1).connectionTimeout(10000));
+             Connection held = pool.getConnection()) {
+            assertEquals(1, pool.getActiveConnections(), String.valueOf(held));
+            long start = System.nanoTime();
+            SQLTransientConnectionException ex = Deadline.execute(100, () -> assertThrows(SQLTransientConnectionException.class, pool::getConnection));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsed >= 90 && elapsed < 2000, elapsed + " ms");
+            assertTrue(ex.getCause() instanceof DeadlineExceededException, String.valueOf(ex.getCause()));
+        }
+    }
+
+    @Test
+    void nestedDeadlinesKeepTheEarlierOne() {
+        Deadline outer = Deadline.after(100, TimeUnit.MILLISECONDS);
+        Deadline.execute(outer, () -> {
+            assertSame(outer, Deadline.current());
+            assertSame(outer, Deadline.execute(10000, Deadline::current));
+            assertTrue(Deadline.execute(10, Deadline::current).remainingMillis() <= 10);
+            assertSame(outer, Deadline.current());
+            return null;
+        });
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void asyncCallsInheritTheDeadline() throws Exception {
+        ItemDao dao = new ItemDao(H2Database.create("deadline-async"));
+        Deadline deadline = Deadline.after(5, TimeUnit.SECONDS);
+        assertSame(deadline, Deadline.execute(deadline, () -> dao.supplyAsync(Deadline::current)).get(5, TimeUnit.SECONDS));
+        assertNull(dao.supplyAsync(Deadline::current).get(5, TimeUnit.SECONDS));
+    }
+}
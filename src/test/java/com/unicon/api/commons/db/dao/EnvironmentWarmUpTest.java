@@ -0,0 +1,79 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import com.unicon.api.commons.db.dao.support.H2Database;
+import com.unicon.api.commons.db.dao.support.ItemMapper;
+import com.unicon.api.commons.db.dao.warmup.EnvironmentReadiness;
+import com.unicon.api.commons.db.dao.warmup.WarmUpReport;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author acrispin
+ */
+class EnvironmentWarmUpTest {
+
+    @Test
+    void warmUpBuildsValidatesAndReportsEachEnvironment() {
+        SqlSessionFactory single = H2Database.create("warmup-single");
+        SqlSessionFactory sdc = H2Database.create("warmup-sdc");
+        WarmUpReport report = EnvironmentWarmUp.run(Arrays.asList(
+                new EnvironmentWarmUp.Target("single", EConnectionType.SINGLE, null, false, () -> single),
+                new EnvironmentWarmUp.Target("1-sdc", EConnectionType.SDC, "1", false, () -> sdc),
+                new EnvironmentWarmUp.Target("1-sdc-ro", EConnectionType.SDC, "1", true, () -> {
+                    throw new PersistenceException("JNDI no disponible");
+                })), 3, 5000, 4);
+
+        assertTrue(report.isReady(), report.toString());
+        assertEquals(3, report.getEnvironments().size());
+        EnvironmentReadiness first = report.getEnvironments().get(0);
+        assertEquals("single", first.getEnvironment());
+        assertTrue(first.isReady());
+        assertEquals(3, first.getConnections());
+        assertEquals(ItemMapper.class.getMethods().length, first.getMapperMethods());
+        assertNull(first.getError());
+        assertEquals(3, ((PooledDataSource) single.getConfiguration().getEnvironment().getDataSource()).getPoolState().getIdleConnectionCount());
+        assertEquals(0, H2Database.activeConnections(sdc));
+        EnvironmentReadiness replica = report.getEnvironments().get(2);
+        assertFalse(replica.isReady());
+        assertTrue(replica.isReplica());
+        assertEquals("JNDI no disponible", replica.getError());
+    }
+
+    @Test
+    void failingOrSlowPrimaryKeepsNodeNotReady() throws Exception {
+        SqlSessionFactory single = H2Database.create("warmup-slow");
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            WarmUpReport report = EnvironmentWarmUp.run(Arrays.asList(
+                    new EnvironmentWarmUp.Target("single", EConnectionType.SINGLE, null, false, () -> single),
+                    new EnvironmentWarmUp.Target("1-cmd", EConnectionType.CMD, "1", false, () -> {
+                        try {
+                            release.await();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return single;
+                    }),
+                    new EnvironmentWarmUp.Target("2-cmd", EConnectionType.CMD, "2", false, () -> null)), 1, 300, 4);
+
+            assertFalse(report.isReady());
+            assertTrue(report.getEnvironments().get(0).isReady());
+            assertTrue(report.getEnvironments().get(1).getError().startsWith("sin terminar"), report.toString());
+            assertEquals("environment no declarado", report.getEnvironments().get(2).getError());
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.unicon.api.commons.db.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ *
+ * @author acrispin
+ */
+class MapperDispatcherTest {
+
+    public interface SampleMapper {
+        String selectById(int id);
+
+        String selectById(Integer id, String code);
+
+        List<String> selectList(Map<String, Object> params);
+
+        String selectList(List<String> codes);
+
+        String selectList(ArrayList<String> codes);
+
+        Integer insert(Number value);
+    }
+
+    private static final SampleMapper MAPPER = (SampleMapper) Proxy.newProxyInstance(
+            SampleMapper.class.getClassLoader(),
+            new Class<?>[]{SampleMapper.class},
+            (proxy, method, args) -> method.getReturnType() == List.class ? new ArrayList<>() : method.toGenericString());
+
+    @Test
+    void resolvesBoxedArgumentToPrimitiveParameter() throws Exception {
+        Object[] args = {7};
+        MapperInvoker invoker = MapperDispatcher.resolve(SampleMapper.class, "selectById", args);
+        assertEquals(int.class, invoker.getMethod().getParameterTypes()[0]);
+        assertEquals(invoker.getMethod().toGenericString(), invoker.invoke(MAPPER, args));
+    }
+
+    @Test
+    void resolvesSubclassArgumentsAndNulls() throws Exception {
+        Object[] args = {new HashMap<String, Object>()};
+        assertEquals(Map.class, MapperDispatcher.resolve(SampleMapper.class, "selectList", args).getMethod().getParameterTypes()[0]);
+        assertEquals(Number.class, MapperDispatcher.resolve(SampleMapper.class, "insert", Long.class).getMethod().getParameterTypes()[0]);
+        assertEquals(2, MapperDispatcher.resolve(SampleMapper.class, "selectById", new Object[]{null, "A"}).getParameterCount());
+    }
+
+    @Test
+    void picksMostSpecificOverload() throws Exception {
+        Object[] args = {new ArrayList<String>()};
+        assertEquals(ArrayList.class, MapperDispatcher.resolve(SampleMapper.class, "selectList", args).getMethod().getParameterTypes()[0]);
+        assertThrows(NoSuchMethodException.class, () -> MapperDispatcher.resolve(SampleMapper.class, "selectList", new Object[]{null}));
+    }
+
+    @Test
+    void cachesResolvedInvokers() throws Exception {
+        MapperInvoker first = MapperDispatcher.resolve(SampleMapper.class, "selectById", new Object[]{1});
+        MapperInvoker second = MapperDispatcher.resolve(SampleMapper.class, "selectById", new Object[]{2});
+        assertSame(first, second);
+        assertThrows(NoSuchMethodException.class, () -> MapperDispatcher.resolve(SampleMapper.class, "selectAll", new Object[0]));
+    }
+}
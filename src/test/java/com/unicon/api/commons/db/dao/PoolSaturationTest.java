@@ -0,0 +1,76 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.metrics.LatencyHistogram;
+import com.unicon.api.commons.db.dao.pool.ConnectionPool;
+import com.unicon.api.commons.db.dao.pool.PoolSettings;
+import com.unicon.api.commons.db.dao.support.H2Database;
+import com.unicon.api.commons.db.dao.support.Item;
+import com.unicon.api.commons.db.dao.support.ItemDao;
+import com.unicon.api.commons.db.dao.support.LoadHarness;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Carga con mas hilos que conexiones en el pool. Los valores por defecto son cortos para el build; para una corrida
+ * de soak se pueden cambiar con <code>-Dload.threads</code>, <code>-Dload.pool</code>, <code>-Dload.seconds</code>
+ * y <code>-Dload.writes</code>.
+ *
+ * @author acrispin
+ */
+@Log4j2
+class PoolSaturationTest {
+
+    private static final int KEY_SPACE = 1000;
+
+    @Test
+    void callersOutnumberingConnectionsWaitWithoutFailures() throws InterruptedException {
+        int poolSize = Integer.getInteger("load.pool", 4);
+        saturate("pool-saturation", H2Database.pooled("pool-saturation", poolSize), poolSize);
+    }
+
+    @Test
+    void connectionPoolUnderSaturation() throws InterruptedException {
+        int poolSize = Integer.getInteger("load.pool", 4);
+        try (ConnectionPool pool = H2Database.connectionPool("connection-pool-saturation",
+                new PoolSettings().maximumPoolSize(poolSize))) {
+            saturate("connection-pool-saturation", pool, poolSize);
+            assertEquals(0, pool.getActiveConnections());
+        }
+    }
+
+    private void saturate(String name, DataSource dataSource, int poolSize) throws InterruptedException {
+        int threads = Integer.getInteger("load.threads", 16);
+        long seconds = Long.getLong("load.seconds", 1L);
+        double writes = Double.parseDouble(System.getProperty("load.writes", "0.2"));
+
+        LatencyHistogram poolWait = new LatencyHistogram();
+        ItemDao dao = new ItemDao(H2Database.create(name, LoadHarness.timed(dataSource, poolWait)));
+        List<Item> items = new ArrayList<>(KEY_SPACE);
+        for (int i = 1; i <= KEY_SPACE; i++) {
+            items.add(new Item(i, "INICIAL", BigDecimal.ONE));
+        }
+        dao.insertBatch(items);
+
+        LoadHarness.Result result = new LoadHarness(dao, poolWait)
+                .threads(threads)
+                .duration(seconds, TimeUnit.SECONDS)
+                .writeRatio(writes)
+                .keySpace(KEY_SPACE)
+                .run();
+        log.info("{} de {} conexiones: {}", dataSource.getClass().getSimpleName(), poolSize, result);
+
+        assertEquals(0, result.getFailures(), result.getFailuresByType().toString());
+        assertTrue(result.getReads() > 0);
+        assertTrue(result.getWrites() > 0);
+        assertTrue(result.getPoolWaitCount() >= result.getOperations());
+    }
+}
@@ -0,0 +1,72 @@
+package com.unicon.api.commons.db.dao;
+
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author acrispin
+ */
+class SqlSessionFactoryRegistryTest {
+
+    @Test
+    void slowEnvironmentDoesNotBlockOtherMarcas() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger builds = new AtomicInteger();
+        SqlSessionFactoryRegistry registry = new SqlSessionFactoryRegistry((type, idMarca) -> {
+            builds.incrementAndGet();
+            if ("1".equals(idMarca)) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new DefaultSqlSessionFactory(new Configuration());
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<SqlSessionFactory> slow = executor.submit(() -> registry.get(EConnectionType.SDC, "1"));
+            Future<SqlSessionFactory> slowAgain = executor.submit(() -> registry.get(EConnectionType.SDC, "1"));
+            SqlSessionFactory fast = executor.submit(() -> registry.get(EConnectionType.SDC, "2")).get(5, TimeUnit.SECONDS);
+            assertSame(fast, registry.get(EConnectionType.SDC, "2"));
+            assertNotSame(fast, registry.get(EConnectionType.CMD, "2"));
+            assertTrue(!slow.isDone());
+            release.countDown();
+            assertSame(slow.get(5, TimeUnit.SECONDS), slowAgain.get(5, TimeUnit.SECONDS));
+            assertEquals(3, builds.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedBuildIsRetried() {
+        AtomicInteger builds = new AtomicInteger();
+        SqlSessionFactoryRegistry registry = new SqlSessionFactoryRegistry((type, idMarca) -> {
+            if (builds.incrementAndGet() == 1) {
+                throw new IllegalStateException("jndi");
+            }
+            return new DefaultSqlSessionFactory(new Configuration());
+        });
+        assertThrows(IllegalStateException.class, () -> registry.get(EConnectionType.SINGLE, null));
+        assertSame(registry.get(EConnectionType.SINGLE, null), registry.get(EConnectionType.SINGLE, "x"));
+        assertEquals(2, builds.get());
+    }
+}
@@ -0,0 +1,117 @@
+package com.unicon.api.commons.db.dao.columnar;
+
+import com.unicon.api.commons.db.dao.enums.EColumnType;
+import com.unicon.api.commons.db.dao.support.H2Database;
+import com.unicon.api.commons.db.dao.support.Item;
+import com.unicon.api.commons.db.dao.support.ItemDao;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author acrispin
+ */
+class ColumnarResultTest {
+
+    @Test
+    void columnarListMatchesTheMappedList() {
+        ItemDao dao = new ItemDao(H2Database.create("columnar-dao"));
+        List<Item> items = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            items.add(new Item(i, i % 2 == 0 ? "PAR" : "IMPAR", BigDecimal.valueOf(i, 2)));
+        }
+        items.add(new Item(1001, null, null));
+        dao.insertBatch(items);
+
+        ColumnarResult result = dao.columnarAll();
+        List<Item> mapped = dao.selectAll();
+        assertEquals(mapped.size(), result.size());
+        assertEquals(3, result.getColumnCount());
+        assertEquals(EColumnType.INT, result.getColumn("ID").getType());
+        assertEquals(EColumnType.STRING, result.getColumn("code").getType());
+        assertEquals(EColumnType.DECIMAL, result.getColumn("amount").getType());
+        assertEquals(2, ((Column.StringColumn) result.getColumn("code")).getCardinality());
+        for (Row row : result) {
+            Item item = mapped.get(row.getIndex());
+            assertEquals(item.getId().intValue(), row.getInt("id"));
+            assertEquals(item.getCode(), row.getString("code"));
+            assertEquals(item.getAmount(), row.getBigDecimal("amount"));
+        }
+        Row last = result.row(1000);
+        assertTrue(last.isNull("code") && last.isNull(2));
+        assertEquals(0d, last.getDouble("amount"));
+        assertEquals(9.99d, result.row(998).getDouble("amount"));
+        assertEquals(1001, result.toList(row -> row.getInt(0)).size());
+
+        Map<String, Object> pares = Collections.singletonMap("code", "PAR");
+        assertEquals(500, dao.columnarList(pares).size());
+        assertEquals(500, dao.inTransaction(() -> {
+            assertEquals(500, dao.columnarList(pares).size());
+            return dao.selectList(pares);
+        }).size());
+        assertThrows(IllegalArgumentException.class, () -> result.getColumn("precio"));
+    }
+
+    @Test
+    void readsEachJdbcTypeIntoItsColumn() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(H2Database.url("columnar-types"), "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE tipos (total BIGINT, ratio DOUBLE, fecha DATE, creado TIMESTAMP, activo BOOLEAN,"
+                    + " grande DECIMAL(30,2), nombre VARCHAR(20), clave UUID)");
+            statement.execute("INSERT INTO tipos SELECT X * 10000000000, X / 4.0, DATEADD(DAY, X, DATE '2026-01-01'),"
+                    + " TIMESTAMP '2026-01-01 10:00:00.125', MOD(X, 2) = 0, 1.5, 'N' || X, RANDOM_UUID()"
+                    + " FROM SYSTEM_RANGE(1, 300)");
+            statement.execute("INSERT INTO tipos (grande) VALUES (123456789012345678901234.56)");
+            ColumnarResult result;
+            try (ResultSet resultSet = statement.executeQuery("SELECT *, grande + 1 AS calculado FROM tipos ORDER BY total NULLS LAST")) {
+                result = ColumnarResult.read(resultSet);
+            }
+            assertEquals(301, result.size());
+            assertEquals(EColumnType.LONG, result.getColumn("total").getType());
+            assertEquals(EColumnType.DOUBLE, result.getColumn("ratio").getType());
+            assertEquals(EColumnType.TIMESTAMP, result.getColumn("fecha").getType());
+            assertEquals(EColumnType.TIMESTAMP, result.getColumn("creado").getType());
+            assertEquals(EColumnType.BOOLEAN, result.getColumn("activo").getType());
+            assertEquals(EColumnType.OBJECT, result.getColumn("clave").getType());
+
+            Row first = result.row(0);
+            assertEquals(10_000_000_000L, first.getLong("total"));
+            assertEquals(0.25d, first.getDouble("ratio"));
+            assertEquals(java.sql.Date.valueOf("2026-01-02"), first.getDate("fecha"));
+            assertEquals(Timestamp.valueOf("2026-01-01 10:00:00.125"), first.getDate("creado"));
+            assertFalse(first.getBoolean("activo"));
+            assertTrue(result.row(1).getBoolean("activo"));
+            assertEquals(new BigDecimal("1.50"), first.getBigDecimal("grande"));
+            assertEquals(1, first.getLong("grande"));
+            assertEquals(new BigDecimal("2.50"), first.getBigDecimal("calculado"));
+            assertEquals(2.5d, first.getDouble("calculado"));
+            assertEquals("N300", result.row(299).getString("nombre"));
+            assertEquals(300, ((Column.StringColumn) result.getColumn("nombre")).getCardinality());
+
+            Row last = result.row(300);
+            assertEquals(new BigDecimal("123456789012345678901234.56"), last.getBigDecimal("grande"));
+            assertEquals(new BigDecimal("1.50"), first.getBigDecimal("grande"));
+            assertTrue(last.isNull("total") && last.isNull("fecha") && last.isNull("clave") && last.isNull("nombre"));
+            assertNull(last.getDate("creado"));
+            assertEquals(0L, last.getLong("total"));
+            assertThrows(ClassCastException.class, () -> first.getDate("total"));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author acrispin
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertWithin(50_000_000L, histogram.getPercentile(50));
+        assertWithin(99_000_000L, histogram.getPercentile(99));
+        assertWithin(99_900_000L, histogram.getPercentile(99.9));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    void bucketsCoverTheWholeRange() {
+        IntStream.range(0, 32).forEach(value -> assertEquals(value, LatencyHistogram.valueOf(LatencyHistogram.indexOf(value))));
+        long previous = -1;
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index >= previous);
+            previous = index;
+            assertWithin(value, LatencyHistogram.valueOf(index));
+        }
+        LatencyHistogram.valueOf(LatencyHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 16 + 1, String.format("%d no es ~%d", actual, expected));
+    }
+}
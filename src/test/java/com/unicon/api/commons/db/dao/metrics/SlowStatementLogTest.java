@@ -0,0 +1,76 @@
+package com.unicon.api.commons.db.dao.metrics;
+
+import com.unicon.api.commons.db.dao.enums.EParameterCapture;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author acrispin
+ */
+class SlowStatementLogTest {
+
+    private static final MetricKey SELECT = new MetricKey("ItemMapper", "selectAll", "SDC", "1");
+    private static final MetricKey INSERT = new MetricKey("ItemMapper", "insert", "SDC", "1");
+
+    @Test
+    void recordsOnlyCallsOverTheMethodThresholdAndKeepsTheNewest() {
+        SlowStatementLog log = new SlowStatementLog(3, 100, 0, EParameterCapture.NONE,
+                method -> method.equals("ItemMapper.insert") ? 10 : 100);
+        assertEquals(10, log.thresholdMillis("ItemMapper", "insert"));
+        assertFalse(log.record(SELECT, "1-sdc", TimeUnit.MILLISECONDS.toNanos(50), 10, false, null));
+        assertTrue(log.record(INSERT, "1-sdc", TimeUnit.MILLISECONDS.toNanos(50), 1, false, null));
+        log.setThreshold("ItemMapper", "selectAll", 20);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(log.record(SELECT, "1-sdc-ro", TimeUnit.MILLISECONDS.toNanos(20 + i), i, false, 1));
+        }
+
+        List<SlowStatement> recent = log.getRecent();
+        assertEquals(6, log.getRecorded());
+        assertEquals(4, recent.size());
+        assertEquals(5, recent.get(0).getRows());
+        assertEquals(2, recent.get(3).getRows());
+        assertEquals("1-sdc-ro", recent.get(0).getEnvironment());
+        assertEquals(25_000, recent.get(0).getElapsedMicros());
+        assertNull(recent.get(0).getParameters());
+        assertFalse(recent.get(0).isSampled());
+        assertTrue(log.dump().contains("ItemMapper.selectAll SDC '1' env=1-sdc-ro 25000 us, 5 filas"));
+        log.clear();
+        assertTrue(log.getRecent().isEmpty());
+    }
+
+    @Test
+    void samplesNormalCallsAndMasksParameters() {
+        SlowStatementLog log = new SlowStatementLog(8, 60_000, 1, EParameterCapture.MASKED);
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("code", "SECRETO");
+        params.put("amount", BigDecimal.TEN);
+        params.put("id", null);
+        assertTrue(log.record(SELECT, "1-sdc", 1000, 0, false, params));
+        assertTrue(log.record(SELECT, "1-sdc", 1000, 0, true, "clave"));
+        List<SlowStatement> recent = log.getRecent();
+        assertEquals("***(5)", recent.get(0).getParameters());
+        assertTrue(recent.get(0).isError());
+        String masked = recent.get(1).getParameters();
+        assertTrue(recent.get(1).isSampled());
+        assertTrue(masked.contains("code=***(7)") && masked.contains("amount=10") && masked.contains("id=null"), masked);
+        assertFalse(masked.contains("SECRETO"));
+
+        log.setSampleRate(0);
+        assertFalse(log.record(SELECT, "1-sdc", 1000, 0, false, params));
+
+        SlowStatementLog full = new SlowStatementLog(8, 0, 0, EParameterCapture.FULL);
+        full.record(INSERT, "1-sdc", 1000, 1, false, params);
+        assertTrue(full.getRecent().get(0).getParameters().contains("code='SECRETO'"));
+    }
+}
@@ -0,0 +1,213 @@
+package com.unicon.api.commons.db.dao.pool;
+
+import com.unicon.api.commons.db.dao.support.H2Database;
+import org.apache.ibatis.datasource.DataSourceException;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author acrispin
+ */
+class ConnectionPoolTest {
+
+    @Test
+    void fullPoolTimesOutAndReleasedConnectionGoesToWaiter() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ConnectionPool pool = H2Database.connectionPool("pool-full",
+                new PoolSettings().maximumPoolSize(2).connectionTimeout(200))) {
+            Connection first = pool.getConnection();
+            Connection second = pool.getConnection();
+            long start = System.nanoTime();
+            assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+            assertEquals(2, pool.getActiveConnections());
+
+            try (ConnectionPool waiting = H2Database.connectionPool("pool-full",
+                    new PoolSettings().maximumPoolSize(1).connectionTimeout(5000))) {
+                Connection held = waiting.getConnection();
+                Future<String> waiter = executor.submit(() -> {
+                    try (Connection connection = waiting.getConnection()) {
+                        return connection.toString();
+                    }
+                });
+                while (waiting.getWaitingThreads() == 0) {
+                    Thread.sleep(5);
+                }
+                String physical = held.toString();
+                held.close();
+                assertEquals(physical, waiter.get(5, TimeUnit.SECONDS));
+                assertEquals(1, waiting.getTotalConnections());
+            }
+            first.close();
+            second.close();
+            assertEquals(2, pool.getIdleConnections());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void sameThreadReusesPhysicalConnection() throws Exception {
+        try (ConnectionPool pool = H2Database.connectionPool("pool-affinity", new PoolSettings().maximumPoolSize(4))) {
+            String physical;
+            try (Connection connection = pool.getConnection()) {
+                physical = connection.toString();
+            }
+            for (int i = 0; i < 10; i++) {
+                try (Connection connection = pool.getConnection()) {
+                    assertEquals(physical, connection.toString());
+                }
+            }
+            assertEquals(1, pool.getTotalConnections());
+        }
+    }
+
+    @Test
+    void expiredAndIdleConnectionsAreRetired() throws Exception {
+        try (ConnectionPool pool = H2Database.connectionPool("pool-lifetime",
+                new PoolSettings().maximumPoolSize(3).maxLifetime(50))) {
+            Connection connection = pool.getConnection();
+            String physical = connection.toString();
+            Thread.sleep(100);
+            connection.close();
+            assertEquals(0, pool.getTotalConnections());
+            try (Connection replacement = pool.getConnection()) {
+                assertNotEquals(physical, replacement.toString());
+            }
+        }
+
+        try (ConnectionPool pool = H2Database.connectionPool("pool-idle",
+                new PoolSettings().maximumPoolSize(3).minimumIdle(1).idleTimeout(50))) {
+            Connection[] connections = {pool.getConnection(), pool.getConnection(), pool.getConnection()};
+            for (Connection connection : connections) {
+                connection.close();
+            }
+            Thread.sleep(100);
+            pool.housekeep();
+            assertEquals(1, pool.getTotalConnections());
+        }
+    }
+
+    @Test
+    void deadIdleConnectionIsEvictedAndRefilled() throws Exception {
+        try (ConnectionPool pool = H2Database.connectionPool("pool-keepalive",
+                new PoolSettings().maximumPoolSize(2).minimumIdle(1).keepaliveTime(1))) {
+            Connection physical;
+            String dead;
+            try (Connection connection = pool.getConnection()) {
+                physical = connection.unwrap(Connection.class);
+                dead = connection.toString();
+            }
+            physical.close();
+            Thread.sleep(5);
+            pool.housekeep();
+            assertEquals(1, pool.getEvictionCount());
+            assertEquals(1, pool.getTotalConnections());
+            try (Connection connection = pool.getConnection()) {
+                assertNotEquals(dead, connection.toString());
+                assertTrue(connection.isValid(1));
+            }
+        }
+    }
+
+    @Test
+    void connectionHeldPastThresholdIsReportedOnce() throws Exception {
+        try (ConnectionPool pool = H2Database.connectionPool("pool-leak",
+                new PoolSettings().maximumPoolSize(2).leakDetectionThreshold(20))) {
+            try (Connection leaked = pool.getConnection(); Connection quick = pool.getConnection()) {
+                quick.close();
+                Thread.sleep(50);
+                pool.housekeep();
+                pool.housekeep();
+                assertEquals(1, pool.getLeakCount());
+            }
+            pool.housekeep();
+            assertEquals(1, pool.getLeakCount());
+        }
+    }
+
+    @Test
+    void statementCacheReusesPreparedStatementsPerConnection() throws Exception {
+        try (ConnectionPool pool = H2Database.connectionPool("pool-statements",
+                new PoolSettings().maximumPoolSize(1).statementCacheSize(2))) {
+            for (int i = 0; i < 3; i++) {
+                try (Connection connection = pool.getConnection();
+                     PreparedStatement statement = connection.prepareStatement("SELECT ? + 1")) {
+                    assertEquals(i > 0, ConnectionPool.isReused(statement));
+                    statement.setInt(1, i);
+                    statement.setMaxRows(1);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        assertTrue(rs.next());
+                        assertEquals(i + 1, rs.getInt(1));
+                    }
+                }
+            }
+            assertEquals(2, pool.getStatementCacheHits());
+            assertEquals(1, pool.getStatementCacheMisses());
+
+            try (Connection connection = pool.getConnection()) {
+                connection.prepareStatement("SELECT 2").close();
+                connection.prepareStatement("SELECT 3").close();
+                try (PreparedStatement evicted = connection.prepareStatement("SELECT ? + 1")) {
+                    assertFalse(ConnectionPool.isReused(evicted));
+                }
+                PreparedStatement open = connection.prepareStatement("SELECT 3");
+                try (PreparedStatement second = connection.prepareStatement("SELECT 3")) {
+                    assertTrue(ConnectionPool.isReused(open));
+                    assertFalse(ConnectionPool.isReused(second));
+                }
+                open.close();
+            }
+        }
+    }
+
+    @Test
+    void closeRollsBackPendingTransaction() throws Exception {
+        try (ConnectionPool pool = H2Database.connectionPool("pool-rollback", new PoolSettings().maximumPoolSize(1))) {
+            try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS pendiente (id INT)");
+                connection.setAutoCommit(false);
+                statement.executeUpdate("INSERT INTO pendiente VALUES (1)");
+            }
+            try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM pendiente")) {
+                assertTrue(connection.getAutoCommit());
+                assertTrue(rs.next());
+                assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void factoryRejectsUnknownPropertiesAndBadNumbers() {
+        Properties properties = new Properties();
+        properties.setProperty("driver", "org.h2.Driver");
+        properties.setProperty("url", H2Database.url("pool-factory"));
+        properties.setProperty("poolMaximumActiveConnections", "10");
+        assertThrows(DataSourceException.class, () -> new ConnectionPoolDataSourceFactory().setProperties(properties));
+
+        properties.remove("poolMaximumActiveConnections");
+        properties.setProperty("maximumPoolSize", "diez");
+        assertThrows(DataSourceException.class, () -> new ConnectionPoolDataSourceFactory().setProperties(properties));
+
+        properties.setProperty("maximumPoolSize", "0");
+        assertThrows(DataSourceException.class, () -> new ConnectionPoolDataSourceFactory().setProperties(properties));
+    }
+}
@@ -0,0 +1,133 @@
+package com.unicon.api.commons.db.dao.support;
+
+import com.unicon.api.commons.db.dao.StatementInterceptor;
+import com.unicon.api.commons.db.dao.pool.ConnectionPool;
+import com.unicon.api.commons.db.dao.pool.PoolSettings;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base H2 en memoria, en modo SQL Server, para las pruebas de los DAO.
+ *
+ * @author acrispin
+ */
+public final class H2Database {
+
+    private static final AtomicInteger GATE_CALLS = new AtomicInteger();
+    private static volatile CountDownLatch gate;
+
+    private H2Database() {
+    }
+
+    /**
+     * @param name nombre de la base, cada nombre es una base distinta
+     * @return factory con {@link ItemMapper} registrado y la tabla <code>item</code> vacia
+     */
+    public static SqlSessionFactory create(String name) {
+        return create(name, pooled(name, 10));
+    }
+
+    /**
+     * @param name     nombre de la base, cada nombre es una base distinta
+     * @param poolSize conexiones maximas del pool
+     * @return pool de mybatis sobre la base
+     */
+    public static PooledDataSource pooled(String name, int poolSize) {
+        PooledDataSource dataSource = new PooledDataSource("org.h2.Driver", url(name), "sa", "");
+        dataSource.setPoolMaximumActiveConnections(poolSize);
+        dataSource.setPoolMaximumIdleConnections(poolSize);
+        return dataSource;
+    }
+
+    /**
+     * @param name     nombre de la base, cada nombre es una base distinta
+     * @param settings parametros del pool
+     * @return pool propio sobre la base
+     */
+    public static ConnectionPool connectionPool(String name, PoolSettings settings) {
+        Properties properties = new Properties();
+        properties.setProperty("user", "sa");
+        properties.setProperty("password", "");
+        return new ConnectionPool("org.h2.Driver", url(name), properties, settings.poolName(name));
+    }
+
+    /**
+     * @param name nombre de la base
+     * @return url JDBC de la base en memoria
+     */
+    public static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=MSSQLServer;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * @param name       nombre de la base, cada nombre es una base distinta
+     * @param dataSource origen de las conexiones
+     * @return factory con {@link ItemMapper} registrado y la tabla <code>item</code> vacia
+     */
+    public static SqlSessionFactory create(String name, DataSource dataSource) {
+        Configuration configuration = new Configuration(new Environment(name, new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(ItemMapper.class);
+        configuration.addInterceptor(new StatementInterceptor());
+        SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            ItemMapper mapper = session.getMapper(ItemMapper.class);
+            mapper.createTable();
+            mapper.createGate();
+            mapper.truncate();
+        }
+        return sqlSessionFactory;
+    }
+
+    /**
+     * @param sqlSessionFactory factory creado con {@link #create(String)}
+     * @return conexiones prestadas en este momento
+     */
+    public static int activeConnections(SqlSessionFactory sqlSessionFactory) {
+        return ((PooledDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource())
+                .getPoolState().getActiveConnectionCount();
+    }
+
+    /**
+     * Funcion <code>GATE()</code> de la base: la consulta que la llama espera mientras la compuerta este cerrada.
+     *
+     * @return 0
+     */
+    public static int gate() throws InterruptedException {
+        GATE_CALLS.incrementAndGet();
+        CountDownLatch current = gate;
+        if (current != null) {
+            current.await(10, TimeUnit.SECONDS);
+        }
+        return 0;
+    }
+
+    /**
+     * Cierra la compuerta de <code>GATE()</code> y reinicia su contador de llamadas.
+     *
+     * @return latch que abre la compuerta
+     */
+    public static CountDownLatch closeGate() {
+        GATE_CALLS.set(0);
+        CountDownLatch latch = new CountDownLatch(1);
+        gate = latch;
+        return latch;
+    }
+
+    /**
+     * @return llamadas a <code>GATE()</code> desde el ultimo {@link #closeGate()}
+     */
+    public static int gateCalls() {
+        return GATE_CALLS.get();
+    }
+}
@@ -0,0 +1,20 @@
+package com.unicon.api.commons.db.dao.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ *
+ * @author acrispin
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Item {
+    private Integer id;
+    private String code;
+    private BigDecimal amount;
+}
@@ -0,0 +1,63 @@
+package com.unicon.api.commons.db.dao.support;
+
+import com.unicon.api.commons.db.dao.DaoBase;
+import com.unicon.api.commons.db.dao.enums.EConnectionType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * DAO de prueba sobre una base H2 en memoria.
+ *
+ * @author acrispin
+ */
+public class ItemDao extends DaoBase<Item, ItemMapper> {
+
+    private static final Logger LOGGER = LogManager.getLogger(ItemDao.class);
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    public ItemDao(SqlSessionFactory sqlSessionFactory) {
+        this.sqlSessionFactory = sqlSessionFactory;
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    protected SqlSessionFactory getSqlSessionFactoryInnerSingle() {
+        return sqlSessionFactory;
+    }
+
+    @Override
+    protected SqlSessionFactory getSqlSessionFactoryInnerSdc(String idMarca) {
+        return sqlSessionFactory;
+    }
+
+    @Override
+    protected SqlSessionFactory getSqlSessionFactoryInnerCmd(String idMarca) {
+        return sqlSessionFactory;
+    }
+
+    @Override
+    protected EConnectionType getConnectionType() {
+        return EConnectionType.SINGLE;
+    }
+
+    @Override
+    protected Class<ItemMapper> getMapperType() {
+        return ItemMapper.class;
+    }
+
+    @Override
+    protected Class<Item> getClassType() {
+        return Item.class;
+    }
+
+    @Override
+    protected Object[] getPageKey(Item obj) {
+        return new Object[]{obj.getId()};
+    }
+}
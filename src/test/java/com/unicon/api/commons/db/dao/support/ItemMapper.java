@@ -0,0 +1,53 @@
+package com.unicon.api.commons.db.dao.support;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author acrispin
+ */
+public interface ItemMapper {
+    @Update("CREATE TABLE IF NOT EXISTS item (id INT PRIMARY KEY, code VARCHAR(20), amount DECIMAL(12,2))")
+    void createTable();
+
+    @Update("CREATE ALIAS IF NOT EXISTS GATE FOR \"com.unicon.api.commons.db.dao.support.H2Database.gate\"")
+    void createGate();
+
+    @Delete("DELETE FROM item")
+    int truncate();
+
+    @Insert("INSERT INTO item (id, code, amount) VALUES (#{id}, #{code}, #{amount})")
+    Integer insert(Item item);
+
+    @Update("UPDATE item SET code = #{code}, amount = #{amount} WHERE id = #{id}")
+    Integer update(Item item);
+
+    @Delete("DELETE FROM item WHERE id = #{id}")
+    Integer delete(Item item);
+
+    @Select("SELECT id, code, amount FROM item WHERE id = #{id}")
+    Item selectById(Integer id);
+
+    @Select("SELECT id, code, amount FROM item ORDER BY id")
+    List<Item> selectAll();
+
+    @Select("SELECT id, code, amount FROM item WHERE code = #{code} ORDER BY id")
+    List<Item> selectList(Map<String, Object> params);
+
+    @Select("<script>SELECT TOP (#{pageSize}) id, code, amount FROM item"
+            + " <where><if test='code != null'>code = #{code}</if><if test='afterKey != null'>AND id &gt; #{afterKey}</if></where>"
+            + " ORDER BY id</script>")
+    List<Item> selectPage(Map<String, Object> params);
+
+    @Select("SELECT id, code, amount FROM item WHERE code = #{code} AND id > (SELECT GATE()) ORDER BY id")
+    List<Item> selectGated(Map<String, Object> params);
+
+    @Select("SELECT SUM(x) FROM SYSTEM_RANGE(1, 10000000000)")
+    Long slowSum();
+}
@@ -0,0 +1,216 @@
+package com.unicon.api.commons.db.dao.support;
+
+import com.unicon.api.commons.db.dao.metrics.LatencyHistogram;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Carga concurrente sobre un {@link ItemDao}: <code>threads</code> hilos ejecutan durante un tiempo fijo una
+ * mezcla de <code>selectById</code> y <code>update</code> sobre ids al azar entre 1 y <code>keySpace</code>.
+ * <p>
+ * Mide throughput, latencia por operacion, fallas por tipo de excepcion y, si el DataSource se envuelve con
+ * {@link #timed(DataSource, LatencyHistogram)}, el tiempo de espera de cada <code>getConnection</code> del pool.
+ *
+ * @author acrispin
+ */
+public final class LoadHarness {
+
+    private final ItemDao dao;
+    private final LatencyHistogram poolWait;
+    private int threads = 16;
+    private long durationMillis = 1000;
+    private double writeRatio = 0.2;
+    private int keySpace = 1000;
+
+    /**
+     * @param dao      DAO sobre el que se genera la carga, con la tabla ya poblada hasta <code>keySpace</code>
+     * @param poolWait histograma de {@link #timed(DataSource, LatencyHistogram)}, puede ser <code>null</code>
+     */
+    public LoadHarness(ItemDao dao, LatencyHistogram poolWait) {
+        this.dao = dao;
+        this.poolWait = poolWait;
+    }
+
+    public LoadHarness threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public LoadHarness duration(long duration, TimeUnit unit) {
+        this.durationMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public LoadHarness writeRatio(double writeRatio) {
+        this.writeRatio = writeRatio;
+        return this;
+    }
+
+    public LoadHarness keySpace(int keySpace) {
+        this.keySpace = keySpace;
+        return this;
+    }
+
+    /**
+     * Envuelve un DataSource para medir cuanto tarda cada <code>getConnection</code>, es decir la espera por una
+     * conexion libre del pool.
+     *
+     * @param dataSource pool a medir
+     * @param histogram  histograma donde se registran los nanosegundos de espera
+     * @return DataSource que delega en el pool
+     */
+    public static DataSource timed(DataSource dataSource, LatencyHistogram histogram) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    long start = System.nanoTime();
+                    try {
+                        return method.invoke(dataSource, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    } finally {
+                        if (method.getName().equals("getConnection") && method.getReturnType() == Connection.class) {
+                            histogram.record(System.nanoTime() - start);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Ejecuta la carga y espera a que terminen todos los hilos.
+     *
+     * @return resultado de la corrida
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public Result run() throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        if (poolWait != null) {
+            poolWait.reset();
+        }
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                ready.countDown();
+                try {
+                    ready.await();
+                    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        int id = random.nextInt(keySpace) + 1;
+                        boolean write = random.nextDouble() < writeRatio;
+                        long start = System.nanoTime();
+                        try {
+                            if (write) {
+                                dao.update(new Item(id, "CARGA", BigDecimal.valueOf(random.nextInt(10_000), 2)));
+                                writes.increment();
+                            } else {
+                                dao.selectById(id);
+                                reads.increment();
+                            }
+                            latency.record(System.nanoTime() - start);
+                        } catch (RuntimeException ex) {
+                            failures.computeIfAbsent(ex.getClass().getSimpleName(), k -> new LongAdder()).increment();
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "carga-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        Map<String, Long> failureCounts = new TreeMap<>();
+        failures.forEach((type, count) -> failureCounts.put(type, count.sum()));
+        return new Result(threads, elapsed, reads.sum(), writes.sum(), failureCounts, latency, poolWait);
+    }
+
+    /**
+     * Resultado de una corrida. Las latencias estan en microsegundos.
+     */
+    public static final class Result {
+        private final int threads;
+        private final long elapsedNanos;
+        private final long reads;
+        private final long writes;
+        private final Map<String, Long> failures;
+        private final LatencyHistogram latency;
+        private final LatencyHistogram poolWait;
+
+        private Result(int threads, long elapsedNanos, long reads, long writes, Map<String, Long> failures,
+                       LatencyHistogram latency, LatencyHistogram poolWait) {
+            this.threads = threads;
+            this.elapsedNanos = elapsedNanos;
+            this.reads = reads;
+            this.writes = writes;
+            this.failures = failures;
+            this.latency = latency;
+            this.poolWait = poolWait;
+        }
+
+        public long getOperations() {
+            return reads + writes;
+        }
+
+        public long getReads() {
+            return reads;
+        }
+
+        public long getWrites() {
+            return writes;
+        }
+
+        public long getFailures() {
+            return failures.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public Map<String, Long> getFailuresByType() {
+            return failures;
+        }
+
+        public double getThroughput() {
+            return getOperations() * 1e9 / elapsedNanos;
+        }
+
+        public long getLatencyMicros(double percentile) {
+            return latency.getPercentile(percentile) / 1000L;
+        }
+
+        public long getPoolWaitCount() {
+            return poolWait == null ? 0 : poolWait.getCount();
+        }
+
+        public long getPoolWaitMicros(double percentile) {
+            return poolWait == null ? 0 : poolWait.getPercentile(percentile) / 1000L;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hilos=%d, operaciones=%d (lecturas=%d, escrituras=%d), fallas=%s, throughput=%.0f op/s, "
+                            + "latencia p50=%dus p99=%dus p999=%dus, espera pool p50=%dus p99=%dus p999=%dus",
+                    threads, getOperations(), reads, writes, failures, getThroughput(),
+                    getLatencyMicros(50), getLatencyMicros(99), getLatencyMicros(99.9),
+                    getPoolWaitMicros(50), getPoolWaitMicros(99), getPoolWaitMicros(99.9));
+        }
+    }
+}